@@ -20,8 +20,10 @@ import it.units.erallab.hmsrobots.core.controllers.TimeFunctions;
 import it.units.erallab.hmsrobots.core.objects.ControllableVoxel;
 import it.units.erallab.hmsrobots.core.objects.Robot;
 import it.units.erallab.hmsrobots.core.objects.immutable.Immutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 import it.units.erallab.hmsrobots.core.objects.immutable.Voxel;
 import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.util.Expression;
 import it.units.erallab.hmsrobots.util.Grid;
 import it.units.erallab.hmsrobots.util.SerializableFunction;
 import it.units.erallab.hmsrobots.viewers.GridEpisodeRunner;
@@ -36,6 +38,7 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -84,7 +87,7 @@ public class FineLocomotionStarter {
         double phase = Double.parseDouble(pieces[4]);
         entries.add(new Grid.Entry<>(
             x, y,
-            t -> amplitude * Math.sin(-2d * Math.PI * t * frequency + phase))
+            Expression.sinusoid(amplitude, -frequency, phase))
         );
       }
       int minX = entries.stream().mapToInt(Grid.Entry::getX).min().orElse(0);
@@ -109,18 +112,26 @@ public class FineLocomotionStarter {
     );
     //run simulation
     if (args[0].equals("csv")) {
-      SnapshotListener listener = snapshot -> {
-        for (Immutable immutable : snapshot.getObjects()) {
-          if (immutable instanceof it.units.erallab.hmsrobots.core.objects.immutable.Robot) {
-            for (Immutable child : immutable.getChildren()) {
-              if (child instanceof Voxel) {
-                Voxel voxel = (Voxel) child;
-                System.out.printf("%f;%f;%f;%f%n",
-                    snapshot.getTime(),
-                    voxel.getShape().center().x,
-                    voxel.getShape().center().y,
-                    voxel.getAreaRatio()
-                );
+      SnapshotListener listener = new SnapshotListener() {
+        @Override
+        public Set<Snapshot.Content> requiredContents() {
+          return Snapshot.NO_CONTENTS;
+        }
+
+        @Override
+        public void listen(Snapshot snapshot) {
+          for (Immutable immutable : snapshot.getObjects()) {
+            if (immutable instanceof it.units.erallab.hmsrobots.core.objects.immutable.Robot) {
+              for (Immutable child : immutable.getChildren()) {
+                if (child instanceof Voxel) {
+                  Voxel voxel = (Voxel) child;
+                  System.out.printf("%f;%f;%f;%f%n",
+                      snapshot.getTime(),
+                      voxel.getShape().center().x,
+                      voxel.getShape().center().y,
+                      voxel.getAreaRatio()
+                  );
+                }
               }
             }
           }
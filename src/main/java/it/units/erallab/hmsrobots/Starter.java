@@ -30,9 +30,9 @@ import it.units.erallab.hmsrobots.core.sensors.Lidar;
 import it.units.erallab.hmsrobots.core.sensors.Velocity;
 import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
 import it.units.erallab.hmsrobots.tasks.locomotion.Outcome;
+import it.units.erallab.hmsrobots.util.Expression;
 import it.units.erallab.hmsrobots.util.Grid;
 import it.units.erallab.hmsrobots.util.RobotUtils;
-import it.units.erallab.hmsrobots.util.SerializationUtils;
 import it.units.erallab.hmsrobots.viewers.FramesImageBuilder;
 import it.units.erallab.hmsrobots.viewers.GridFileWriter;
 import it.units.erallab.hmsrobots.viewers.GridOnlineViewer;
@@ -100,11 +100,11 @@ public class Starter {
     Robot<ControllableVoxel> robot = new Robot<>(
         new TimeFunctions(Grid.create(
             w, h,
-            (x, y) -> (Double t) -> Math.sin(-2 * Math.PI * t + Math.PI * ((double) x / (double) w))
+            (x, y) -> Expression.sinusoid(1d, -1d, Math.PI * ((double) x / (double) w))
         )),
         Grid.create(
             w, h,
-            (x, y) -> (y == 0) ? SerializationUtils.clone(hardMaterialVoxel) : SerializationUtils.clone(softMaterialVoxel)
+            (x, y) -> (y == 0) ? hardMaterialVoxel.copy() : softMaterialVoxel.copy()
         )
     );
     FramesImageBuilder framesImageBuilder = new FramesImageBuilder(
@@ -133,9 +133,9 @@ public class Starter {
         new TimeFunctions(Grid.create(
             body.getW(),
             body.getH(),
-            (final Integer x, final Integer y) -> (Double t) -> Math.sin(-2 * Math.PI * f * t + Math.PI * ((double) x / (double) body.getW()))
+            (final Integer x, final Integer y) -> Expression.sinusoid(1d, -f, Math.PI * ((double) x / (double) body.getW()))
         )),
-        SerializationUtils.clone(body)
+        Grid.create(body, v -> v == null ? null : v.copy())
     );
     //distribute sensing
     Random random = new Random();
@@ -154,7 +154,7 @@ public class Starter {
     }
     Robot<SensingVoxel> distHetero = new Robot<>(
         distributedSensing,
-        SerializationUtils.clone(body)
+        Grid.create(body, v -> v == null ? null : v.copy())
     );
     //centralized sensing
     CentralizedSensing centralizedSensing = new CentralizedSensing(body);
@@ -170,7 +170,7 @@ public class Starter {
     centralizedSensing.setFunction(mlp);
     Robot<SensingVoxel> centralized = new Robot<>(
         centralizedSensing,
-        SerializationUtils.clone(body)
+        Grid.create(body, v -> v == null ? null : v.copy())
     );
     //episode
     Locomotion locomotion = new Locomotion(
@@ -192,8 +192,8 @@ public class Starter {
         new TimeFunctions(Grid.create(
             body.getW(),
             body.getH(),
-            (final Integer x, final Integer y) -> (Double t) -> Math.sin(
-                -2 * Math.PI * f * t + 2 * Math.PI * ((double) x / (double) body.getW()) + Math.PI * ((double) y / (double) body.getH())
+            (final Integer x, final Integer y) -> Expression.sinusoid(
+                1d, -f, 2 * Math.PI * ((double) x / (double) body.getW()) + Math.PI * ((double) y / (double) body.getH())
             )
         )),
         RobotUtils.buildSensorizingFunction("uniform-a-0.01").apply(body)
@@ -220,14 +220,14 @@ public class Starter {
         new TimeFunctions(Grid.create(
             body.getW(),
             body.getH(),
-            (final Integer x, final Integer y) -> (Double t) -> Math.sin(-2 * Math.PI * f * t + Math.PI * ((double) x / (double) body.getW()))
+            (final Integer x, final Integer y) -> Expression.sinusoid(1d, -f, Math.PI * ((double) x / (double) body.getW()))
         )),
         body
     );
     Robot<?> breakableRobot = RobotUtils.buildRobotTransformation(
         "breakable-area-1000/500-3/0.5-0",
         new Random(0)
-    ).apply(SerializationUtils.clone(unbreakableRobot));
+    ).apply(unbreakableRobot.copy());
     //episode
     Locomotion locomotion = new Locomotion(
         60,
@@ -251,12 +251,12 @@ public class Starter {
         new TimeFunctions(Grid.create(
             body.getW(),
             body.getH(),
-            (final Integer x, final Integer y) -> (Double t) -> Math.sin(
-                -2 * Math.PI * f * t + 2 * Math.PI * ((double) x / (double) body.getW()) + Math.PI * ((double) y / (double) body.getH())
+            (final Integer x, final Integer y) -> Expression.sinusoid(
+                1d, -f, 2 * Math.PI * ((double) x / (double) body.getW()) + Math.PI * ((double) y / (double) body.getH())
             )
             //(x, y) -> t -> Math.signum(Math.sin(-2 * Math.PI * (f + (x > body.getW() / 2d ? 1 : 0)) * t))
         )),
-        SerializationUtils.clone(body)
+        Grid.create(body, v -> v == null ? null : v.copy())
     );
     robot = RobotUtils.buildRobotTransformation("broken-0.0-0", new Random(0)).apply(robot);
     //episode
@@ -273,7 +273,7 @@ public class Starter {
     Grid<? extends SensingVoxel> body = RobotUtils.buildSensorizingFunction("uniform-t-0").apply(shape);
     Robot<?> robot = new Robot<>(
         new CentralizedSensing(body),
-        SerializationUtils.clone(body)
+        Grid.create(body, v -> v == null ? null : v.copy())
     );
     //episode
     Locomotion locomotion = new Locomotion(
@@ -329,7 +329,7 @@ public class Starter {
     centralizedSensing.setFunction(mlp);
     Robot<SensingVoxel> robot = new Robot<>(
         centralizedSensing,
-        SerializationUtils.clone(body)
+        Grid.create(body, v -> v == null ? null : v.copy())
     );
     //episode
     Locomotion locomotion = new Locomotion(
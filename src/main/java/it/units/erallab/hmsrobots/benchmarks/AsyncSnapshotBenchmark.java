@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import com.google.common.base.Stopwatch;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.util.BoundingBox;
+import it.units.erallab.hmsrobots.util.Point2;
+import it.units.erallab.hmsrobots.viewers.AsyncSnapshotListener;
+import it.units.erallab.hmsrobots.viewers.GraphicsDrawer;
+import it.units.erallab.hmsrobots.viewers.RobotFollower;
+import it.units.erallab.hmsrobots.viewers.SnapshotListener;
+import org.dyn4j.dynamics.Settings;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the duration of a {@link Locomotion} episode seen by a slow listener, one drawing every snapshot with a
+ * {@link GraphicsDrawer}, when the listener is invoked on the simulation thread and when it is wrapped in an
+ * {@link AsyncSnapshotListener} with each {@link AsyncSnapshotListener.Policy}.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class AsyncSnapshotBenchmark {
+
+  private static final double FINAL_T = 20d;
+  private static final int CAPACITY = 16;
+  private static final int W = 400;
+  private static final int H = 300;
+
+  public static void main(String[] args) {
+    String shape = args.length > 0 ? args[0] : "biped-7x4";
+    Robot<?> robot = CopyBenchmark.robot(shape);
+    Locomotion locomotion = new Locomotion(FINAL_T, Locomotion.createTerrain("hilly-1-10-0"), new Settings());
+    System.out.printf("%.0fs episodes of a %s robot on %d processors%n", FINAL_T, shape, Runtime.getRuntime().availableProcessors());
+    //warm up
+    locomotion.apply(robot.copy(), drawingListener());
+    //synchronous
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    locomotion.apply(robot.copy(), drawingListener());
+    System.out.printf("%-12s %8.3fs%n", "synchronous", (double) stopwatch.elapsed(TimeUnit.MILLISECONDS) / 1000d);
+    //asynchronous
+    for (AsyncSnapshotListener.Policy policy : AsyncSnapshotListener.Policy.values()) {
+      AsyncSnapshotListener listener = new AsyncSnapshotListener(drawingListener(), CAPACITY, policy);
+      stopwatch = Stopwatch.createStarted();
+      locomotion.apply(robot.copy(), listener);
+      double simulationElapsed = (double) stopwatch.elapsed(TimeUnit.MILLISECONDS) / 1000d;
+      listener.close();
+      double overallElapsed = (double) stopwatch.elapsed(TimeUnit.MILLISECONDS) / 1000d;
+      System.out.printf(
+          "%-12s %8.3fs (%.3fs with drain) %5d/%5d dropped, max depth %d%n",
+          policy.name().toLowerCase(),
+          simulationElapsed, overallElapsed,
+          listener.getDroppedCount(), listener.getListenedCount(),
+          listener.getMaxQueueDepth()
+      );
+    }
+  }
+
+  private static SnapshotListener drawingListener() {
+    GraphicsDrawer graphicsDrawer = GraphicsDrawer.build();
+    RobotFollower framer = new RobotFollower(30, 1.5d, 100, RobotFollower.AggregateType.MAX);
+    BufferedImage image = new BufferedImage(W, H, BufferedImage.TYPE_3BYTE_BGR);
+    BoundingBox imageFrame = BoundingBox.build(Point2.build(0, 0), Point2.build(W, H));
+    return new SnapshotListener() {
+      @Override
+      public Set<Snapshot.Content> requiredContents() {
+        return graphicsDrawer.requiredContents();
+      }
+
+      @Override
+      public void listen(Snapshot snapshot) {
+        Graphics2D g = image.createGraphics();
+        graphicsDrawer.draw(snapshot, g, imageFrame, framer.getFrame(snapshot, (double) W / (double) H));
+        g.dispose();
+      }
+    };
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import com.google.common.base.Stopwatch;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link Utils#gridLargestConnected(Grid, java.util.function.Predicate)} and {@link
+ * Utils#cropGrid(Grid, java.util.function.Predicate)} on random body grids of increasing size, as done on every
+ * candidate morphology during morphological evolution.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class ComponentsBenchmark {
+
+  private static final int[] SIDES = new int[]{5, 10, 20, 50, 100};
+  private static final double FILL_RATE = 0.6d;
+  private static final int N_OF_GRIDS = 20;
+
+  public static void main(String[] args) {
+    Random random = new Random(1);
+    for (int side : SIDES) {
+      List<Grid<Boolean>> grids = new ArrayList<>(N_OF_GRIDS);
+      for (int i = 0; i < N_OF_GRIDS; i++) {
+        grids.add(Grid.create(side, side, (x, y) -> random.nextDouble() < FILL_RATE));
+      }
+      //warm up
+      int repetitions = Math.max(1, 20000 / (side * side));
+      run(grids, repetitions);
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      long count = run(grids, repetitions);
+      double elapsed = (double) stopwatch.elapsed(TimeUnit.NANOSECONDS) / 1000d / (double) (repetitions * grids.size());
+      System.out.printf("%3dx%-3d largest connected and crop: %10.1fus per grid (%d cells kept)%n", side, side, elapsed, count);
+    }
+  }
+
+  private static long run(List<Grid<Boolean>> grids, int repetitions) {
+    long count = 0;
+    for (int r = 0; r < repetitions; r++) {
+      for (Grid<Boolean> grid : grids) {
+        Grid<Boolean> cropped = Utils.cropGrid(Utils.gridLargestConnected(grid, b -> b), b -> b != null && b);
+        count = cropped.count(b -> b != null && b);
+      }
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import com.google.common.base.Stopwatch;
+import it.units.erallab.hmsrobots.core.controllers.DistributedSensing;
+import it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.SensingVoxel;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.RobotUtils;
+import it.units.erallab.hmsrobots.util.SerializationUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compares {@link Robot#copy()} and {@link Robot#copy(boolean)} against {@link SerializationUtils#clone(Object, SerializationUtils.Mode)}
+ * in the different modes, on a sensorized robot with a distributed MLP controller.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class CopyBenchmark {
+
+  private static final int N_OF_COPIES = 1000;
+
+  static Robot<SensingVoxel> robot(String shape) {
+    Grid<? extends SensingVoxel> body = RobotUtils.buildSensorizingFunction("uniform-t+a+vxy-0").apply(RobotUtils.buildShape(shape));
+    DistributedSensing controller = new DistributedSensing(body, 1);
+    for (Grid.Entry<? extends SensingVoxel> entry : body) {
+      if (entry.getValue() != null) {
+        controller.getFunctions().set(entry.getX(), entry.getY(), new MultiLayerPerceptron(
+            MultiLayerPerceptron.ActivationFunction.TANH,
+            controller.nOfInputs(entry.getX(), entry.getY()),
+            new int[]{controller.nOfInputs(entry.getX(), entry.getY())},
+            controller.nOfOutputs(entry.getX(), entry.getY())
+        ));
+      }
+    }
+    return new Robot<>(controller, Grid.create(body, v -> v));
+  }
+
+  private static double copiesPerSecond(Robot<SensingVoxel> robot, UnaryOperator<Robot<SensingVoxel>> copier, int n) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    for (int i = 0; i < n; i++) {
+      copier.apply(robot);
+    }
+    return (double) n / ((double) stopwatch.elapsed(TimeUnit.MICROSECONDS) / 1000000d);
+  }
+
+  public static void main(String[] args) {
+    String shape = args.length > 0 ? args[0] : "biped-7x4";
+    int n = args.length > 1 ? Integer.parseInt(args[1]) : N_OF_COPIES;
+    Robot<SensingVoxel> robot = robot(shape);
+    Map<String, UnaryOperator<Robot<SensingVoxel>>> copiers = Map.of(
+        "clone JAVA", r -> SerializationUtils.clone(r, SerializationUtils.Mode.JAVA),
+        "clone JSON", r -> SerializationUtils.clone(r, SerializationUtils.Mode.JSON),
+        "clone GZIPPED_JAVA", r -> SerializationUtils.clone(r, SerializationUtils.Mode.GZIPPED_JAVA),
+        "copy", Robot::copy,
+        "copy reusing geometry", r -> r.copy(true)
+    );
+    System.out.printf("%d copies of a %s robot%n", n, shape);
+    copiers.entrySet().stream()
+        .sorted(Map.Entry.comparingByKey())
+        .forEach(e -> {
+          //warm up
+          copiesPerSecond(robot, e.getValue(), n / 10);
+          System.out.printf("%-22s %10.1f copies/s%n", e.getKey(), copiesPerSecond(robot, e.getValue(), n));
+        });
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import com.google.common.base.Stopwatch;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.util.BoundingBox;
+import it.units.erallab.hmsrobots.util.Point2;
+import it.units.erallab.hmsrobots.viewers.Framer;
+import it.units.erallab.hmsrobots.viewers.GraphicsDrawer;
+import it.units.erallab.hmsrobots.viewers.RobotFollower;
+import org.dyn4j.dynamics.Settings;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the frames per second achieved by a {@link GraphicsDrawer} drawing a recorded {@link Locomotion} episode
+ * on a hilly terrain, with and without the cached static layers, both with a moving and with a still viewport.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class DrawingBenchmark {
+
+  private static final double FINAL_T = 20d;
+  private static final int W = 800;
+  private static final int H = 600;
+
+  public static void main(String[] args) {
+    String shape = args.length > 0 ? args[0] : "biped-7x4";
+    String terrain = args.length > 1 ? args[1] : "hilly-3-30-0";
+    Robot<?> robot = CopyBenchmark.robot(shape);
+    Locomotion locomotion = new Locomotion(FINAL_T, Locomotion.createTerrain(terrain), new Settings());
+    List<Snapshot> snapshots = new ArrayList<>();
+    locomotion.apply(robot, snapshots::add);
+    System.out.printf("%d snapshots of a %s robot on %s%n", snapshots.size(), shape, terrain);
+    BoundingBox graphicsFrame = BoundingBox.build(Point2.build(0, 0), Point2.build(W, H));
+    BoundingBox stillFrame = new RobotFollower(1, 4, 1, RobotFollower.AggregateType.MAX).getFrame(snapshots.get(0), (double) W / (double) H);
+    for (boolean cache : new boolean[]{false, true}) {
+      //warm up
+      fps(snapshots, cache, graphicsFrame, (s, r) -> stillFrame);
+      fps(snapshots, cache, graphicsFrame, new RobotFollower(30, 3, 1, RobotFollower.AggregateType.MAX));
+      System.out.printf(
+          "cache=%-5s follower: %6.1f fps still: %6.1f fps%n",
+          cache,
+          fps(snapshots, cache, graphicsFrame, new RobotFollower(30, 3, 1, RobotFollower.AggregateType.MAX)),
+          fps(snapshots, cache, graphicsFrame, (s, r) -> stillFrame)
+      );
+    }
+  }
+
+  private static double fps(List<Snapshot> snapshots, boolean cache, BoundingBox graphicsFrame, Framer framer) {
+    GraphicsDrawer graphicsDrawer = GraphicsDrawer.build();
+    graphicsDrawer.setConfigurable("cacheStaticLayers", cache);
+    graphicsDrawer.setConfigurable("generalRenderingModes", new HashSet<>(Set.of(
+        GraphicsDrawer.GeneralRenderingMode.GRID_MAJOR,
+        GraphicsDrawer.GeneralRenderingMode.TIME_INFO
+    )));
+    BufferedImage image = new BufferedImage(W, H, BufferedImage.TYPE_3BYTE_BGR);
+    Graphics2D g = image.createGraphics();
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    for (Snapshot snapshot : snapshots) {
+      BoundingBox worldFrame = framer.getFrame(snapshot, graphicsFrame.width() / graphicsFrame.height());
+      graphicsDrawer.draw(snapshot, g, graphicsFrame, worldFrame);
+    }
+    g.dispose();
+    return (double) snapshots.size() / ((double) stopwatch.elapsed(TimeUnit.MICROSECONDS) / 1000000d);
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import com.google.common.base.Stopwatch;
+import it.units.erallab.hmsrobots.core.controllers.PhaseSin;
+import it.units.erallab.hmsrobots.core.objects.ControllableVoxel;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.tasks.EpisodeExecutor;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.tasks.locomotion.Outcome;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.RobotUtils;
+import org.dyn4j.dynamics.Settings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Compares the {@link EpisodeExecutor} against a fixed thread pool, as used by
+ * {@link it.units.erallab.hmsrobots.viewers.GridFileWriter#save}, on many episodes of mixed length.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class EpisodeExecutionBenchmark {
+
+  private static final int N_OF_EPISODES = 64;
+  private static final double MIN_FINAL_T = 5d;
+  private static final double MAX_FINAL_T = 30d;
+
+  private static class Episode {
+    private final Locomotion locomotion;
+    private final Robot<?> robot;
+
+    private Episode(Locomotion locomotion, Robot<?> robot) {
+      this.locomotion = locomotion;
+      this.robot = robot;
+    }
+  }
+
+  private static List<Episode> episodes(int n, Random random) {
+    double[][] terrain = Locomotion.createTerrain("hilly-1-10-0");
+    Grid<Boolean> shape = RobotUtils.buildShape("biped-4x3");
+    List<Episode> episodes = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      double finalT = MIN_FINAL_T + random.nextDouble() * (MAX_FINAL_T - MIN_FINAL_T);
+      double frequency = 0.5d + random.nextDouble();
+      episodes.add(new Episode(
+          new Locomotion(finalT, terrain, new Settings()),
+          new Robot<>(
+              new PhaseSin(frequency, 1d, Grid.create(shape, b -> b ? random.nextDouble() * Math.PI : null)),
+              Grid.create(shape, b -> b ? new ControllableVoxel() : null)
+          )
+      ));
+    }
+    return episodes;
+  }
+
+  private static double fixedThreadPool(List<Episode> episodes, int nOfThreads) throws InterruptedException, ExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    List<Future<Outcome>> futures = new ArrayList<>();
+    for (Episode episode : episodes) {
+      futures.add(executor.submit(() -> episode.locomotion.apply(episode.robot)));
+    }
+    for (Future<Outcome> future : futures) {
+      future.get();
+    }
+    double elapsed = (double) stopwatch.elapsed(TimeUnit.MICROSECONDS) / 1000000d;
+    executor.shutdown();
+    return elapsed;
+  }
+
+  private static double episodeExecutor(List<Episode> episodes, int nOfCarriers) throws InterruptedException {
+    try (EpisodeExecutor executor = new EpisodeExecutor(nOfCarriers)) {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      try (EpisodeExecutor.Scope<Episode, Outcome> scope = executor.open((episode, listener) -> episode.locomotion.apply(episode.robot, listener))) {
+        for (Episode episode : episodes) {
+          scope.fork(episode);
+        }
+        while (scope.take() != null) {
+          //consume results as they are streamed
+        }
+      }
+      return (double) stopwatch.elapsed(TimeUnit.MICROSECONDS) / 1000000d;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int nOfEpisodes = args.length > 0 ? Integer.parseInt(args[0]) : N_OF_EPISODES;
+    int nOfThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    System.out.printf("%d episodes of length in [%.0f,%.0f]s on %d threads%n", nOfEpisodes, MIN_FINAL_T, MAX_FINAL_T, nOfThreads);
+    //warm up
+    fixedThreadPool(episodes(nOfThreads, new Random(0)), nOfThreads);
+    System.out.printf("%-20s %8.3fs%n", "fixed thread pool", fixedThreadPool(episodes(nOfEpisodes, new Random(1)), nOfThreads));
+    System.out.printf("%-20s %8.3fs%n", "episode executor", episodeExecutor(episodes(nOfEpisodes, new Random(1)), nOfThreads));
+  }
+
+}
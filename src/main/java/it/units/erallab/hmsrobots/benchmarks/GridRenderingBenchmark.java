@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import com.google.common.base.Stopwatch;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.viewers.GridEpisodeRunner;
+import it.units.erallab.hmsrobots.viewers.GridFileWriter;
+import it.units.erallab.hmsrobots.viewers.VideoUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.dyn4j.dynamics.Settings;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the time needed to simulate and save a grid video with {@link GridFileWriter} scales with the number
+ * of cells and of threads running the episodes.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class GridRenderingBenchmark {
+
+  private static final double FINAL_T = 10d;
+  private static final double FRAME_RATE = 20d;
+  private static final int W = 800;
+  private static final int H = 600;
+
+  public static void main(String[] args) throws IOException {
+    String shape = args.length > 0 ? args[0] : "biped-7x4";
+    int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    Robot<?> robot = CopyBenchmark.robot(shape);
+    Locomotion locomotion = new Locomotion(FINAL_T, Locomotion.createTerrain("hilly-1-10-0"), new Settings());
+    File file = File.createTempFile("grid-rendering-benchmark", ".mp4");
+    file.deleteOnExit();
+    System.out.printf("%.0fs episodes of a %s robot, %dx%d video at %.0f fps%n", FINAL_T, shape, W, H, FRAME_RATE);
+    //warm up
+    run(locomotion, robot, 1, 1, file);
+    for (int nOfCells = 1; nOfCells <= 8; nOfCells = nOfCells * 2) {
+      for (int nOfThreads = 1; nOfThreads <= Math.min(nOfCells, maxThreads); nOfThreads = nOfThreads * 2) {
+        double elapsed = run(locomotion, robot, nOfCells, nOfThreads, file);
+        System.out.printf(
+            "cells=%d threads=%d %7.3fs (%.3fs per cell)%n",
+            nOfCells, nOfThreads, elapsed, elapsed / (double) nOfCells
+        );
+      }
+    }
+    Files.deleteIfExists(file.toPath());
+  }
+
+  private static double run(Locomotion locomotion, Robot<?> robot, int nOfCells, int nOfThreads, File file) throws IOException {
+    int gridW = (int) Math.ceil(Math.sqrt(nOfCells));
+    int gridH = (int) Math.ceil((double) nOfCells / (double) gridW);
+    Grid<Pair<String, Robot<?>>> namedSolutions = Grid.create(gridW, gridH, (x, y) -> y * gridW + x < nOfCells ? Pair.of(Integer.toString(y * gridW + x), robot.copy()) : null);
+    ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    GridFileWriter gridFileWriter = new GridFileWriter(
+        W, H, 0d, FRAME_RATE, VideoUtils.EncoderFacility.JCODEC, file,
+        Grid.create(namedSolutions, p -> p == null ? null : p.getLeft())
+    );
+    new GridEpisodeRunner<>(namedSolutions, locomotion, gridFileWriter, executor).run();
+    executor.shutdownNow();
+    return (double) stopwatch.elapsed(TimeUnit.MILLISECONDS) / 1000d;
+  }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import com.google.common.base.Stopwatch;
+import it.units.erallab.hmsrobots.core.controllers.DistributedSensing;
+import it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.SensingVoxel;
+import it.units.erallab.hmsrobots.util.SerializationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compares the size and the speed of the {@link SerializationUtils.Mode#BINARY} and
+ * {@link SerializationUtils.Mode#GZIPPED_JSON} modes on a population of robots with distributed MLP controllers.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SerializationBenchmark {
+
+  private static final int POPULATION_SIZE = 100;
+
+  private static List<Robot<SensingVoxel>> population(String shape, int n, Random random) {
+    List<Robot<SensingVoxel>> robots = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      Robot<SensingVoxel> robot = CopyBenchmark.robot(shape);
+      ((DistributedSensing) robot.getController()).getFunctions().values().forEach(f -> {
+        MultiLayerPerceptron mlp = (MultiLayerPerceptron) f;
+        if (mlp != null) {
+          mlp.setParams(random.doubles(mlp.getParams().length, -1d, 1d).toArray());
+        }
+      });
+      robots.add(robot);
+    }
+    return robots;
+  }
+
+  private static <T> double seconds(List<T> items, Function<T, ?> function) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    items.forEach(function::apply);
+    return (double) stopwatch.elapsed(TimeUnit.MICROSECONDS) / 1000000d;
+  }
+
+  public static void main(String[] args) {
+    String shape = args.length > 0 ? args[0] : "biped-7x4";
+    int n = args.length > 1 ? Integer.parseInt(args[1]) : POPULATION_SIZE;
+    List<Robot<SensingVoxel>> robots = population(shape, n, new Random(1));
+    System.out.printf("%d %s robots with distributed MLP controllers%n", n, shape);
+    System.out.printf("%-14s %12s %10s %10s%n", "mode", "avg.size", "ser.time", "deser.time");
+    for (SerializationUtils.Mode mode : List.of(SerializationUtils.Mode.GZIPPED_JSON, SerializationUtils.Mode.BINARY)) {
+      //warm up
+      robots.subList(0, Math.min(n, 10)).forEach(r -> SerializationUtils.deserialize(SerializationUtils.serialize(r, mode), Robot.class, mode));
+      List<String> serialized = new ArrayList<>(n);
+      double serializationTime = seconds(robots, r -> serialized.add(SerializationUtils.serialize(r, mode)));
+      double deserializationTime = seconds(serialized, s -> SerializationUtils.deserialize(s, Robot.class, mode));
+      System.out.printf(
+          "%-14s %10.0fB %9.3fs %9.3fs%n",
+          mode,
+          serialized.stream().mapToInt(String::length).average().orElse(0d) * 3d / 4d,
+          serializationTime,
+          deserializationTime
+      );
+    }
+  }
+
+}
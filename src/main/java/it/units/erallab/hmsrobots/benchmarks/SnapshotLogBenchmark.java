@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import com.google.common.base.Stopwatch;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.viewers.SnapshotLogReader;
+import it.units.erallab.hmsrobots.viewers.SnapshotLogWriter;
+import org.dyn4j.dynamics.Settings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the size of the {@link SnapshotLogWriter} log of a {@link Locomotion} episode and compares the cost of
+ * simulating the episode (while logging it) with the cost of replaying it from the log.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SnapshotLogBenchmark {
+
+  private static final double FINAL_T = 30d;
+
+  public static void main(String[] args) throws IOException {
+    String shape = args.length > 0 ? args[0] : "biped-7x4";
+    Robot<?> robot = CopyBenchmark.robot(shape);
+    Locomotion locomotion = new Locomotion(FINAL_T, Locomotion.createTerrain("hilly-1-10-0"), new Settings());
+    //warm up
+    locomotion.apply(robot.copy(), new SnapshotLogWriter(new ByteArrayOutputStream(), SnapshotLogWriter.DEFAULT_POSITION_QUANTUM, SnapshotLogWriter.DEFAULT_VALUE_QUANTUM, Snapshot.ALL_CONTENTS));
+    //record
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    SnapshotLogWriter writer = new SnapshotLogWriter(baos, SnapshotLogWriter.DEFAULT_POSITION_QUANTUM, SnapshotLogWriter.DEFAULT_VALUE_QUANTUM, Snapshot.ALL_CONTENTS);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    locomotion.apply(robot.copy(), writer);
+    writer.close();
+    double simulationElapsed = (double) stopwatch.elapsed(TimeUnit.MICROSECONDS) / 1000000d;
+    byte[] bytes = baos.toByteArray();
+    System.out.printf(
+        "%.0fs episode of a %s robot: %d frames, %d topologies, %.1fKB (%.0fB per frame)%n",
+        FINAL_T, shape, writer.getFrameCount(), writer.getTopologyCount(),
+        (double) bytes.length / 1024d, (double) bytes.length / (double) writer.getFrameCount()
+    );
+    //replay
+    for (int i = 0; i < 3; i++) {
+      replay(bytes);
+    }
+    stopwatch = Stopwatch.createStarted();
+    int n = replay(bytes);
+    double replayElapsed = (double) stopwatch.elapsed(TimeUnit.MICROSECONDS) / 1000000d;
+    System.out.printf("simulation and logging: %6.3fs%n", simulationElapsed);
+    System.out.printf("replay of %d frames:    %6.3fs%n", n, replayElapsed);
+  }
+
+  private static int replay(byte[] bytes) throws IOException {
+    int n = 0;
+    try (SnapshotLogReader reader = new SnapshotLogReader(new ByteArrayInputStream(bytes))) {
+      while (reader.next() != null) {
+        n = n + 1;
+      }
+    }
+    return n;
+  }
+
+}
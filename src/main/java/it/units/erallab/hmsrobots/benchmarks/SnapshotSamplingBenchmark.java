@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.benchmarks;
+
+import com.google.common.base.Stopwatch;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.viewers.SamplingSnapshotListener;
+import it.units.erallab.hmsrobots.viewers.SnapshotListener;
+import org.dyn4j.dynamics.Settings;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Measures the cost of a {@link Locomotion} episode with no listener, with a listener taking every snapshot, and with
+ * a listener sampling snapshots at a video frame rate; then measures the cost of building snapshots with different
+ * {@link Snapshot.Content}s.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SnapshotSamplingBenchmark {
+
+  private static final double FINAL_T = 30d;
+  private static final double FRAME_RATE = 30d;
+  private static final int N_OF_REPETITIONS = 5;
+
+  public static void main(String[] args) {
+    String shape = args.length > 0 ? args[0] : "biped-7x4";
+    Robot<?> robot = CopyBenchmark.robot(shape);
+    Locomotion locomotion = new Locomotion(FINAL_T, Locomotion.createTerrain("hilly-1-10-0"), new Settings());
+    Map<String, Function<AtomicInteger, SnapshotListener>> listeners = new LinkedHashMap<>();
+    listeners.put("no listener", counter -> null);
+    listeners.put("every step", counter -> snapshot -> counter.incrementAndGet());
+    listeners.put(String.format("%.0f fps", FRAME_RATE), counter -> SamplingSnapshotListener.rate(0d, Double.POSITIVE_INFINITY, FRAME_RATE, snapshot -> counter.incrementAndGet()));
+    System.out.printf("%.0fs episodes of a %s robot at %.0f Hz%n", FINAL_T, shape, 1d / new Settings().getStepFrequency());
+    //warm up
+    listeners.values().forEach(f -> locomotion.apply(robot.copy(), f.apply(new AtomicInteger())));
+    for (Map.Entry<String, Function<AtomicInteger, SnapshotListener>> entry : listeners.entrySet()) {
+      AtomicInteger counter = new AtomicInteger();
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      for (int i = 0; i < N_OF_REPETITIONS; i++) {
+        locomotion.apply(robot.copy(), entry.getValue().apply(counter));
+      }
+      double elapsed = (double) stopwatch.elapsed(TimeUnit.MICROSECONDS) / 1000000d / (double) N_OF_REPETITIONS;
+      System.out.printf("%-12s %8.3fs %6d snapshots%n", entry.getKey(), elapsed, counter.get() / N_OF_REPETITIONS);
+    }
+    //isolated cost of building the immutable representation, with different contents
+    Robot<?> usedRobot = robot.copy();
+    locomotion.apply(usedRobot, null);
+    Map<String, Set<Snapshot.Content>> contentsMap = new LinkedHashMap<>();
+    contentsMap.put("all", Snapshot.ALL_CONTENTS);
+    contentsMap.put("readings", EnumSet.of(Snapshot.Content.SENSOR_READINGS));
+    contentsMap.put("shapes only", Snapshot.NO_CONTENTS);
+    int n = (int) Math.round(FINAL_T / new Settings().getStepFrequency()) * N_OF_REPETITIONS;
+    for (Set<Snapshot.Content> contents : contentsMap.values()) {
+      for (int i = 0; i < n; i++) {
+        usedRobot.immutable(contents);
+      }
+    }
+    for (Map.Entry<String, Set<Snapshot.Content>> entry : contentsMap.entrySet()) {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      for (int i = 0; i < n; i++) {
+        usedRobot.immutable(entry.getValue());
+      }
+      System.out.printf("immutable construction (%s): %.1fus per snapshot%n", entry.getKey(), (double) stopwatch.elapsed(TimeUnit.MICROSECONDS) / (double) n);
+    }
+  }
+
+}
@@ -23,6 +23,7 @@ import it.units.erallab.hmsrobots.core.sensors.Sensor;
 import it.units.erallab.hmsrobots.util.Grid;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.io.Serial;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
@@ -33,6 +34,9 @@ import java.util.stream.Collectors;
  */
 public class CentralizedSensing implements Controller<SensingVoxel> {
 
+  @Serial
+  private static final long serialVersionUID = -6914924400999949576L;
+
   @JsonProperty
   private final int nOfInputs;
   @JsonProperty
@@ -125,6 +129,15 @@ public class CentralizedSensing implements Controller<SensingVoxel> {
   public void reset() {
   }
 
+  @Override
+  public CentralizedSensing copy() {
+    return new CentralizedSensing(
+        nOfInputs,
+        nOfOutputs,
+        function instanceof MultiLayerPerceptron ? ((MultiLayerPerceptron) function).copy() : function
+    );
+  }
+
   @Override
   public String toString() {
     return "CentralizedSensing{" +
@@ -19,6 +19,7 @@ package it.units.erallab.hmsrobots.core.controllers;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import it.units.erallab.hmsrobots.core.objects.ControllableVoxel;
 import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.SerializationUtils;
 
 import java.io.Serializable;
 
@@ -32,4 +33,8 @@ public interface Controller<V extends ControllableVoxel> extends Serializable {
 
   void reset();
 
+  default Controller<V> copy() {
+    return SerializationUtils.clone(this);
+  }
+
 }
@@ -24,6 +24,8 @@ import it.units.erallab.hmsrobots.util.Grid;
 import it.units.erallab.hmsrobots.util.SerializableFunction;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.io.Serial;
+import java.io.Serializable;
 import java.util.List;
 import java.util.function.Function;
 
@@ -32,6 +34,9 @@ import java.util.function.Function;
  */
 public class DistributedSensing implements Controller<SensingVoxel> {
 
+  @Serial
+  private static final long serialVersionUID = -7079736273259245818L;
+
   private enum Dir {
 
     N(0, -1, 0),
@@ -59,6 +64,22 @@ public class DistributedSensing implements Controller<SensingVoxel> {
     }
   }
 
+  private static class ZeroFunction implements Function<double[], double[]>, Serializable {
+    @JsonProperty
+    private final int nOfOutputs;
+
+    @JsonCreator
+    public ZeroFunction(@JsonProperty("nOfOutputs") int nOfOutputs) {
+      this.nOfOutputs = nOfOutputs;
+    }
+
+    @Override
+    public double[] apply(double[] in) {
+      return new double[nOfOutputs];
+    }
+  }
+
+  //not used anymore, kept for reading controllers serialized with a lambda as default function
   private static class FunctionWrapper implements Function<double[], double[]> {
     @JsonProperty
     private final SerializableFunction<double[], double[]> inner;
@@ -116,15 +137,32 @@ public class DistributedSensing implements Controller<SensingVoxel> {
         Grid.create(
             voxels.getW(),
             voxels.getH(),
-            (x, y) -> voxels.get(x, y) == null ? null : new FunctionWrapper((double[] in) -> new double[1 + signals * Dir.values().length])
+            (x, y) -> voxels.get(x, y) == null ? null : zeroFunction(signals)
         )
     );
   }
 
+  /**
+   * Returns the function used by default in each voxel, which outputs zeros for the actuation and for the signals.
+   */
+  public static Function<double[], double[]> zeroFunction(int signals) {
+    return new ZeroFunction(1 + signals * Dir.values().length);
+  }
+
   public Grid<Function<double[], double[]>> getFunctions() {
     return functions;
   }
 
+  @Override
+  public DistributedSensing copy() {
+    return new DistributedSensing(
+        signals,
+        Grid.copy(nOfInputGrid),
+        Grid.copy(nOfOutputGrid),
+        Grid.create(functions, f -> f instanceof MultiLayerPerceptron ? ((MultiLayerPerceptron) f).copy() : f)
+    );
+  }
+
   @Override
   public void reset() {
     for (int x = 0; x < lastSignalsGrid.getW(); x++) {
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.util.Parametrized;
 
+import java.io.Serial;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Objects;
@@ -31,6 +32,9 @@ import java.util.stream.Collectors;
  */
 public class MultiLayerPerceptron implements Serializable, Function<double[], double[]>, Parametrized {
 
+  @Serial
+  private static final long serialVersionUID = -5149815579297009382L;
+
   public enum ActivationFunction {
     RELU(x -> (x < 0) ? 0d : x),
     SIGMOID(x -> 1d / (1d + Math.exp(-x))),
@@ -165,6 +169,17 @@ public class MultiLayerPerceptron implements Serializable, Function<double[], do
     return values[neurons.length - 1];
   }
 
+  public MultiLayerPerceptron copy() {
+    double[][][] copiedWeights = new double[weights.length][][];
+    for (int l = 0; l < weights.length; l++) {
+      copiedWeights[l] = new double[weights[l].length][];
+      for (int s = 0; s < weights[l].length; s++) {
+        copiedWeights[l][s] = Arrays.copyOf(weights[l][s], weights[l][s].length);
+      }
+    }
+    return new MultiLayerPerceptron(activationFunction, copiedWeights, Arrays.copyOf(neurons, neurons.length));
+  }
+
   public double[][][] getWeights() {
     return weights;
   }
@@ -18,9 +18,11 @@ package it.units.erallab.hmsrobots.core.controllers;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import it.units.erallab.hmsrobots.util.Expression;
 import it.units.erallab.hmsrobots.util.Grid;
 import it.units.erallab.hmsrobots.util.SerializableFunction;
 
+import java.io.Serial;
 import java.util.Objects;
 
 /**
@@ -28,6 +30,9 @@ import java.util.Objects;
  */
 public class PhaseSin extends TimeFunctions {
 
+  @Serial
+  private static final long serialVersionUID = -7018353930739952400L;
+
   @JsonProperty
   private final double frequency;
   @JsonProperty
@@ -51,12 +56,17 @@ public class PhaseSin extends TimeFunctions {
     Grid<SerializableFunction<Double, Double>> functions = Grid.create(phases);
     for (Grid.Entry<Double> entry : phases) {
       if (entry.getValue() != null) {
-        functions.set(entry.getX(), entry.getY(), t -> Math.sin(2d * Math.PI * frequency * t + entry.getValue()) * amplitude);
+        functions.set(entry.getX(), entry.getY(), Expression.sinusoid(amplitude, frequency, entry.getValue()));
       }
     }
     return functions;
   }
 
+  @Override
+  public PhaseSin copy() {
+    return new PhaseSin(frequency, amplitude, phases);
+  }
+
   @Override
   public int hashCode() {
     int hash = 7;
@@ -79,6 +89,14 @@ public class PhaseSin extends TimeFunctions {
     return Objects.equals(this.phases, other.phases);
   }
 
+  public double getFrequency() {
+    return frequency;
+  }
+
+  public double getAmplitude() {
+    return amplitude;
+  }
+
   public Grid<Double> getPhases() {
     return phases;
   }
@@ -19,14 +19,20 @@ package it.units.erallab.hmsrobots.core.controllers;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.ControllableVoxel;
+import it.units.erallab.hmsrobots.util.Expression;
 import it.units.erallab.hmsrobots.util.Grid;
 import it.units.erallab.hmsrobots.util.SerializableFunction;
 
+import java.io.Serial;
+
 /**
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
 public class TimeFunctions implements Controller<ControllableVoxel> {
 
+  @Serial
+  private static final long serialVersionUID = 5224718859473390669L;
+
   @JsonProperty
   private final Grid<SerializableFunction<Double, Double>> functions;
 
@@ -42,7 +48,7 @@ public class TimeFunctions implements Controller<ControllableVoxel> {
     for (Grid.Entry<? extends ControllableVoxel> entry : voxels) {
       SerializableFunction<Double, Double> function = functions.get(entry.getX(), entry.getY());
       if ((entry.getValue() != null) && (function != null)) {
-        entry.getValue().applyForce(function.apply(t));
+        entry.getValue().applyForce(function instanceof Expression ? ((Expression) function).applyAsDouble(t) : function.apply(t));
       }
     }
   }
@@ -51,6 +57,11 @@ public class TimeFunctions implements Controller<ControllableVoxel> {
   public void reset() {
   }
 
+  @Override
+  public TimeFunctions copy() {
+    return new TimeFunctions(Grid.copy(functions));
+  }
+
   public Grid<SerializableFunction<Double, Double>> getFunctions() {
     return functions;
   }
@@ -20,15 +20,20 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.immutable.ControllableVoxel;
 import it.units.erallab.hmsrobots.core.objects.immutable.Immutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 import it.units.erallab.hmsrobots.core.sensors.Sensor;
 import org.apache.commons.lang3.tuple.Pair;
 import org.dyn4j.dynamics.joint.DistanceJoint;
 
+import java.io.Serial;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class BreakableVoxel extends SensingVoxel {
 
+  @Serial
+  private static final long serialVersionUID = -4772277141472031189L;
+
   public enum ComponentType {
     ACTUATOR, SENSORS, STRUCTURE
   }
@@ -115,6 +120,28 @@ public class BreakableVoxel extends SensingVoxel {
     reset();
   }
 
+  protected BreakableVoxel(BreakableVoxel template, boolean reuseGeometry) {
+    super(template, reuseGeometry);
+    randomSeed = template.randomSeed;
+    malfunctions = template.malfunctions;
+    triggerThresholds = template.triggerThresholds;
+    restoreTime = template.restoreTime;
+    triggerCounters = new EnumMap<>(MalfunctionTrigger.class);
+    state = new EnumMap<>(ComponentType.class);
+    Arrays.stream(ComponentType.values()).sequential().forEach(component -> state.put(component, MalfunctionType.NONE));
+    reset();
+  }
+
+  @Override
+  public BreakableVoxel copy() {
+    return copy(false);
+  }
+
+  @Override
+  public BreakableVoxel copy(boolean reuseGeometry) {
+    return new BreakableVoxel(this, reuseGeometry);
+  }
+
   @Override
   public void applyForce(double f) {
     double innerF = f;
@@ -158,8 +185,8 @@ public class BreakableVoxel extends SensingVoxel {
   }
 
   @Override
-  public Immutable immutable() {
-    ControllableVoxel superImmutable = (ControllableVoxel) super.immutable();
+  public Immutable immutable(Set<Snapshot.Content> contents) {
+    ControllableVoxel superImmutable = (ControllableVoxel) super.immutable(contents);
     it.units.erallab.hmsrobots.core.objects.immutable.BreakableVoxel immutable = new it.units.erallab.hmsrobots.core.objects.immutable.BreakableVoxel(
         superImmutable.getShape(),
         superImmutable.getAreaRatio(),
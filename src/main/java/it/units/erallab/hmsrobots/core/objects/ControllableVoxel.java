@@ -19,14 +19,20 @@ package it.units.erallab.hmsrobots.core.objects;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.immutable.Immutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 import org.dyn4j.dynamics.Body;
 import org.dyn4j.dynamics.joint.DistanceJoint;
 import org.dyn4j.geometry.Vector2;
 
+import java.io.Serial;
 import java.util.EnumSet;
+import java.util.Set;
 
 public class ControllableVoxel extends Voxel {
 
+  @Serial
+  private static final long serialVersionUID = 4169572940050154822L;
+
   public enum ForceMethod {
     DISTANCE, FORCE
   }
@@ -74,6 +80,22 @@ public class ControllableVoxel extends Voxel {
     this(MAX_FORCE, FORCE_METHOD);
   }
 
+  protected ControllableVoxel(ControllableVoxel template, boolean reuseGeometry) {
+    super(template, reuseGeometry);
+    maxForce = template.maxForce;
+    forceMethod = template.forceMethod;
+  }
+
+  @Override
+  public ControllableVoxel copy() {
+    return copy(false);
+  }
+
+  @Override
+  public ControllableVoxel copy(boolean reuseGeometry) {
+    return new ControllableVoxel(this, reuseGeometry);
+  }
+
   public void applyForce(double f) {
     if (Math.abs(f) > 1d) {
       f = Math.signum(f);
@@ -113,8 +135,8 @@ public class ControllableVoxel extends Voxel {
   }
 
   @Override
-  public Immutable immutable() {
-    it.units.erallab.hmsrobots.core.objects.immutable.Voxel superImmutable = (it.units.erallab.hmsrobots.core.objects.immutable.Voxel) super.immutable();
+  public Immutable immutable(Set<Snapshot.Content> contents) {
+    it.units.erallab.hmsrobots.core.objects.immutable.Voxel superImmutable = (it.units.erallab.hmsrobots.core.objects.immutable.Voxel) super.immutable(contents);
     it.units.erallab.hmsrobots.core.objects.immutable.ControllableVoxel immutable = new it.units.erallab.hmsrobots.core.objects.immutable.ControllableVoxel(
         superImmutable.getShape(),
         superImmutable.getAreaRatio(),
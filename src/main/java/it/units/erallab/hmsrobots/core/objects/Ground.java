@@ -40,6 +40,7 @@ public class Ground implements WorldObject {
   private final double[] ys;
   private final List<Body> bodies;
   private final List<Vector2> polygon;
+  private Immutable immutable;
 
   public Ground(double[] xs, double[] ys) {
     this.xs = xs;
@@ -84,11 +85,15 @@ public class Ground implements WorldObject {
 
   @Override
   public Immutable immutable() {
-    Point2[] vertices = new Point2[polygon.size()];
-    for (int i = 0; i < vertices.length; i++) {
-      vertices[i] = Point2.build(polygon.get(i));
+    //the ground does not move: the same immutable is used in all the snapshots, so that viewers can cache its drawing
+    if (immutable == null) {
+      Point2[] vertices = new Point2[polygon.size()];
+      for (int i = 0; i < vertices.length; i++) {
+        vertices[i] = Point2.build(polygon.get(i));
+      }
+      immutable = new it.units.erallab.hmsrobots.core.objects.immutable.Ground(Poly.build(vertices));
     }
-    return new it.units.erallab.hmsrobots.core.objects.immutable.Ground(Poly.build(vertices));
+    return immutable;
   }
 
   @Override
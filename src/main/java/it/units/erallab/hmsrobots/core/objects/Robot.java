@@ -20,6 +20,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.controllers.Controller;
 import it.units.erallab.hmsrobots.core.objects.immutable.Immutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 import it.units.erallab.hmsrobots.util.BoundingBox;
 import it.units.erallab.hmsrobots.util.Grid;
 import org.dyn4j.dynamics.Body;
@@ -35,12 +36,16 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
 public class Robot<V extends ControllableVoxel> implements LivingObject, Serializable {
 
+  @Serial
+  private static final long serialVersionUID = -1256409475539770791L;
+
   @JsonProperty
   private final Controller<V> controller;
   @JsonProperty
@@ -101,10 +106,15 @@ public class Robot<V extends ControllableVoxel> implements LivingObject, Seriali
 
   @Override
   public Immutable immutable() {
+    return immutable(Snapshot.ALL_CONTENTS);
+  }
+
+  @Override
+  public Immutable immutable(Set<Snapshot.Content> contents) {
     it.units.erallab.hmsrobots.core.objects.immutable.Robot immutable = new it.units.erallab.hmsrobots.core.objects.immutable.Robot();
     for (Voxel voxel : voxels.values()) {
       if (voxel != null) {
-        immutable.getChildren().add(voxel.immutable());
+        immutable.getChildren().add(voxel.immutable(contents));
       }
     }
     return immutable;
@@ -134,6 +144,23 @@ public class Robot<V extends ControllableVoxel> implements LivingObject, Seriali
     controller.reset();
   }
 
+  public Robot<V> copy() {
+    return copy(false);
+  }
+
+  /**
+   * Builds a new robot with the same controller and morphology, without going through serialization. Voxels and
+   * controller are copied structurally; with {@code reuseGeometry} set, the voxels of the copy share the immutable
+   * shapes and masses of the voxels of this robot, rather than computing them again.
+   */
+  @SuppressWarnings("unchecked")
+  public Robot<V> copy(boolean reuseGeometry) {
+    return new Robot<>(
+        controller.copy(),
+        Grid.create(voxels, v -> v == null ? null : (V) v.copy(reuseGeometry))
+    );
+  }
+
   public Vector2 getCenter() {
     double xc = 0d;
     double yc = 0d;
@@ -19,17 +19,26 @@ package it.units.erallab.hmsrobots.core.objects;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.immutable.Immutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 import it.units.erallab.hmsrobots.core.sensors.ReadingAugmenter;
 import it.units.erallab.hmsrobots.core.sensors.Sensor;
 import it.units.erallab.hmsrobots.core.sensors.immutable.SensorReading;
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.io.Serial;
 import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class SensingVoxel extends ControllableVoxel {
 
+  @Serial
+  private static final long serialVersionUID = -8221872599813772813L;
+
   @JsonProperty
   private final List<Sensor> sensors;
 
@@ -65,12 +74,43 @@ public class SensingVoxel extends ControllableVoxel {
     this.sensors = sensors;
   }
 
+  protected SensingVoxel(SensingVoxel template, boolean reuseGeometry) {
+    super(template, reuseGeometry);
+    sensors = template.sensors.stream().map(Sensor::copy).collect(Collectors.toList());
+  }
+
+  @Override
+  public SensingVoxel copy() {
+    return copy(false);
+  }
+
+  @Override
+  public SensingVoxel copy(boolean reuseGeometry) {
+    return new SensingVoxel(this, reuseGeometry);
+  }
+
   protected List<Pair<Sensor, double[]>> lastReadings = List.of();
+  private transient Map<Sensor, Object> sensorStates;
 
   public List<Pair<Sensor, double[]>> getLastReadings() {
     return lastReadings;
   }
 
+  @SuppressWarnings("unchecked")
+  public <S> S getSensorState(Sensor sensor, Supplier<S> stateSupplier) {
+    if (sensorStates == null) {
+      sensorStates = new IdentityHashMap<>();
+    }
+    return (S) sensorStates.computeIfAbsent(sensor, s -> stateSupplier.get());
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    lastReadings = List.of();
+    sensorStates = null;
+  }
+
   @Override
   public void act(double t) {
     super.act(t);
@@ -84,8 +124,11 @@ public class SensingVoxel extends ControllableVoxel {
   }
 
   @Override
-  public Immutable immutable() {
-    it.units.erallab.hmsrobots.core.objects.immutable.ControllableVoxel immutable = (it.units.erallab.hmsrobots.core.objects.immutable.ControllableVoxel) super.immutable();
+  public Immutable immutable(Set<Snapshot.Content> contents) {
+    it.units.erallab.hmsrobots.core.objects.immutable.ControllableVoxel immutable = (it.units.erallab.hmsrobots.core.objects.immutable.ControllableVoxel) super.immutable(contents);
+    if (!contents.contains(Snapshot.Content.SENSOR_READINGS)) {
+      return immutable;
+    }
     //add sensor readings
     int nOfSensors = lastReadings.size();
     for (int i = 0; i < nOfSensors; i++) {
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import it.units.erallab.hmsrobots.core.objects.immutable.Immutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 import it.units.erallab.hmsrobots.core.objects.immutable.VoxelBody;
 import it.units.erallab.hmsrobots.core.objects.immutable.VoxelJoint;
 import it.units.erallab.hmsrobots.util.*;
@@ -29,6 +30,8 @@ import org.dyn4j.dynamics.World;
 import org.dyn4j.dynamics.joint.DistanceJoint;
 import org.dyn4j.dynamics.joint.Joint;
 import org.dyn4j.dynamics.joint.RopeJoint;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Mass;
 import org.dyn4j.geometry.MassType;
 import org.dyn4j.geometry.Rectangle;
 import org.dyn4j.geometry.Transform;
@@ -36,10 +39,12 @@ import org.dyn4j.geometry.Vector2;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @author Eric Medvet <eric.medvet@gmail.com>
@@ -47,6 +52,9 @@ import java.util.List;
 @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, property = "@class")
 public class Voxel implements LivingObject, Serializable {
 
+  @Serial
+  private static final long serialVersionUID = 8382464684479691082L;
+
   public enum SpringScaffolding {
     SIDE_EXTERNAL, SIDE_INTERNAL, SIDE_CROSS, CENTRAL_CROSS
   }
@@ -202,40 +210,69 @@ public class Voxel implements LivingObject, Serializable {
     this.massCollisionFlag = massCollisionFlag;
     this.areaRatioMaxDelta = areaRatioMaxDelta;
     this.springScaffoldings = springScaffoldings;
-    assemble();
+    assemble(null);
   }
 
   public Voxel() {
     this(SIDE_LENGTH, MASS_SIDE_LENGTH_RATIO, SPRING_F, SPRING_D, MASS_LINEAR_DAMPING, MASS_ANGULAR_DAMPING, FRICTION, RESTITUTION, MASS, LIMIT_CONTRACTION_FLAG, MASS_COLLISION_FLAG, AREA_RATIO_MAX_DELTA, SPRING_SCAFFOLDINGS);
   }
 
+  protected Voxel(Voxel template, boolean reuseGeometry) {
+    sideLength = template.sideLength;
+    massSideLengthRatio = template.massSideLengthRatio;
+    springF = template.springF;
+    springD = template.springD;
+    massLinearDamping = template.massLinearDamping;
+    massAngularDamping = template.massAngularDamping;
+    friction = template.friction;
+    restitution = template.restitution;
+    mass = template.mass;
+    limitContractionFlag = template.limitContractionFlag;
+    massCollisionFlag = template.massCollisionFlag;
+    areaRatioMaxDelta = template.areaRatioMaxDelta;
+    springScaffoldings = template.springScaffoldings;
+    assemble(reuseGeometry ? template : null);
+  }
+
+  public Voxel copy() {
+    return copy(false);
+  }
+
+  public Voxel copy(boolean reuseGeometry) {
+    return new Voxel(this, reuseGeometry);
+  }
+
   private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
     ois.defaultReadObject();
-    assemble();
+    assemble(null);
   }
 
-  private void assemble() {
+  private void assemble(Voxel template) {
     //compute densities
     double massSideLength = sideLength * massSideLengthRatio;
     double density = mass * massSideLength / massSideLength / 4;
-    //build bodies
+    //build bodies, possibly sharing the (never modified) shapes and the masses of the template
     vertexBodies = new Body[4];
     vertexBodies[0] = new Body(1); //NW
     vertexBodies[1] = new Body(1); //NE
     vertexBodies[2] = new Body(1); //SE
     vertexBodies[3] = new Body(1); //SW
-    vertexBodies[0].addFixture(new Rectangle(massSideLength, massSideLength), density, friction, restitution);
-    vertexBodies[1].addFixture(new Rectangle(massSideLength, massSideLength), density, friction, restitution);
-    vertexBodies[2].addFixture(new Rectangle(massSideLength, massSideLength), density, friction, restitution);
-    vertexBodies[3].addFixture(new Rectangle(massSideLength, massSideLength), density, friction, restitution);
+    for (int i = 0; i < vertexBodies.length; i++) {
+      Convex shape = (template != null) ? template.vertexBodies[i].getFixture(0).getShape() : new Rectangle(massSideLength, massSideLength);
+      vertexBodies[i].addFixture(shape, density, friction, restitution);
+    }
     vertexBodies[0].translate(-(sideLength / 2d - massSideLength / 2d), +(sideLength / 2d - massSideLength / 2d));
     vertexBodies[1].translate(+(sideLength / 2d - massSideLength / 2d), +(sideLength / 2d - massSideLength / 2d));
     vertexBodies[2].translate(+(sideLength / 2d - massSideLength / 2d), -(sideLength / 2d - massSideLength / 2d));
     vertexBodies[3].translate(-(sideLength / 2d - massSideLength / 2d), -(sideLength / 2d - massSideLength / 2d));
-    for (Body body : vertexBodies) {
-      body.setMass(MassType.NORMAL);
-      body.setLinearDamping(massLinearDamping);
-      body.setAngularDamping(massAngularDamping);
+    for (int i = 0; i < vertexBodies.length; i++) {
+      if (template != null) {
+        vertexBodies[i].setMass(new Mass(template.vertexBodies[i].getMass()));
+      } else {
+        vertexBodies[i].setMass(MassType.NORMAL);
+      }
+      vertexBodies[i].setLinearDamping(massLinearDamping);
+      vertexBodies[i].setAngularDamping(massAngularDamping);
     }
     //build rope joints
     List<RopeJoint> localRopeJoints = new ArrayList<>();
@@ -383,6 +420,11 @@ public class Voxel implements LivingObject, Serializable {
 
   @Override
   public Immutable immutable() {
+    return immutable(Snapshot.ALL_CONTENTS);
+  }
+
+  @Override
+  public Immutable immutable(Set<Snapshot.Content> contents) {
     //voxel shape
     Shape voxelShape = Poly.build(
         Point2.build(getIndexedVertex(0, 3)),
@@ -396,17 +438,20 @@ public class Voxel implements LivingObject, Serializable {
         areaRatioEnergy
     );
     //add parts
-    for (Body body : vertexBodies) {
-      immutable.getChildren().add(new VoxelBody(rectangleToPoly(body)));
+    if (contents.contains(Snapshot.Content.VOXEL_BODIES)) {
+      for (Body body : vertexBodies) {
+        immutable.getChildren().add(new VoxelBody(rectangleToPoly(body)));
+      }
     }
     //add joints
-    for (DistanceJoint joint : springJoints) {
-      immutable.getChildren().add(new VoxelJoint(Vector.build(
-          Point2.build(joint.getAnchor1()),
-          Point2.build(joint.getAnchor2())
-      )));
+    if (contents.contains(Snapshot.Content.VOXEL_JOINTS)) {
+      for (DistanceJoint joint : springJoints) {
+        immutable.getChildren().add(new VoxelJoint(Vector.build(
+            Point2.build(joint.getAnchor1()),
+            Point2.build(joint.getAnchor2())
+        )));
+      }
     }
-    //add enclosing
     return immutable;
   }
 
@@ -17,14 +17,22 @@
 package it.units.erallab.hmsrobots.core.objects;
 
 import it.units.erallab.hmsrobots.core.objects.immutable.Immutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 import org.dyn4j.dynamics.World;
 
+import java.util.Set;
+
 /**
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
 public interface WorldObject {
 
   Immutable immutable();
+
+  default Immutable immutable(Set<Snapshot.Content> contents) {
+    return immutable();
+  }
+
   void addTo(World world);
 
 }
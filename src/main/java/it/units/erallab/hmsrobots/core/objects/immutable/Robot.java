@@ -16,7 +16,27 @@
  */
 package it.units.erallab.hmsrobots.core.objects.immutable;
 
+import it.units.erallab.hmsrobots.util.BoundingBox;
+
 public class Robot extends Immutable {
+
+  private BoundingBox boundingBox;
+
   public Robot() {
   }
+
+  /**
+   * Returns the box enclosing all the voxels of this robot, or {@code null} if there are none. The box is computed at
+   * the first invocation and then reused: voxels must not be added to the children after that.
+   */
+  public BoundingBox getBoundingBox() {
+    if (boundingBox == null) {
+      boundingBox = children.stream()
+          .filter(c -> c instanceof Voxel)
+          .map(c -> ((Voxel) c).getShape().boundingBox())
+          .reduce(BoundingBox::largest)
+          .orElse(null);
+    }
+    return boundingBox;
+  }
 }
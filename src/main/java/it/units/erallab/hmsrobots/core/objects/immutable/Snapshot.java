@@ -16,15 +16,29 @@
  */
 package it.units.erallab.hmsrobots.core.objects.immutable;
 
+import java.io.Serial;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
 public class Snapshot implements Serializable, Comparable<Snapshot> {
 
+  @Serial
+  private static final long serialVersionUID = -2277207819186967641L;
+
+  /**
+   * Optional parts of the immutable representation of an object. The outer shape of each object is always present.
+   */
+  public enum Content {VOXEL_BODIES, VOXEL_JOINTS, SENSOR_READINGS}
+
+  public static final Set<Content> ALL_CONTENTS = Collections.unmodifiableSet(EnumSet.allOf(Content.class));
+  public static final Set<Content> NO_CONTENTS = Collections.unmodifiableSet(EnumSet.noneOf(Content.class));
+
   private final double time;
   private final Collection<Immutable> objects;
 
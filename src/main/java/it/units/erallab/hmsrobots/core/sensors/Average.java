@@ -20,15 +20,18 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 
+import java.io.Serial;
 import java.util.TreeMap;
 
 public class Average implements Sensor {
 
+  @Serial
+  private static final long serialVersionUID = 6874529186755754361L;
+
   @JsonProperty
   private final Sensor sensor;
   @JsonProperty
   private final double interval;
-  private final TreeMap<Double, double[]> readings;
 
   @JsonCreator
   public Average(
@@ -37,7 +40,6 @@ public class Average implements Sensor {
   ) {
     this.sensor = sensor;
     this.interval = interval;
-    readings = new TreeMap<>();
   }
 
   @Override
@@ -48,6 +50,7 @@ public class Average implements Sensor {
   @Override
   public double[] sense(Voxel voxel, double t) {
     double[] currentReadings = sensor.sense(voxel, t);
+    TreeMap<Double, double[]> readings = Sensor.state(this, voxel, TreeMap::new);
     readings.put(t, currentReadings);
     double t0 = readings.firstKey();
     while (t0 < (t - interval)) {
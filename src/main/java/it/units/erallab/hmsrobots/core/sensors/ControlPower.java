@@ -21,9 +21,13 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.ControllableVoxel;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 
+import java.io.Serial;
+
 public class ControlPower implements Sensor {
 
-  private double lastT;
+  @Serial
+  private static final long serialVersionUID = -3576792796246760279L;
+
   @JsonProperty
   private final double controlInterval;
   private final Domain[] domains;
@@ -46,9 +50,8 @@ public class ControlPower implements Sensor {
   @Override
   public double[] sense(Voxel voxel, double t) {
     if (voxel instanceof ControllableVoxel) {
-      return new double[]{((ControllableVoxel) voxel).getControlEnergy() / (t - lastT)};
+      return new double[]{((ControllableVoxel) voxel).getControlEnergy() / t};
     }
-    lastT = t;
     return new double[]{0d};
   }
 
@@ -20,18 +20,25 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 
+import java.io.Serial;
 import java.util.Arrays;
 
 public class Derivative implements Sensor {
 
+  @Serial
+  private static final long serialVersionUID = -4805597796841164472L;
+
   private final static double DOMAIN_MULTIPLIER = 10d;
 
+  private static class State {
+    private double lastT;
+    private double[] lastReadings;
+  }
+
   @JsonProperty
   private final Sensor sensor;
 
   private final Domain[] domains;
-  private double lastT;
-  private double[] lastReadings;
 
   @JsonCreator
   public Derivative(
@@ -54,14 +61,15 @@ public class Derivative implements Sensor {
   @Override
   public double[] sense(Voxel voxel, double t) {
     double[] currentReadings = sensor.sense(voxel, t);
+    State state = Sensor.state(this, voxel, State::new);
     double[] diffs = new double[currentReadings.length];
-    if (lastReadings != null) {
+    if (state.lastReadings != null) {
       for (int i = 0; i < diffs.length; i++) {
-        diffs[i] = (currentReadings[i] - lastReadings[i]) / (t - lastT);
+        diffs[i] = (currentReadings[i] - state.lastReadings[i]) / (t - state.lastT);
       }
     }
-    lastT = t;
-    lastReadings = currentReadings;
+    state.lastT = t;
+    state.lastReadings = currentReadings;
     return diffs;
   }
 
@@ -21,17 +21,20 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 import it.units.erallab.hmsrobots.core.sensors.immutable.SensorReading;
 
+import java.io.Serial;
 import java.util.Arrays;
 import java.util.TreeMap;
 
 public class DynamicNormalization implements Sensor, ReadingAugmenter {
 
+  @Serial
+  private static final long serialVersionUID = 5015365044886933306L;
+
   @JsonProperty
   private final Sensor sensor;
   @JsonProperty
   private final double interval;
 
-  private final TreeMap<Double, double[]> readings;
   private final Domain[] domains;
 
   @JsonCreator
@@ -42,7 +45,6 @@ public class DynamicNormalization implements Sensor, ReadingAugmenter {
     this.sensor = sensor;
     this.interval = interval;
     domains = new Domain[sensor.domains().length];
-    readings = new TreeMap<>();
     Arrays.fill(domains, Domain.of(0d, 1d));
   }
 
@@ -54,6 +56,7 @@ public class DynamicNormalization implements Sensor, ReadingAugmenter {
   @Override
   public double[] sense(Voxel voxel, double t) {
     double[] currentReadings = sensor.sense(voxel, t);
+    TreeMap<Double, double[]> readings = Sensor.state(this, voxel, TreeMap::new);
     readings.put(t, currentReadings);
     double t0 = readings.firstKey();
     while (t0 < (t - interval)) {
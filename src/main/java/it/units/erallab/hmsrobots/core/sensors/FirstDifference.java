@@ -20,15 +20,22 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 
+import java.io.Serial;
 import java.util.Arrays;
 
 public class FirstDifference implements Sensor {
 
+  @Serial
+  private static final long serialVersionUID = -6018748512976398531L;
+
+  private static class State {
+    private double[] lastReadings;
+  }
+
   @JsonProperty
   private final Sensor sensor;
 
   private final Domain[] domains;
-  private double[] lastReadings;
 
   @JsonCreator
   public FirstDifference(
@@ -51,13 +58,14 @@ public class FirstDifference implements Sensor {
   @Override
   public double[] sense(Voxel voxel, double t) {
     double[] currentReadings = sensor.sense(voxel, t);
+    State state = Sensor.state(this, voxel, State::new);
     double[] diffs = new double[currentReadings.length];
-    if (lastReadings != null) {
+    if (state.lastReadings != null) {
       for (int i = 0; i < diffs.length; i++) {
-        diffs[i] = currentReadings[i] - lastReadings[i];
+        diffs[i] = currentReadings[i] - state.lastReadings[i];
       }
     }
-    lastReadings = currentReadings;
+    state.lastReadings = currentReadings;
     return diffs;
   }
 
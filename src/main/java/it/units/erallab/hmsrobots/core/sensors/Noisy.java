@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 import it.units.erallab.hmsrobots.core.sensors.immutable.SensorReading;
 
+import java.io.Serial;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -13,27 +14,47 @@ import java.util.Random;
  */
 public class Noisy implements Sensor, ReadingAugmenter {
 
+  @Serial
+  private static final long serialVersionUID = 3635572048197731686L;
+
   @JsonProperty
   private final Sensor sensor;
   @JsonProperty
   private final double sigma;
+  @JsonProperty
+  private final long seed;
 
   private final double[] sigmas;
-  private final Random random;
 
+  /**
+   * Creates a sensor adding gaussian noise to the readings of the inner sensor. The random generator is part of the
+   * per-episode state of each voxel and is seeded with the given seed combined with the position of the voxel when it
+   * is first sensed; hence, the same definition can be shared among voxels and robots and the noise of an episode does
+   * not depend on the other episodes run with the same definition.
+   */
   @JsonCreator
   public Noisy(
       @JsonProperty("sensor") Sensor sensor,
-      @JsonProperty("sigma") double sigma
+      @JsonProperty("sigma") double sigma,
+      @JsonProperty("seed") long seed
   ) {
     this.sensor = sensor;
     this.sigma = sigma;
-    random = new Random();
+    this.seed = seed;
     sigmas = Arrays.stream(sensor.domains())
         .mapToDouble(d -> Math.abs(d.getMax() - d.getMin()) * sigma)
         .toArray();
   }
 
+  /**
+   * Creates a sensor adding gaussian noise, as {@link #Noisy(Sensor, double, long)}, with a randomly drawn seed: hence,
+   * each robot sensorized with a new instance gets different noise. The seed is serialized, so a copy or a deserialized
+   * instance gets the same noise.
+   */
+  public Noisy(Sensor sensor, double sigma) {
+    this(sensor, sigma, new Random().nextLong());
+  }
+
   @Override
   public Domain[] domains() {
     return sensor.domains();
@@ -42,6 +63,10 @@ public class Noisy implements Sensor, ReadingAugmenter {
   @Override
   public double[] sense(Voxel voxel, double t) {
     double[] values = sensor.sense(voxel, t);
+    Random random = Sensor.state(this, voxel, () -> new Random(seed
+        ^ Double.doubleToLongBits(voxel.getCenter().x) * 31L
+        ^ Double.doubleToLongBits(voxel.getCenter().y)
+    ));
     for (int i = 0; i < values.length; i++) {
       values[i] = values[i] + random.nextGaussian() * sigmas[i];
     }
@@ -53,6 +78,7 @@ public class Noisy implements Sensor, ReadingAugmenter {
     return "Noisy{" +
         "sensor=" + sensor +
         ", sigma=" + sigma +
+        ", seed=" + seed +
         '}';
   }
 
@@ -17,10 +17,17 @@
 package it.units.erallab.hmsrobots.core.sensors;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import it.units.erallab.hmsrobots.core.objects.SensingVoxel;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
 
 import java.io.Serializable;
+import java.util.function.Supplier;
 
+/**
+ * A sensor is an immutable definition that can be shared among voxels and robots. Sensors that need some history keep
+ * it in a per-episode state object owned by the {@link SensingVoxel} they sense, obtained with
+ * {@link #state(Sensor, Voxel, Supplier)}.
+ */
 @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, property = "@class")
 public interface Sensor extends Serializable {
 
@@ -49,4 +56,19 @@ public interface Sensor extends Serializable {
   Domain[] domains();
 
   double[] sense(Voxel voxel, double t);
+
+  default Sensor copy() {
+    return this;
+  }
+
+  static <S> S state(Sensor sensor, Voxel voxel, Supplier<S> stateSupplier) {
+    if (!(voxel instanceof SensingVoxel)) {
+      throw new IllegalArgumentException(String.format(
+          "Cannot keep the state of %s in a %s",
+          sensor.getClass().getSimpleName(),
+          voxel.getClass().getSimpleName()
+      ));
+    }
+    return ((SensingVoxel) voxel).getSensorState(sensor, stateSupplier);
+  }
 }
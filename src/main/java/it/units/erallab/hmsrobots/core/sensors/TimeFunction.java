@@ -19,6 +19,7 @@ package it.units.erallab.hmsrobots.core.sensors;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.units.erallab.hmsrobots.core.objects.Voxel;
+import it.units.erallab.hmsrobots.util.Expression;
 import it.units.erallab.hmsrobots.util.SerializableFunction;
 
 public class TimeFunction implements Sensor {
@@ -50,7 +51,7 @@ public class TimeFunction implements Sensor {
 
   @Override
   public double[] sense(Voxel voxel, double t) {
-    return new double[]{function.apply(t)};
+    return new double[]{function instanceof Expression ? ((Expression) function).applyAsDouble(t) : function.apply(t)};
   }
 
   @Override
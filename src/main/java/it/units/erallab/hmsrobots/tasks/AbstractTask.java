@@ -24,6 +24,7 @@ import org.dyn4j.dynamics.Settings;
 import org.dyn4j.dynamics.World;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -45,9 +46,12 @@ public abstract class AbstractTask<T, R> implements Task<T, R> {
     double newT = t + dT;
     world.step(1);
     objects.stream().filter(o -> o instanceof LivingObject).forEach(o -> ((LivingObject) o).act(newT));
-    //possibly output snapshot
-    if (listener != null) {
-      Snapshot snapshot = new Snapshot(newT, objects.stream().map(WorldObject::immutable).collect(Collectors.toList()));
+    //possibly output snapshot, only if actually needed
+    if (listener != null && listener.isNeeded(newT)) {
+      Set<Snapshot.Content> contents = listener.requiredContents();
+      Snapshot snapshot = new Snapshot(newT, objects.stream()
+          .map(o -> o.immutable(contents))
+          .collect(Collectors.toList()));
       listener.listen(snapshot);
     }
     return newT;
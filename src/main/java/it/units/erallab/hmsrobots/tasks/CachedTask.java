@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks;
+
+import it.units.erallab.hmsrobots.util.Fingerprint;
+import it.units.erallab.hmsrobots.viewers.SnapshotListener;
+
+import java.util.function.Function;
+
+/**
+ * A {@link Task} which evaluates each solution with an inner task only if no equivalent solution, i.e., one with the
+ * same fingerprint, has already been evaluated on a task with the same configuration. Evaluations with a
+ * {@link SnapshotListener} are never cached, since they are done for the snapshots rather than for the result.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class CachedTask<S, R> implements Task<S, R> {
+
+  private final Task<S, R> task;
+  private final Fingerprint taskFingerprint;
+  private final Function<? super S, Fingerprint> solutionFingerprinter;
+  private final EvaluationCache<R> cache;
+
+  public CachedTask(Task<S, R> task, Fingerprint taskFingerprint, Function<? super S, Fingerprint> solutionFingerprinter, EvaluationCache<R> cache) {
+    this.task = task;
+    this.taskFingerprint = taskFingerprint;
+    this.solutionFingerprinter = solutionFingerprinter;
+    this.cache = cache;
+  }
+
+  @Override
+  public R apply(S solution, SnapshotListener listener) {
+    if (listener != null) {
+      return task.apply(solution, listener);
+    }
+    Fingerprint key = taskFingerprint.and(solutionFingerprinter.apply(solution));
+    return cache.get(key, () -> task.apply(solution, null));
+  }
+
+  public EvaluationCache<R> getCache() {
+    return cache;
+  }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs episodes ({@link Task#apply(Object)} calls) with structured cancellation. Each episode is orchestrated by its own
+ * (virtual, when available) thread, which only waits, while the actual simulation runs on a carrier pool whose size
+ * caps the CPU usage. Episodes are forked inside a {@link Scope}: closing the scope cancels the episodes that are still
+ * running and waits for all of them, so that no episode outlives the scope.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class EpisodeExecutor implements AutoCloseable {
+
+  public enum State {RUNNING, COMPLETED, FAILED, TIMED_OUT, CANCELLED}
+
+  public static class Episode<S, R> {
+    private final S solution;
+    private volatile State state;
+    private volatile R result;
+    private volatile Throwable cause;
+    private volatile double elapsedSeconds;
+
+    private Episode(S solution) {
+      this.solution = solution;
+      state = State.RUNNING;
+    }
+
+    public S getSolution() {
+      return solution;
+    }
+
+    public State getState() {
+      return state;
+    }
+
+    public R getResult() {
+      return result;
+    }
+
+    public Throwable getCause() {
+      return cause;
+    }
+
+    public double getElapsedSeconds() {
+      return elapsedSeconds;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Episode{state=%s, elapsed=%.3fs, result=%s}", state, elapsedSeconds, result);
+    }
+  }
+
+  public class Scope<S, R> implements AutoCloseable {
+    private final Task<S, R> task;
+    private final boolean cancelOnFailure;
+    private final List<Episode<S, R>> episodes;
+    private final List<InterruptibleCall<R>> calls;
+    private final List<Future<?>> orchestrations;
+    private final Queue<Episode<S, R>> completed;
+    private int pending;
+    private boolean cancelled;
+
+    private Scope(Task<S, R> task, boolean cancelOnFailure) {
+      this.task = task;
+      this.cancelOnFailure = cancelOnFailure;
+      episodes = new ArrayList<>();
+      calls = new ArrayList<>();
+      orchestrations = new ArrayList<>();
+      completed = new LinkedList<>();
+    }
+
+    public synchronized Episode<S, R> fork(S solution, double deadline) {
+      if (cancelled) {
+        throw new IllegalStateException("Cannot fork in a cancelled scope");
+      }
+      Episode<S, R> episode = new Episode<>(solution);
+      long deadlineNanos = Double.isInfinite(deadline) ? Long.MAX_VALUE : Math.round(deadline * 1000000000d);
+      InterruptibleCall<R> call = new InterruptibleCall<>(() -> task.apply(solution), deadlineNanos);
+      //submit first, so that nothing is waited for if the submission is rejected (e.g., after closing the executor);
+      //the orchestration cannot complete before the bookkeeping, since it needs the lock of this scope
+      Future<?> orchestration = orchestrator.submit(() -> orchestrate(episode, call));
+      episodes.add(episode);
+      calls.add(call);
+      pending = pending + 1;
+      orchestrations.add(orchestration);
+      return episode;
+    }
+
+    public Episode<S, R> fork(S solution) {
+      return fork(solution, Double.POSITIVE_INFINITY);
+    }
+
+    private void orchestrate(Episode<S, R> episode, InterruptibleCall<R> call) {
+      long startNanos = System.nanoTime();
+      try {
+        call.submitTo(carriers);
+        episode.result = call.await();
+        episode.state = State.COMPLETED;
+      } catch (TimeoutException e) {
+        episode.state = State.TIMED_OUT;
+        episode.cause = e;
+      } catch (InterruptedException | CancellationException e) {
+        call.cancel();
+        episode.state = State.CANCELLED;
+        episode.cause = e;
+      } catch (ExecutionException e) {
+        episode.state = State.FAILED;
+        episode.cause = e.getCause();
+        L.log(Level.WARNING, String.format("Episode failed due to %s", e.getCause()), e.getCause());
+      } catch (RejectedExecutionException e) {
+        episode.state = State.CANCELLED;
+        episode.cause = e;
+      }
+      episode.elapsedSeconds = (double) (System.nanoTime() - startNanos) / 1000000000d;
+      if (episode.state.equals(State.FAILED) && cancelOnFailure) {
+        cancel();
+      }
+      synchronized (this) {
+        completed.add(episode);
+        pending = pending - 1;
+        notifyAll();
+      }
+    }
+
+    public synchronized Episode<S, R> take() throws InterruptedException {
+      while (completed.isEmpty() && pending > 0) {
+        wait();
+      }
+      return completed.poll();
+    }
+
+    public List<Episode<S, R>> join() throws InterruptedException {
+      synchronized (this) {
+        while (pending > 0) {
+          wait();
+        }
+        return new ArrayList<>(episodes);
+      }
+    }
+
+    public List<Episode<S, R>> joinUntil(long deadlineMillis) throws InterruptedException {
+      synchronized (this) {
+        long remaining;
+        while (pending > 0 && (remaining = deadlineMillis - System.currentTimeMillis()) > 0) {
+          wait(remaining);
+        }
+      }
+      cancel();
+      return join();
+    }
+
+    public void cancel() {
+      List<InterruptibleCall<R>> localCalls;
+      synchronized (this) {
+        cancelled = true;
+        localCalls = new ArrayList<>(calls);
+      }
+      localCalls.forEach(InterruptibleCall::cancel);
+    }
+
+    /**
+     * Cancels the running episodes and waits for all of them; if interrupted while waiting, keeps waiting (episodes are
+     * already cancelled, hence they end shortly) and then restores the interruption flag.
+     */
+    @Override
+    public void close() {
+      cancel();
+      List<Future<?>> localOrchestrations;
+      synchronized (this) {
+        localOrchestrations = new ArrayList<>(orchestrations);
+      }
+      boolean interrupted = false;
+      for (Future<?> orchestration : localOrchestrations) {
+        while (true) {
+          try {
+            orchestration.get();
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          } catch (ExecutionException | CancellationException e) {
+            L.log(Level.SEVERE, String.format("Cannot orchestrate episode due to %s", e), e);
+            break;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private final ExecutorService orchestrator;
+  private final ExecutorService carriers;
+
+  private static final int ORCHESTRATORS_PER_CARRIER = 2;
+
+  private static final Logger L = Logger.getLogger(EpisodeExecutor.class.getName());
+
+  public EpisodeExecutor() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates an executor with the given number of carrier threads. When virtual threads are not available, episodes are
+   * orchestrated by a pool of {@code ORCHESTRATORS_PER_CARRIER} platform threads per carrier, each blocked while its
+   * episode runs: further episodes wait in the queue of that pool, which is harmless since the carriers are busy anyway.
+   */
+  public EpisodeExecutor(int nOfCarriers) {
+    orchestrator = PopulationEvaluator.virtualThreadExecutor(() -> Executors.newFixedThreadPool(
+        nOfCarriers * ORCHESTRATORS_PER_CARRIER,
+        r -> {
+          Thread thread = new Thread(r);
+          thread.setDaemon(true);
+          return thread;
+        }
+    ));
+    carriers = new ForkJoinPool(nOfCarriers);
+  }
+
+  public <S, R> Scope<S, R> open(Task<S, R> task, boolean cancelOnFailure) {
+    return new Scope<>(task, cancelOnFailure);
+  }
+
+  public <S, R> Scope<S, R> open(Task<S, R> task) {
+    return open(task, false);
+  }
+
+  @Override
+  public void close() {
+    //queued orchestrations are never run: cancel them, so that scopes waiting for them do not hang
+    orchestrator.shutdownNow().stream()
+        .filter(r -> r instanceof Future)
+        .forEach(r -> ((Future<?>) r).cancel(false));
+    carriers.shutdownNow();
+  }
+
+}
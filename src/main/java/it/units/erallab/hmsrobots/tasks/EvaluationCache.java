@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks;
+
+import it.units.erallab.hmsrobots.util.Fingerprint;
+import it.units.erallab.hmsrobots.util.SerializationUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A cache of evaluation results keyed on {@link Fingerprint}s, with a bounded LRU in-memory storage and an optional
+ * persistent {@link Store}. Concurrent requests for the same key result in a single evaluation, whose result is shared
+ * with all the requesters. {@code null} results, which denote failed evaluations, are returned but not cached.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class EvaluationCache<R> {
+
+  public interface Store<R> {
+    /**
+     * Returns the stored result for the key, or {@code null} if there is none.
+     */
+    R load(Fingerprint key) throws IOException;
+
+    void store(Fingerprint key, R result) throws IOException;
+  }
+
+  /**
+   * A store keeping each result in a file, named after the key, in a directory. Files are written to a temporary file
+   * and then atomically moved, hence the directory can be shared by many processes.
+   */
+  public static class DirectoryStore<R> implements Store<R> {
+    private final Path directory;
+    private final Class<R> resultClass;
+    private final SerializationUtils.Mode mode;
+
+    public DirectoryStore(File directory, Class<R> resultClass, SerializationUtils.Mode mode) throws IOException {
+      this.directory = Files.createDirectories(directory.toPath());
+      this.resultClass = resultClass;
+      this.mode = mode;
+    }
+
+    @Override
+    public R load(Fingerprint key) throws IOException {
+      try (InputStream inputStream = Files.newInputStream(directory.resolve(key.toString()))) {
+        return SerializationUtils.deserialize(inputStream, resultClass, mode);
+      } catch (NoSuchFileException e) {
+        return null;
+      }
+    }
+
+    @Override
+    public void store(Fingerprint key, R result) throws IOException {
+      Path temp = Files.createTempFile(directory, key.toString(), ".tmp");
+      try {
+        try (OutputStream outputStream = Files.newOutputStream(temp)) {
+          SerializationUtils.serialize(result, mode, outputStream);
+        }
+        Files.move(temp, directory.resolve(key.toString()), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  private final Map<Fingerprint, R> results;
+  private final Map<Fingerprint, CompletableFuture<R>> pending;
+  private final Store<R> store;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong storeHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private static final Logger L = Logger.getLogger(EvaluationCache.class.getName());
+
+  public EvaluationCache(int capacity, Store<R> store) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException(String.format("Capacity must be non-negative: %d found", capacity));
+    }
+    results = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Fingerprint, R> eldest) {
+        return size() > capacity;
+      }
+    };
+    pending = new HashMap<>();
+    this.store = store;
+  }
+
+  public EvaluationCache(int capacity) {
+    this(capacity, null);
+  }
+
+  /**
+   * Returns the result for the key, obtained, in order, from memory, from an evaluation of the same key which is
+   * already in progress, from the store, or, finally, from the given evaluation.
+   */
+  public R get(Fingerprint key, Supplier<? extends R> evaluation) {
+    CompletableFuture<R> future;
+    synchronized (this) {
+      R result = results.get(key);
+      if (result != null) {
+        hits.incrementAndGet();
+        return result;
+      }
+      future = pending.get(key);
+      if (future == null) {
+        pending.put(key, new CompletableFuture<>());
+      }
+    }
+    if (future != null) {
+      hits.incrementAndGet();
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      }
+    }
+    return compute(key, evaluation);
+  }
+
+  private R compute(Fingerprint key, Supplier<? extends R> evaluation) {
+    R result = null;
+    Throwable throwable = null;
+    try {
+      result = load(key);
+      if (result != null) {
+        storeHits.incrementAndGet();
+      } else {
+        misses.incrementAndGet();
+        result = evaluation.get();
+        if (result != null) {
+          save(key, result);
+        }
+      }
+      return result;
+    } catch (RuntimeException | Error e) {
+      throwable = e;
+      throw e;
+    } finally {
+      CompletableFuture<R> future;
+      synchronized (this) {
+        if (throwable == null && result != null) {
+          results.put(key, result);
+        }
+        future = pending.remove(key);
+      }
+      if (throwable != null) {
+        future.completeExceptionally(throwable);
+      } else {
+        future.complete(result);
+      }
+    }
+  }
+
+  private R load(Fingerprint key) {
+    if (store == null) {
+      return null;
+    }
+    try {
+      return store.load(key);
+    } catch (IOException e) {
+      L.log(Level.WARNING, String.format("Cannot load result %s due to %s", key, e), e);
+      return null;
+    }
+  }
+
+  private void save(Fingerprint key, R result) {
+    if (store == null) {
+      return;
+    }
+    try {
+      store.store(key, result);
+    } catch (IOException e) {
+      L.log(Level.WARNING, String.format("Cannot store result %s due to %s", key, e), e);
+    }
+  }
+
+  public synchronized int size() {
+    return results.size();
+  }
+
+  public synchronized void clear() {
+    results.clear();
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getStoreHitCount() {
+    return storeHits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+}
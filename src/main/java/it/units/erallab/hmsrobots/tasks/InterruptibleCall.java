@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks;
+
+import java.util.concurrent.*;
+
+/**
+ * A call whose running thread is interrupted on cancellation, also on executors (e.g., fork-join pools) that ignore
+ * {@code mayInterruptIfRunning}. The interruption never leaks to the next call run by the same pool thread. If a timeout
+ * is given, the call is cancelled when the timeout elapses after it actually started running, independently of when
+ * (and if) someone waits for it. If permits are given, the call waits for one before starting, hence before its
+ * timeout starts.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+class InterruptibleCall<R> implements Callable<R> {
+
+  private static final ScheduledExecutorService DEADLINES;
+
+  static {
+    ScheduledThreadPoolExecutor deadlines = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, "interruptible-call-deadlines");
+      thread.setDaemon(true);
+      return thread;
+    });
+    deadlines.setRemoveOnCancelPolicy(true);
+    DEADLINES = deadlines;
+  }
+
+  private final Callable<R> callable;
+  private final long timeoutNanos;
+  private final Semaphore permits;
+  private Thread runner;
+  private Future<R> future;
+  private ScheduledFuture<?> deadline;
+  private boolean cancelled;
+  private boolean timedOut;
+
+  InterruptibleCall(Callable<R> callable, long timeoutNanos, Semaphore permits) {
+    this.callable = callable;
+    this.timeoutNanos = timeoutNanos;
+    this.permits = permits;
+  }
+
+  InterruptibleCall(Callable<R> callable, long timeoutNanos) {
+    this(callable, timeoutNanos, null);
+  }
+
+  InterruptibleCall(Callable<R> callable) {
+    this(callable, Long.MAX_VALUE);
+  }
+
+  synchronized Future<R> submitTo(ExecutorService executor) {
+    if (cancelled) {
+      throw new CancellationException("Call cancelled before being submitted");
+    }
+    future = executor.submit(this);
+    return future;
+  }
+
+  @Override
+  public R call() throws Exception {
+    if (permits != null) {
+      permits.acquire();
+    }
+    try {
+      synchronized (this) {
+        if (cancelled) {
+          throw new CancellationException("Call cancelled before being run");
+        }
+        runner = Thread.currentThread();
+        if (timeoutNanos != Long.MAX_VALUE) {
+          deadline = DEADLINES.schedule(this::expire, timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+      }
+      try {
+        return callable.call();
+      } finally {
+        synchronized (this) {
+          runner = null;
+          if (deadline != null) {
+            deadline.cancel(false);
+          }
+          //clear a possible interruption, since the thread (of a pool) can be reused
+          Thread.interrupted();
+        }
+      }
+    } finally {
+      if (permits != null) {
+        permits.release();
+      }
+    }
+  }
+
+  private void expire() {
+    synchronized (this) {
+      if (runner == null) {
+        return;
+      }
+      timedOut = true;
+    }
+    cancel();
+  }
+
+  synchronized void cancel() {
+    cancelled = true;
+    if (future != null) {
+      future.cancel(true);
+    }
+    if (runner != null) {
+      runner.interrupt();
+    }
+  }
+
+  synchronized boolean isTimedOut() {
+    return timedOut;
+  }
+
+  R await() throws InterruptedException, ExecutionException, TimeoutException {
+    try {
+      return future.get();
+    } catch (CancellationException | ExecutionException e) {
+      if (isTimedOut()) {
+        throw new TimeoutException(String.format("Call not completed within %.3fs", (double) timeoutNanos / 1000000000d));
+      }
+      throw e;
+    }
+  }
+
+}
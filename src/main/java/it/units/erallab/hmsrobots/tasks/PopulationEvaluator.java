@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToLongBiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Evaluates many solutions against a {@link Task} in parallel, without any {@link it.units.erallab.hmsrobots.viewers.SnapshotListener}.
+ * At most {@code nOfThreads} evaluations run at the same time, also on executors with a thread per evaluation (e.g.,
+ * virtual threads); each evaluation borrows a task instance from a pool of at most {@code nOfThreads} instances, obtained
+ * from the supplier when needed and reused for the following evaluations.
+ * Results are returned in the order of the solutions; a solution whose evaluation fails or exceeds the timeout results
+ * in a {@code null}. The timeout of each evaluation starts when the evaluation starts and is enforced independently of
+ * the order in which results are collected.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class PopulationEvaluator<S, R> implements AutoCloseable {
+
+  public enum ExecutorType {WORK_STEALING, VIRTUAL_THREADS}
+
+  private final ExecutorService executor;
+  private final ToLongBiFunction<? super S, ? super R> voxelStepsFunction;
+  private final long timeoutNanos;
+  private final Supplier<? extends Task<S, R>> taskSupplier;
+  private final BlockingQueue<Task<S, R>> tasks;
+  private final Semaphore permits;
+
+  private final AtomicLong evaluated = new AtomicLong();
+  private final AtomicLong timedOut = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong voxelSteps = new AtomicLong();
+  private final AtomicLong elapsedNanos = new AtomicLong();
+
+  private static final Logger L = Logger.getLogger(PopulationEvaluator.class.getName());
+
+  public PopulationEvaluator(ExecutorType executorType, int nOfThreads, Supplier<? extends Task<S, R>> taskSupplier, ToLongBiFunction<? super S, ? super R> voxelStepsFunction, double timeout) {
+    this(
+        executorType.equals(ExecutorType.VIRTUAL_THREADS) ? virtualThreadExecutor() : Executors.newWorkStealingPool(nOfThreads),
+        nOfThreads,
+        taskSupplier,
+        voxelStepsFunction,
+        timeout
+    );
+  }
+
+  public PopulationEvaluator(ExecutorService executor, int nOfThreads, Supplier<? extends Task<S, R>> taskSupplier, ToLongBiFunction<? super S, ? super R> voxelStepsFunction, double timeout) {
+    if (nOfThreads < 1) {
+      throw new IllegalArgumentException(String.format("Number of threads must be at least 1: %d found", nOfThreads));
+    }
+    this.executor = executor;
+    this.taskSupplier = taskSupplier;
+    this.voxelStepsFunction = voxelStepsFunction;
+    this.timeoutNanos = Double.isInfinite(timeout) ? Long.MAX_VALUE : Math.round(timeout * 1000000000d);
+    tasks = new ArrayBlockingQueue<>(nOfThreads);
+    permits = new Semaphore(nOfThreads);
+  }
+
+  public static ExecutorService virtualThreadExecutor() {
+    return virtualThreadExecutor(Executors::newWorkStealingPool);
+  }
+
+  public static ExecutorService virtualThreadExecutor(Supplier<ExecutorService> fallback) {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+      L.fine(String.format("Virtual threads are not available on this runtime: using a fallback executor (%s)", e));
+      return fallback.get();
+    }
+  }
+
+  public List<R> evaluate(List<? extends S> solutions) throws InterruptedException {
+    long startNanos = System.nanoTime();
+    List<InterruptibleCall<R>> calls = new ArrayList<>(solutions.size());
+    for (S solution : solutions) {
+      InterruptibleCall<R> call = new InterruptibleCall<>(() -> {
+        Task<S, R> task = borrowTask();
+        try {
+          R outcome = task.apply(solution);
+          voxelSteps.addAndGet(voxelStepsFunction.applyAsLong(solution, outcome));
+          return outcome;
+        } finally {
+          tasks.offer(task);
+        }
+      }, timeoutNanos, permits);
+      call.submitTo(executor);
+      calls.add(call);
+    }
+    List<R> outcomes = new ArrayList<>(solutions.size());
+    try {
+      for (InterruptibleCall<R> call : calls) {
+        outcomes.add(collect(call));
+      }
+    } finally {
+      calls.forEach(InterruptibleCall::cancel);
+      elapsedNanos.addAndGet(System.nanoTime() - startNanos);
+    }
+    return outcomes;
+  }
+
+  private Task<S, R> borrowTask() {
+    //with at most nOfThreads concurrent evaluations, no more than nOfThreads instances are ever created
+    Task<S, R> task = tasks.poll();
+    return task != null ? task : taskSupplier.get();
+  }
+
+  private R collect(InterruptibleCall<R> call) throws InterruptedException {
+    try {
+      R outcome = call.await();
+      evaluated.incrementAndGet();
+      return outcome;
+    } catch (TimeoutException e) {
+      timedOut.incrementAndGet();
+      L.warning(String.format("Evaluation timed out: %s", e.getMessage()));
+    } catch (ExecutionException | CancellationException e) {
+      failed.incrementAndGet();
+      L.log(Level.SEVERE, String.format("Cannot evaluate solution due to %s", e), e);
+    }
+    return null;
+  }
+
+  public long getEvaluatedCount() {
+    return evaluated.get();
+  }
+
+  public long getTimedOutCount() {
+    return timedOut.get();
+  }
+
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  public long getVoxelSteps() {
+    return voxelSteps.get();
+  }
+
+  public double getVoxelStepsPerSecond() {
+    long nanos = elapsedNanos.get();
+    return nanos == 0 ? 0d : (double) voxelSteps.get() / ((double) nanos / 1000000000d);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+}
@@ -28,4 +28,12 @@ public interface Task<S, R> extends Function<S, R> {
     return apply(solution, null);
   }
 
+  /**
+   * Returns a task which maps the result of this task, e.g., to a fitness value which can be cached.
+   */
+  @Override
+  default <V> Task<S, V> andThen(Function<? super R, ? extends V> after) {
+    return (solution, listener) -> after.apply(apply(solution, listener));
+  }
+
 }
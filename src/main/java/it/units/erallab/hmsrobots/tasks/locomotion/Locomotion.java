@@ -20,10 +20,12 @@ import it.units.erallab.hmsrobots.core.objects.ControllableVoxel;
 import it.units.erallab.hmsrobots.core.objects.Ground;
 import it.units.erallab.hmsrobots.core.objects.Robot;
 import it.units.erallab.hmsrobots.core.objects.WorldObject;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 import it.units.erallab.hmsrobots.core.objects.immutable.Voxel;
 import it.units.erallab.hmsrobots.tasks.AbstractTask;
+import it.units.erallab.hmsrobots.util.BooleanGrid;
 import it.units.erallab.hmsrobots.util.BoundingBox;
-import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.Fingerprint;
 import it.units.erallab.hmsrobots.util.Point2;
 import it.units.erallab.hmsrobots.util.Utils;
 import it.units.erallab.hmsrobots.viewers.SnapshotListener;
@@ -35,6 +37,7 @@ import org.dyn4j.geometry.AABB;
 import org.dyn4j.geometry.Vector2;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -64,35 +67,90 @@ public class Locomotion extends AbstractTask<Robot<?>, Outcome> {
     this.initialPlacement = initialPlacement;
   }
 
+  /**
+   * Returns the fingerprint of the configuration of this task, to be composed with the fingerprint of the robot for
+   * caching the outcomes of evaluations.
+   */
+  public Fingerprint getFingerprint() {
+    String[] strings = new String[groundProfile.length + 2];
+    strings[0] = String.format("%s;finalT=%s;initialPlacement=%s", getClass().getName(), finalT, initialPlacement);
+    strings[1] = settingsString(settings);
+    for (int i = 0; i < groundProfile.length; i++) {
+      strings[i + 2] = Arrays.toString(groundProfile[i]);
+    }
+    return Fingerprint.of(strings);
+  }
+
+  //values of the settings in a fixed order, not depending on how dyn4j formats them
+  private static String settingsString(Settings settings) {
+    return Arrays.toString(new Object[]{
+        settings.getStepFrequency(),
+        settings.getMaximumTranslation(),
+        settings.getMaximumRotation(),
+        settings.isAutoSleepingEnabled(),
+        settings.getSleepLinearVelocity(),
+        settings.getSleepAngularVelocity(),
+        settings.getSleepTime(),
+        settings.getVelocityConstraintSolverIterations(),
+        settings.getPositionConstraintSolverIterations(),
+        settings.getWarmStartDistance(),
+        settings.getRestitutionVelocity(),
+        settings.getLinearTolerance(),
+        settings.getAngularTolerance(),
+        settings.getMaximumLinearCorrection(),
+        settings.getMaximumAngularCorrection(),
+        settings.getBaumgarte(),
+        settings.getContinuousDetectionMode().name()
+    });
+  }
+
   @Override
   public Outcome apply(Robot<?> robot, SnapshotListener listener) {
-    StopWatch stopWatch = StopWatch.createStarted();
-    //init world
-    World world = new World();
-    world.setSettings(settings);
-    List<WorldObject> worldObjects = new ArrayList<>();
-    Ground ground = new Ground(groundProfile[0], groundProfile[1]);
-    ground.addTo(world);
-    worldObjects.add(ground);
-    robot.reset();
-    //position robot: translate on x
-    BoundingBox boundingBox = robot.boundingBox();
-    robot.translate(new Vector2(initialPlacement - boundingBox.min.x, 0));
-    //translate on y
-    double minYGap = robot.getVoxels().values().stream()
-        .filter(Objects::nonNull)
-        .mapToDouble(v -> ((Voxel) v.immutable()).getShape().boundingBox().min.y - ground.yAt(v.getCenter().x))
-        .min().orElse(0d);
-    robot.translate(new Vector2(0, INITIAL_PLACEMENT_Y_GAP - minYGap));
-    //get initial x
-    double initCenterX = robot.getCenter().x;
-    //add robot to world
-    robot.addTo(world);
-    worldObjects.add(robot);
-    //run
-    List<Outcome.Observation> observations = new ArrayList<>((int) Math.ceil(finalT / settings.getStepFrequency()));
-    double t = 0d;
-    while (t < finalT) {
+    Episode episode = new Episode(robot);
+    while (episode.t < finalT) {
+      checkInterrupted(episode.t);
+      episode.step(listener);
+    }
+    return episode.outcome();
+  }
+
+  private static void checkInterrupted(double t) {
+    if (Thread.currentThread().isInterrupted()) {
+      //do not return a truncated outcome as if it were valid; the interruption flag is left set
+      throw new CancellationException(String.format("Episode interrupted at t=%.2fs", t));
+    }
+  }
+
+  private class Episode {
+    private final StopWatch stopWatch;
+    private final Robot<?> robot;
+    private final World world;
+    private final Ground ground;
+    private final List<WorldObject> worldObjects;
+    private final List<Outcome.Observation> observations;
+    private double t;
+
+    private Episode(Robot<?> robot) {
+      stopWatch = StopWatch.createStarted();
+      this.robot = robot;
+      //init world
+      world = new World();
+      world.setSettings(settings);
+      worldObjects = new ArrayList<>();
+      ground = new Ground(groundProfile[0], groundProfile[1]);
+      ground.addTo(world);
+      worldObjects.add(ground);
+      robot.reset();
+      //position robot
+      robot.translate(placement(robot, ground));
+      //add robot to world
+      robot.addTo(world);
+      worldObjects.add(robot);
+      observations = new ArrayList<>((int) Math.ceil(finalT / settings.getStepFrequency()));
+      t = 0d;
+    }
+
+    private void step(SnapshotListener listener) {
       t = AbstractTask.updateWorld(t, settings.getStepFrequency(), world, worldObjects, listener);
       observations.add(new Outcome.Observation(
           t,
@@ -111,12 +169,30 @@ public class Locomotion extends AbstractTask<Robot<?>, Outcome> {
           (double) stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d
       ));
     }
-    stopWatch.stop();
-    //prepare outcome
-    return new Outcome(observations);
+
+    private Outcome outcome() {
+      stopWatch.stop();
+      return new Outcome(observations);
+    }
+  }
+
+  private Vector2 placement(Robot<?> robot, Ground ground) {
+    //translate on x
+    BoundingBox boundingBox = robot.boundingBox();
+    Vector2 placement = new Vector2(initialPlacement - boundingBox.min.x, 0);
+    //translate on y
+    double minYGap = robot.getVoxels().values().stream()
+        .filter(Objects::nonNull)
+        .mapToDouble(v -> ((Voxel) v.immutable(Snapshot.NO_CONTENTS)).getShape().boundingBox().min.y - ground.yAt(v.getCenter().x + placement.x))
+        .min().orElse(0d);
+    return placement.add(0, INITIAL_PLACEMENT_Y_GAP - minYGap);
   }
 
-  private static Grid<Boolean> mask(Robot<?> robot, int n) {
+  public static long voxelSteps(Robot<?> robot, Outcome outcome) {
+    return outcome == null ? 0 : robot.getVoxels().count(Objects::nonNull) * (long) outcome.getObservations().size();
+  }
+
+  private static BooleanGrid mask(Robot<?> robot, int n) {
     List<BoundingBox> boxes = robot.getVoxels().values().stream()
         .filter(Objects::nonNull)
         .map(it.units.erallab.hmsrobots.core.objects.Voxel::boundingBox)
@@ -135,17 +211,13 @@ public class Locomotion extends AbstractTask<Robot<?>, Outcome> {
       robotMaxX = robotMaxX + d / 2;
       robotMinX = robotMinX - d / 2;
     }
-    Grid<Boolean> mask = Grid.create(n, n, false);
+    BooleanGrid mask = new BooleanGrid(n, n);
     for (BoundingBox b : boxes) {
       int minXIndex = (int) Math.round((b.min.x - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
       int maxXIndex = (int) Math.round((b.max.x - robotMinX) / (robotMaxX - robotMinX) * (double) (n - 1));
       int minYIndex = (int) Math.round((b.min.y - robotMinY) / (robotMaxY - robotMinY) * (double) (n - 1));
       int maxYIndex = (int) Math.round((b.max.y - robotMinY) / (robotMaxY - robotMinY) * (double) (n - 1));
-      for (int x = minXIndex; x <= maxXIndex; x++) {
-        for (int y = minYIndex; y <= maxYIndex; y++) {
-          mask.set(x, y, true);
-        }
-      }
+      mask.fill(minXIndex, minYIndex, maxXIndex, maxYIndex, true);
     }
     return mask;
   }
@@ -18,7 +18,9 @@
 package it.units.erallab.hmsrobots.tasks.locomotion;
 
 import com.google.common.collect.Range;
+import it.units.erallab.hmsrobots.util.BooleanGrid;
 import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.IntGrid;
 import it.units.erallab.hmsrobots.util.Point2;
 import org.apache.commons.math3.complex.Complex;
 import org.apache.commons.math3.transform.DftNormalization;
@@ -43,12 +45,17 @@ public class Outcome {
     private final Point2 centerPosition;
     private final double terrainHeight;
     private final Footprint footprint;
-    private final Grid<Boolean> posture;
+    private final BooleanGrid posture;
     private final double controlEnergy;
     private final double areaRatioEnergy;
     private final double computationTime;
+    private volatile Grid<Boolean> gridPosture;
 
     public Observation(double time, Point2 centerPosition, double terrainHeight, Footprint footprint, Grid<Boolean> posture, double controlEnergy, double areaRatioEnergy, double computationTime) {
+      this(time, centerPosition, terrainHeight, footprint, BooleanGrid.from(posture), controlEnergy, areaRatioEnergy, computationTime);
+    }
+
+    public Observation(double time, Point2 centerPosition, double terrainHeight, Footprint footprint, BooleanGrid posture, double controlEnergy, double areaRatioEnergy, double computationTime) {
       this.time = time;
       this.centerPosition = centerPosition;
       this.terrainHeight = terrainHeight;
@@ -75,7 +82,20 @@ public class Outcome {
       return footprint;
     }
 
+    /**
+     * Returns the posture as a {@link Grid}, converted at the first invocation and then reused; use
+     * {@link #getBooleanPosture()} to avoid the conversion.
+     */
     public Grid<Boolean> getPosture() {
+      Grid<Boolean> localGridPosture = gridPosture;
+      if (localGridPosture == null) {
+        localGridPosture = posture.toGrid();
+        gridPosture = localGridPosture;
+      }
+      return localGridPosture;
+    }
+
+    public BooleanGrid getBooleanPosture() {
       return posture;
     }
 
@@ -115,6 +135,59 @@ public class Outcome {
     }
   }
 
+  /**
+   * The scalar indexes of an outcome, which, differently than the outcome, are cheap to store.
+   */
+  public static class Summary {
+    private final double computationTime;
+    private final double distance;
+    private final double time;
+    private final double controlPower;
+    private final double areaRatioPower;
+
+    public Summary(double computationTime, double distance, double time, double controlPower, double areaRatioPower) {
+      this.computationTime = computationTime;
+      this.distance = distance;
+      this.time = time;
+      this.controlPower = controlPower;
+      this.areaRatioPower = areaRatioPower;
+    }
+
+    public double getComputationTime() {
+      return computationTime;
+    }
+
+    public double getDistance() {
+      return distance;
+    }
+
+    public double getTime() {
+      return time;
+    }
+
+    public double getControlPower() {
+      return controlPower;
+    }
+
+    public double getAreaRatioPower() {
+      return areaRatioPower;
+    }
+
+    public double getVelocity() {
+      return distance / time;
+    }
+
+    public double getCorrectedEfficiency() {
+      return distance / (1d + controlPower * time);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Summary{computationTime=%.2fs, distance=%.2f, time=%.1fs, controlPower=%.1f, areaRatioPower=%.1f}",
+          computationTime, distance, time, controlPower, areaRatioPower);
+    }
+  }
+
   public static class Gait {
     private final List<Footprint> footprints;
     private final double modeInterval;
@@ -193,6 +266,10 @@ public class Outcome {
     return (observations.get(observations.size() - 1).getAreaRatioEnergy() - observations.get(0).getAreaRatioEnergy()) / getTime();
   }
 
+  public Summary getSummary() {
+    return new Summary(getComputationTime(), getDistance(), getTime(), getControlPower(), getAreaRatioPower());
+  }
+
   public SortedMap<Double, Point2> getCenterTrajectory() {
     return new TreeMap<>(observations.stream().collect(Collectors.toMap(Observation::getTime, Observation::getCenterPosition)));
   }
@@ -224,14 +301,16 @@ public class Outcome {
   }
 
   public Grid<Boolean> getAveragePosture() {
-    return Grid.create(
-        observations.get(0).getPosture().getW(),
-        observations.get(0).getPosture().getH(),
-        (x, y) -> observations.stream()
-            .mapToDouble(m -> m.getPosture().get(x, y) ? 1d : 0d)
-            .average()
-            .orElse(0d) > 0.5d
-    );
+    BooleanGrid first = observations.get(0).getBooleanPosture();
+    IntGrid counts = new IntGrid(first.getW(), first.getH());
+    for (Observation observation : observations) {
+      observation.getBooleanPosture().forEach((x, y, b) -> {
+        if (b) {
+          counts.set(x, y, counts.get(x, y) + 1);
+        }
+      });
+    }
+    return counts.toBooleanGrid(c -> (double) c / (double) observations.size() > 0.5d).toGrid();
   }
 
   public SortedMap<Double, Footprint> getQuantizedFootprints(double interval) {
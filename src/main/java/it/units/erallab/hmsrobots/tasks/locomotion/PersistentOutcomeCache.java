@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks.locomotion;
+
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.tasks.CachedTask;
+import it.units.erallab.hmsrobots.tasks.EvaluationCache;
+import it.units.erallab.hmsrobots.tasks.Task;
+import it.units.erallab.hmsrobots.util.Fingerprint;
+import it.units.erallab.hmsrobots.util.MappedIndex;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A persistent store of the {@link Outcome.Summary summaries} of the outcomes of {@link Locomotion} evaluations, keyed
+ * by the fingerprints of the task configuration and of the robot. Summaries are kept in a {@link MappedIndex}, hence
+ * the file survives restarts and can be shared by many worker processes on the same machine. The computation time is
+ * not stored: loaded summaries have a computation time of 0.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class PersistentOutcomeCache implements EvaluationCache.Store<Outcome.Summary>, Closeable {
+
+  private static final int VALUE_LENGTH = 4;
+
+  private final MappedIndex index;
+
+  public PersistentOutcomeCache(File file) throws IOException {
+    index = new MappedIndex(file, VALUE_LENGTH);
+  }
+
+  public static Fingerprint key(Locomotion locomotion, Robot<?> robot) {
+    return locomotion.getFingerprint().and(Fingerprint.of(robot));
+  }
+
+  /**
+   * Returns a task which evaluates robots on the given locomotion task only if their summaries are neither in memory,
+   * where at most {@code capacity} of them are kept, nor in this store.
+   */
+  public Task<Robot<?>, Outcome.Summary> cached(Locomotion locomotion, int capacity) {
+    return new CachedTask<>(
+        locomotion.andThen(Outcome::getSummary),
+        locomotion.getFingerprint(),
+        Fingerprint::of,
+        new EvaluationCache<>(capacity, this)
+    );
+  }
+
+  @Override
+  public Outcome.Summary load(Fingerprint key) throws IOException {
+    double[] values = index.get(key);
+    if (values == null) {
+      return null;
+    }
+    //the computation time is not stored, since no computation is done on a hit
+    return new Outcome.Summary(0d, values[0], values[1], values[2], values[3]);
+  }
+
+  @Override
+  public void store(Fingerprint key, Outcome.Summary summary) throws IOException {
+    index.put(key, new double[]{
+        summary.getDistance(),
+        summary.getTime(),
+        summary.getControlPower(),
+        summary.getAreaRatioPower()
+    });
+  }
+
+  public int size() throws IOException {
+    return index.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    index.close();
+  }
+
+}
@@ -0,0 +1,769 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.base.GeneratorBase;
+import com.fasterxml.jackson.core.base.ParserMinimalBase;
+import com.fasterxml.jackson.core.json.JsonReadContext;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary backend for Jackson, i.e., a {@link JsonGenerator} and a {@link JsonParser} that write and read the
+ * same token stream of the JSON modes of {@link SerializationUtils} without materializing it. Each value is preceded by
+ * a one-byte type tag; integers are zigzag varints; doubles with a short decimal representation (e.g., the parameters
+ * of voxels) are written as a scaled varint, other doubles as raw little-endian bytes; arrays of primitives (e.g., MLP
+ * weights and neurons) are packed without per-element tags; field names and text values are written once and then
+ * referenced by index, and field names carry no tag. The token stream is deflated, so the repeated descriptions of the
+ * voxels of a robot cost little.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+final class BinaryCodec {
+
+  private static final byte[] MAGIC = new byte[]{'H', 'M', 'S', 'R'};
+  private static final int VERSION = 1;
+  private static final int BUFFER_SIZE = 8192;
+
+  private static final int END = 0;
+  private static final int NULL = 1;
+  private static final int FALSE = 2;
+  private static final int TRUE = 3;
+  private static final int INT = 4;
+  private static final int LONG = 5;
+  private static final int DOUBLE = 6;
+  private static final int DECIMAL_DOUBLE = 7;
+  private static final int FLOAT = 8;
+  private static final int STRING = 9;
+  private static final int BINARY = 10;
+  private static final int ARRAY = 11;
+  private static final int OBJECT = 12;
+  private static final int DOUBLE_ARRAY = 13;
+  private static final int LONG_ARRAY = 14;
+  private static final int BIG_INTEGER = 15;
+  private static final int BIG_DECIMAL = 16;
+
+  private static final int END_OF_OBJECT = 0;
+  private static final int NEW_STRING = 0;
+
+  private static final double[] POWERS_OF_TEN = new double[]{1d, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6};
+  private static final long MAX_DECIMAL_UNSCALED = 1L << 35;
+
+  private BinaryCodec() {
+  }
+
+  static JsonGenerator generator(ObjectCodec codec, OutputStream outputStream) throws IOException {
+    outputStream.write(MAGIC);
+    outputStream.write(VERSION);
+    return new Generator(codec, outputStream);
+  }
+
+  static JsonParser parser(ObjectCodec codec, InputStream inputStream) throws IOException {
+    byte[] magic = inputStream.readNBytes(MAGIC.length);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IOException("Not a binary serialized object: wrong magic number");
+    }
+    int version = inputStream.read();
+    if (version != VERSION) {
+      throw new IOException(String.format("Unsupported binary serialization version: %d instead of %d", version, VERSION));
+    }
+    return new Parser(codec, inputStream);
+  }
+
+  private static int decimalScale(double value) {
+    if (!(Math.abs(value) < MAX_DECIMAL_UNSCALED)) {
+      return -1;
+    }
+    for (int scale = 0; scale < POWERS_OF_TEN.length; scale++) {
+      long unscaled = Math.round(value * POWERS_OF_TEN[scale]);
+      if (Double.doubleToRawLongBits((double) unscaled / POWERS_OF_TEN[scale]) == Double.doubleToRawLongBits(value)) {
+        return scale;
+      }
+    }
+    return -1;
+  }
+
+  private static class Generator extends GeneratorBase {
+    private final OutputStream target;
+    private final Deflater deflater;
+    private final DeflaterOutputStream deflaterOutputStream;
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    private Generator(ObjectCodec codec, OutputStream target) {
+      super(JsonGenerator.Feature.collectDefaults(), codec);
+      this.target = target;
+      deflater = new Deflater(Deflater.BEST_SPEED, true);
+      deflaterOutputStream = new DeflaterOutputStream(target, deflater, BUFFER_SIZE);
+      out = new DataOutputStream(new BufferedOutputStream(deflaterOutputStream, BUFFER_SIZE));
+    }
+
+    @Override
+    public void writeStartArray() throws IOException {
+      _verifyValueWrite("start an array");
+      _writeContext = _writeContext.createChildArrayContext();
+      out.writeByte(ARRAY);
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+      if (!_writeContext.inArray()) {
+        _reportError("Current context not an array but " + _writeContext.typeDesc());
+      }
+      _writeContext = _writeContext.clearAndGetParent();
+      out.writeByte(END);
+    }
+
+    @Override
+    public void writeStartObject() throws IOException {
+      _verifyValueWrite("start an object");
+      _writeContext = _writeContext.createChildObjectContext();
+      out.writeByte(OBJECT);
+    }
+
+    @Override
+    public void writeEndObject() throws IOException {
+      if (!_writeContext.inObject()) {
+        _reportError("Current context not an object but " + _writeContext.typeDesc());
+      }
+      _writeContext = _writeContext.clearAndGetParent();
+      writeUnsignedVarint(END_OF_OBJECT);
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+      if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+        _reportError("Cannot write a field name, expecting a value");
+      }
+      //0 is the end of the object, hence references are shifted by one
+      writeString(name, 1);
+    }
+
+    @Override
+    public void writeFieldName(SerializableString name) throws IOException {
+      writeFieldName(name.getValue());
+    }
+
+    @Override
+    public void writeString(String text) throws IOException {
+      if (text == null) {
+        writeNull();
+        return;
+      }
+      _verifyValueWrite("write a string");
+      out.writeByte(STRING);
+      writeString(text, 0);
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+      writeString(new String(text, offset, len));
+    }
+
+    @Override
+    public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+      writeString(new String(text, offset, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+      writeString(new String(text, offset, length, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeRaw(String text) throws IOException {
+      _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(String text, int offset, int len) throws IOException {
+      _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(char[] text, int offset, int len) throws IOException {
+      _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeRaw(char c) throws IOException {
+      _reportUnsupportedOperation();
+    }
+
+    @Override
+    public void writeBinary(Base64Variant bv, byte[] data, int offset, int len) throws IOException {
+      if (data == null) {
+        writeNull();
+        return;
+      }
+      _verifyValueWrite("write a binary value");
+      out.writeByte(BINARY);
+      writeUnsignedVarint(len);
+      out.write(data, offset, len);
+    }
+
+    @Override
+    public void writeNumber(int v) throws IOException {
+      writeNumber((long) v);
+    }
+
+    @Override
+    public void writeNumber(long v) throws IOException {
+      _verifyValueWrite("write a number");
+      out.writeByte(v == (int) v ? INT : LONG);
+      writeSignedVarint(v);
+    }
+
+    @Override
+    public void writeNumber(BigInteger v) throws IOException {
+      if (v == null) {
+        writeNull();
+        return;
+      }
+      _verifyValueWrite("write a number");
+      out.writeByte(BIG_INTEGER);
+      writeString(v.toString(), 0);
+    }
+
+    @Override
+    public void writeNumber(double v) throws IOException {
+      _verifyValueWrite("write a number");
+      int scale = decimalScale(v);
+      if (scale >= 0) {
+        out.writeByte(DECIMAL_DOUBLE);
+        out.writeByte(scale);
+        writeSignedVarint(Math.round(v * POWERS_OF_TEN[scale]));
+      } else {
+        out.writeByte(DOUBLE);
+        writeDouble(v);
+      }
+    }
+
+    @Override
+    public void writeNumber(float v) throws IOException {
+      _verifyValueWrite("write a number");
+      out.writeByte(FLOAT);
+      out.writeInt(Integer.reverseBytes(Float.floatToRawIntBits(v)));
+    }
+
+    @Override
+    public void writeNumber(BigDecimal v) throws IOException {
+      if (v == null) {
+        writeNull();
+        return;
+      }
+      _verifyValueWrite("write a number");
+      out.writeByte(BIG_DECIMAL);
+      writeString(v.toString(), 0);
+    }
+
+    @Override
+    public void writeNumber(String encodedValue) throws IOException {
+      writeNumber(new BigDecimal(encodedValue));
+    }
+
+    @Override
+    public void writeBoolean(boolean state) throws IOException {
+      _verifyValueWrite("write a boolean");
+      out.writeByte(state ? TRUE : FALSE);
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+      _verifyValueWrite("write a null");
+      out.writeByte(NULL);
+    }
+
+    @Override
+    public void writeArray(double[] array, int offset, int length) throws IOException {
+      _verifyOffsets(array.length, offset, length);
+      _verifyValueWrite("write an array");
+      out.writeByte(DOUBLE_ARRAY);
+      writeUnsignedVarint(length);
+      for (int i = offset; i < offset + length; i++) {
+        writeDouble(array[i]);
+      }
+    }
+
+    @Override
+    public void writeArray(int[] array, int offset, int length) throws IOException {
+      _verifyOffsets(array.length, offset, length);
+      _verifyValueWrite("write an array");
+      out.writeByte(LONG_ARRAY);
+      writeUnsignedVarint(length);
+      for (int i = offset; i < offset + length; i++) {
+        writeSignedVarint(array[i]);
+      }
+    }
+
+    @Override
+    public void writeArray(long[] array, int offset, int length) throws IOException {
+      _verifyOffsets(array.length, offset, length);
+      _verifyValueWrite("write an array");
+      out.writeByte(LONG_ARRAY);
+      writeUnsignedVarint(length);
+      for (int i = offset; i < offset + length; i++) {
+        writeSignedVarint(array[i]);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (isClosed()) {
+        return;
+      }
+      super.close();
+      try {
+        out.flush();
+        deflaterOutputStream.finish();
+        target.flush();
+      } finally {
+        deflater.end();
+      }
+    }
+
+    @Override
+    protected void _releaseBuffers() {
+    }
+
+    @Override
+    protected void _verifyValueWrite(String typeMsg) throws IOException {
+      if (_writeContext.writeValue() == JsonWriteContext.STATUS_EXPECT_NAME) {
+        _reportError("Cannot " + typeMsg + ", expecting a field name");
+      }
+    }
+
+    private void writeString(String string, int offset) throws IOException {
+      Integer index = strings.get(string);
+      if (index != null) {
+        writeUnsignedVarint(index + offset + 1);
+        return;
+      }
+      strings.put(string, strings.size());
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      writeUnsignedVarint(NEW_STRING + offset);
+      writeUnsignedVarint(bytes.length);
+      out.write(bytes);
+    }
+
+    private void writeDouble(double value) throws IOException {
+      out.writeLong(Long.reverseBytes(Double.doubleToRawLongBits(value)));
+    }
+
+    private void writeSignedVarint(long value) throws IOException {
+      writeUnsignedVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeUnsignedVarint(long value) throws IOException {
+      while ((value & ~0x7FL) != 0) {
+        out.writeByte((int) ((value & 0x7F) | 0x80));
+        value = value >>> 7;
+      }
+      out.writeByte((int) value);
+    }
+  }
+
+  private static class Parser extends ParserMinimalBase {
+    private final Inflater inflater;
+    private final DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+    private ObjectCodec codec;
+    private JsonReadContext context = JsonReadContext.createRootContext(null);
+    private boolean closed;
+    private boolean ended;
+    private int packedTag;
+    private int packedRemaining;
+    private NumberType numberType;
+    private long longValue;
+    private double doubleValue;
+    private Number bigValue;
+    private String text;
+    private byte[] binary;
+
+    private Parser(ObjectCodec codec, InputStream source) {
+      super(0);
+      this.codec = codec;
+      inflater = new Inflater(true);
+      in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(source, inflater, BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+      if (closed || ended) {
+        return null;
+      }
+      if (context.inRoot() && _currToken != null) {
+        ended = true;
+        _currToken = null;
+        return null;
+      }
+      if (context.inObject() && _currToken != JsonToken.FIELD_NAME) {
+        int index = readSize();
+        if (index == END_OF_OBJECT) {
+          context = context.clearAndGetParent();
+          return _currToken = JsonToken.END_OBJECT;
+        }
+        context.setCurrentName(readString(index - 1));
+        return _currToken = JsonToken.FIELD_NAME;
+      }
+      if (packedTag != 0) {
+        if (packedRemaining == 0) {
+          packedTag = 0;
+          context = context.clearAndGetParent();
+          return _currToken = JsonToken.END_ARRAY;
+        }
+        packedRemaining = packedRemaining - 1;
+        if (packedTag == DOUBLE_ARRAY) {
+          return floatToken(NumberType.DOUBLE, readDouble());
+        }
+        return intToken(readSignedVarint());
+      }
+      int tag = in.read();
+      if (tag < 0) {
+        _handleEOF();
+      }
+      return _currToken = switch (tag) {
+        case END -> {
+          if (!context.inArray()) {
+            _reportError("Unexpected end of array");
+          }
+          context = context.clearAndGetParent();
+          yield JsonToken.END_ARRAY;
+        }
+        case NULL -> JsonToken.VALUE_NULL;
+        case FALSE -> JsonToken.VALUE_FALSE;
+        case TRUE -> JsonToken.VALUE_TRUE;
+        case INT, LONG -> intToken(readSignedVarint());
+        case DOUBLE -> floatToken(NumberType.DOUBLE, readDouble());
+        case DECIMAL_DOUBLE -> {
+          int scale = in.readUnsignedByte();
+          if (scale >= POWERS_OF_TEN.length) {
+            _reportError(String.format("Invalid decimal scale %d", scale));
+          }
+          yield floatToken(NumberType.DOUBLE, (double) readSignedVarint() / POWERS_OF_TEN[scale]);
+        }
+        case FLOAT -> floatToken(NumberType.FLOAT, Float.intBitsToFloat(Integer.reverseBytes(in.readInt())));
+        case STRING -> {
+          text = readString(readSize());
+          yield JsonToken.VALUE_STRING;
+        }
+        case BINARY -> {
+          binary = new byte[readSize()];
+          in.readFully(binary);
+          yield JsonToken.VALUE_EMBEDDED_OBJECT;
+        }
+        case ARRAY -> {
+          context = context.createChildArrayContext(-1, -1);
+          yield JsonToken.START_ARRAY;
+        }
+        case OBJECT -> {
+          context = context.createChildObjectContext(-1, -1);
+          yield JsonToken.START_OBJECT;
+        }
+        case DOUBLE_ARRAY, LONG_ARRAY -> {
+          packedTag = tag;
+          packedRemaining = readSize();
+          context = context.createChildArrayContext(-1, -1);
+          yield JsonToken.START_ARRAY;
+        }
+        case BIG_INTEGER -> {
+          numberType = NumberType.BIG_INTEGER;
+          bigValue = new BigInteger(readString(readSize()));
+          yield JsonToken.VALUE_NUMBER_INT;
+        }
+        case BIG_DECIMAL -> {
+          numberType = NumberType.BIG_DECIMAL;
+          bigValue = new BigDecimal(readString(readSize()));
+          yield JsonToken.VALUE_NUMBER_FLOAT;
+        }
+        default -> throw _constructError(String.format("Unknown type tag %d", tag));
+      };
+    }
+
+    private JsonToken intToken(long value) {
+      numberType = (value == (int) value) ? NumberType.INT : NumberType.LONG;
+      longValue = value;
+      return _currToken = JsonToken.VALUE_NUMBER_INT;
+    }
+
+    private JsonToken floatToken(NumberType type, double value) {
+      numberType = type;
+      doubleValue = value;
+      return _currToken = JsonToken.VALUE_NUMBER_FLOAT;
+    }
+
+    @Override
+    protected void _handleEOF() throws JsonParseException {
+      _reportInvalidEOF();
+    }
+
+    @Override
+    public String getCurrentName() {
+      if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+        JsonReadContext parent = context.getParent();
+        if (parent != null) {
+          return parent.getCurrentName();
+        }
+      }
+      return context.getCurrentName();
+    }
+
+    @Override
+    public void overrideCurrentName(String name) {
+      try {
+        context.setCurrentName(name);
+      } catch (JsonProcessingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        inflater.end();
+      }
+    }
+
+    @Override
+    public boolean isClosed() {
+      return closed;
+    }
+
+    @Override
+    public JsonStreamContext getParsingContext() {
+      return context;
+    }
+
+    @Override
+    public String getText() throws IOException {
+      if (_currToken == null) {
+        return null;
+      }
+      return switch (_currToken) {
+        case FIELD_NAME -> context.getCurrentName();
+        case VALUE_STRING -> text;
+        case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> getNumberValue().toString();
+        case VALUE_EMBEDDED_OBJECT -> Base64Variants.getDefaultVariant().encode(binary);
+        default -> _currToken.asString();
+      };
+    }
+
+    @Override
+    public char[] getTextCharacters() throws IOException {
+      String string = getText();
+      return string == null ? null : string.toCharArray();
+    }
+
+    @Override
+    public boolean hasTextCharacters() {
+      return false;
+    }
+
+    @Override
+    public int getTextLength() throws IOException {
+      String string = getText();
+      return string == null ? 0 : string.length();
+    }
+
+    @Override
+    public int getTextOffset() {
+      return 0;
+    }
+
+    @Override
+    public byte[] getBinaryValue(Base64Variant bv) throws IOException {
+      if (_currToken == JsonToken.VALUE_EMBEDDED_OBJECT) {
+        return binary;
+      }
+      if (_currToken == JsonToken.VALUE_STRING) {
+        return bv.decode(text);
+      }
+      _reportError(String.format("Current token (%s) not a binary value", _currToken));
+      return null;
+    }
+
+    @Override
+    public Object getEmbeddedObject() {
+      return _currToken == JsonToken.VALUE_EMBEDDED_OBJECT ? binary : null;
+    }
+
+    @Override
+    public ObjectCodec getCodec() {
+      return codec;
+    }
+
+    @Override
+    public void setCodec(ObjectCodec codec) {
+      this.codec = codec;
+    }
+
+    @Override
+    public Version version() {
+      return Version.unknownVersion();
+    }
+
+    @Override
+    public JsonLocation getTokenLocation() {
+      return JsonLocation.NA;
+    }
+
+    @Override
+    public JsonLocation getCurrentLocation() {
+      return JsonLocation.NA;
+    }
+
+    @Override
+    public Number getNumberValue() throws IOException {
+      return switch (checkNumberType()) {
+        case INT -> (int) longValue;
+        case LONG -> longValue;
+        case FLOAT -> (float) doubleValue;
+        case DOUBLE -> doubleValue;
+        case BIG_INTEGER, BIG_DECIMAL -> bigValue;
+      };
+    }
+
+    @Override
+    public NumberType getNumberType() throws IOException {
+      return checkNumberType();
+    }
+
+    @Override
+    public int getIntValue() throws IOException {
+      NumberType type = checkNumberType();
+      if (type == NumberType.INT) {
+        return (int) longValue;
+      }
+      long value = getLongValue();
+      if (value != (int) value) {
+        reportOverflowInt();
+      }
+      return (int) value;
+    }
+
+    @Override
+    public long getLongValue() throws IOException {
+      return switch (checkNumberType()) {
+        case INT, LONG -> longValue;
+        case FLOAT, DOUBLE -> (long) doubleValue;
+        case BIG_INTEGER, BIG_DECIMAL -> bigValue.longValue();
+      };
+    }
+
+    @Override
+    public BigInteger getBigIntegerValue() throws IOException {
+      return switch (checkNumberType()) {
+        case INT, LONG -> BigInteger.valueOf(longValue);
+        case FLOAT, DOUBLE -> BigDecimal.valueOf(doubleValue).toBigInteger();
+        case BIG_INTEGER -> (BigInteger) bigValue;
+        case BIG_DECIMAL -> ((BigDecimal) bigValue).toBigInteger();
+      };
+    }
+
+    @Override
+    public float getFloatValue() throws IOException {
+      return (float) getDoubleValue();
+    }
+
+    @Override
+    public double getDoubleValue() throws IOException {
+      return switch (checkNumberType()) {
+        case INT, LONG -> (double) longValue;
+        case FLOAT, DOUBLE -> doubleValue;
+        case BIG_INTEGER, BIG_DECIMAL -> bigValue.doubleValue();
+      };
+    }
+
+    @Override
+    public BigDecimal getDecimalValue() throws IOException {
+      return switch (checkNumberType()) {
+        case INT, LONG -> BigDecimal.valueOf(longValue);
+        case FLOAT, DOUBLE -> BigDecimal.valueOf(doubleValue);
+        case BIG_INTEGER -> new BigDecimal((BigInteger) bigValue);
+        case BIG_DECIMAL -> (BigDecimal) bigValue;
+      };
+    }
+
+    private NumberType checkNumberType() throws IOException {
+      if (_currToken != JsonToken.VALUE_NUMBER_INT && _currToken != JsonToken.VALUE_NUMBER_FLOAT) {
+        _reportError(String.format("Current token (%s) not numeric", _currToken));
+      }
+      return numberType;
+    }
+
+    private String readString(int index) throws IOException {
+      if (index > NEW_STRING) {
+        if (index > strings.size()) {
+          _reportError(String.format("Unknown string reference %d", index - 1));
+        }
+        return strings.get(index - 1);
+      }
+      byte[] bytes = new byte[readSize()];
+      in.readFully(bytes);
+      String string = new String(bytes, StandardCharsets.UTF_8);
+      strings.add(string);
+      return string;
+    }
+
+    private int readSize() throws IOException {
+      long size = readUnsignedVarint();
+      if (size < 0 || size > Integer.MAX_VALUE) {
+        _reportError(String.format("Invalid size %d", size));
+      }
+      return (int) size;
+    }
+
+    private double readDouble() throws IOException {
+      return Double.longBitsToDouble(Long.reverseBytes(in.readLong()));
+    }
+
+    private long readSignedVarint() throws IOException {
+      long value = readUnsignedVarint();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readUnsignedVarint() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift = shift + 7) {
+        int b = in.readUnsignedByte();
+        value = value | ((long) (b & 0x7F) << shift);
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      _reportError("Malformed varint");
+      return value;
+    }
+  }
+
+}
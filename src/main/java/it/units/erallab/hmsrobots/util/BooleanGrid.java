@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+/**
+ * A grid of booleans stored as bits, e.g., for body shapes and postures. Iteration through {@link
+ * #forEach(CellConsumer)} does not allocate; {@link #toGrid()} and {@link #from(Grid, Predicate)} bridge to the generic
+ * {@link Grid}.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class BooleanGrid implements Serializable {
+
+  private final static char FULL_CELL_CHAR = '█';
+  private final static char EMPTY_CELL_CHAR = '░';
+
+  @FunctionalInterface
+  public interface CellConsumer {
+    void accept(int x, int y, boolean value);
+  }
+
+  @FunctionalInterface
+  public interface Filler {
+    boolean apply(int x, int y);
+  }
+
+  private final int w;
+  private final int h;
+  private final BitSet bits;
+
+  public BooleanGrid(int w, int h) {
+    this.w = w;
+    this.h = h;
+    bits = new BitSet(w * h);
+  }
+
+  public static BooleanGrid create(int w, int h, Filler filler) {
+    BooleanGrid grid = new BooleanGrid(w, h);
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        if (filler.apply(x, y)) {
+          grid.bits.set(y * w + x);
+        }
+      }
+    }
+    return grid;
+  }
+
+  public static <K> BooleanGrid from(Grid<K> grid, Predicate<K> predicate) {
+    return create(grid.getW(), grid.getH(), (x, y) -> predicate.test(grid.get(x, y)));
+  }
+
+  public static BooleanGrid from(Grid<Boolean> grid) {
+    return from(grid, b -> b != null && b);
+  }
+
+  public Grid<Boolean> toGrid() {
+    return Grid.create(w, h, (x, y) -> get(x, y));
+  }
+
+  public int getW() {
+    return w;
+  }
+
+  public int getH() {
+    return h;
+  }
+
+  /**
+   * Returns the value at {@code x,y}, or {@code false} if the position is outside the grid.
+   */
+  public boolean get(int x, int y) {
+    if (x < 0 || x >= w || y < 0 || y >= h) {
+      return false;
+    }
+    return bits.get(y * w + x);
+  }
+
+  public void set(int x, int y, boolean value) {
+    if (x < 0 || x >= w || y < 0 || y >= h) {
+      throw new IllegalArgumentException(String.format(
+          "Cannot set element at %d,%d on a %dx%d grid",
+          x, y, w, h
+      ));
+    }
+    bits.set(y * w + x, value);
+  }
+
+  /**
+   * Sets to {@code value} all the cells in the rectangle from {@code minX,minY} to {@code maxX,maxY}, both included.
+   * The rectangle is clipped to the grid, consistently with {@link #get(int, int)}.
+   */
+  public void fill(int minX, int minY, int maxX, int maxY, boolean value) {
+    int fromX = Math.max(0, minX);
+    int toX = Math.min(w - 1, maxX);
+    if (fromX > toX) {
+      return;
+    }
+    for (int y = Math.max(0, minY); y <= Math.min(h - 1, maxY); y++) {
+      bits.set(y * w + fromX, y * w + toX + 1, value);
+    }
+  }
+
+  public void forEach(CellConsumer consumer) {
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        consumer.accept(x, y, bits.get(y * w + x));
+      }
+    }
+  }
+
+  public int count() {
+    return bits.cardinality();
+  }
+
+  public BooleanGrid copy() {
+    BooleanGrid copy = new BooleanGrid(w, h);
+    copy.bits.or(bits);
+    return copy;
+  }
+
+  /**
+   * Returns the smallest grid including all the {@code true} cells of this grid, or an empty grid if there are none.
+   */
+  public BooleanGrid crop() {
+    int minX = w;
+    int maxX = -1;
+    int minY = h;
+    int maxY = -1;
+    for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+      minX = Math.min(minX, i % w);
+      maxX = Math.max(maxX, i % w);
+      minY = Math.min(minY, i / w);
+      maxY = Math.max(maxY, i / w);
+    }
+    if (maxX < 0) {
+      return new BooleanGrid(0, 0);
+    }
+    final int finalMinX = minX;
+    final int finalMinY = minY;
+    return create(maxX - minX + 1, maxY - minY + 1, (x, y) -> get(x + finalMinX, y + finalMinY));
+  }
+
+  /**
+   * Labels the 4-connected components of {@code true} cells with consecutive positive integers, in the order of their
+   * first cell by rows; {@code false} cells are labeled with 0.
+   */
+  public IntGrid components() {
+    return Utils.components(this).getLabels();
+  }
+
+  /**
+   * Returns a grid with only the largest 4-connected component of {@code true} cells of this grid; in case of ties, the
+   * first component by rows is kept.
+   */
+  public BooleanGrid largestConnected() {
+    Utils.Components components = Utils.components(this);
+    Utils.Component largest = components.largest();
+    if (largest == null) {
+      return new BooleanGrid(w, h);
+    }
+    return create(w, h, (x, y) -> components.getLabels().get(x, y) == largest.getLabel());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    BooleanGrid that = (BooleanGrid) o;
+    return w == that.w && h == that.h && bits.equals(that.bits);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(new int[]{w, h, bits.hashCode()});
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        sb.append(get(x, y) ? FULL_CELL_CHAR : EMPTY_CELL_CHAR);
+      }
+      if (y < h - 1) {
+        sb.append("\n");
+      }
+    }
+    return sb.toString();
+  }
+
+}
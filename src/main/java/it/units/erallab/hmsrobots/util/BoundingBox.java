@@ -16,10 +16,14 @@
  */
 package it.units.erallab.hmsrobots.util;
 
+import java.io.Serial;
 import java.io.Serializable;
 
 public class BoundingBox implements Serializable {
 
+  @Serial
+  private static final long serialVersionUID = -1777077536285140552L;
+
   public final Point2 min;
   public final Point2 max;
 
@@ -56,6 +60,14 @@ public class BoundingBox implements Serializable {
         '}';
   }
 
+  public boolean intersects(BoundingBox other) {
+    return min.x <= other.max.x && max.x >= other.min.x && min.y <= other.max.y && max.y >= other.min.y;
+  }
+
+  public boolean contains(BoundingBox other) {
+    return min.x <= other.min.x && max.x >= other.max.x && min.y <= other.min.y && max.y >= other.max.y;
+  }
+
   public static BoundingBox largest(BoundingBox bb1, BoundingBox bb2) {
     return BoundingBox.build(bb1.min, bb1.max, bb2.min, bb2.max);
   }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.DoublePredicate;
+
+/**
+ * A grid of doubles stored in an array. Iteration through {@link #forEach(CellConsumer)} does not allocate; {@link
+ * #toGrid()} and {@link #from(Grid)} bridge to the generic {@link Grid}.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class DoubleGrid implements Serializable {
+
+  @FunctionalInterface
+  public interface CellConsumer {
+    void accept(int x, int y, double value);
+  }
+
+  @FunctionalInterface
+  public interface Filler {
+    double apply(int x, int y);
+  }
+
+  private final int w;
+  private final int h;
+  private final double[] values;
+
+  public DoubleGrid(int w, int h) {
+    this.w = w;
+    this.h = h;
+    values = new double[w * h];
+  }
+
+  public static DoubleGrid create(int w, int h, Filler filler) {
+    DoubleGrid grid = new DoubleGrid(w, h);
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        grid.values[y * w + x] = filler.apply(x, y);
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Builds a grid with the values of the given grid, where {@code null} values become {@link Double#NaN}.
+   */
+  public static DoubleGrid from(Grid<Double> grid) {
+    return create(grid.getW(), grid.getH(), (x, y) -> grid.get(x, y) == null ? Double.NaN : grid.get(x, y));
+  }
+
+  /**
+   * Builds a generic grid with the values of this grid, where {@link Double#NaN} values become {@code null}.
+   */
+  public Grid<Double> toGrid() {
+    return Grid.create(w, h, (x, y) -> Double.isNaN(get(x, y)) ? null : get(x, y));
+  }
+
+  public int getW() {
+    return w;
+  }
+
+  public int getH() {
+    return h;
+  }
+
+  public double get(int x, int y) {
+    check(x, y, "get");
+    return values[y * w + x];
+  }
+
+  public void set(int x, int y, double value) {
+    check(x, y, "set");
+    values[y * w + x] = value;
+  }
+
+  private void check(int x, int y, String action) {
+    if (x < 0 || x >= w || y < 0 || y >= h) {
+      throw new IllegalArgumentException(String.format(
+          "Cannot %s element at %d,%d on a %dx%d grid",
+          action, x, y, w, h
+      ));
+    }
+  }
+
+  public void fill(double value) {
+    Arrays.fill(values, value);
+  }
+
+  public void forEach(CellConsumer consumer) {
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        consumer.accept(x, y, values[y * w + x]);
+      }
+    }
+  }
+
+  public int count(DoublePredicate predicate) {
+    int count = 0;
+    for (double value : values) {
+      if (predicate.test(value)) {
+        count = count + 1;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the sum of the values which are not {@link Double#NaN}.
+   */
+  public double sum() {
+    double sum = 0d;
+    for (double value : values) {
+      if (!Double.isNaN(value)) {
+        sum = sum + value;
+      }
+    }
+    return sum;
+  }
+
+  public double max() {
+    return Arrays.stream(values).filter(v -> !Double.isNaN(v)).max().orElse(Double.NaN);
+  }
+
+  public double min() {
+    return Arrays.stream(values).filter(v -> !Double.isNaN(v)).min().orElse(Double.NaN);
+  }
+
+  public BooleanGrid toBooleanGrid(DoublePredicate predicate) {
+    return BooleanGrid.create(w, h, (x, y) -> predicate.test(values[y * w + x]));
+  }
+
+  public DoubleGrid copy() {
+    DoubleGrid copy = new DoubleGrid(w, h);
+    System.arraycopy(values, 0, copy.values, 0, values.length);
+    return copy;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    DoubleGrid that = (DoubleGrid) o;
+    return w == that.w && h == that.h && Arrays.equals(values, that.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * w + h) + Arrays.hashCode(values);
+  }
+
+  @Override
+  public String toString() {
+    return Grid.toString(toGrid(), "%5.2f");
+  }
+
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * A real function of one real variable (typically, the time) described as a tree of simple nodes, rather than as a
+ * lambda. Differently than lambdas, expressions are serialized as structured data and do not depend on the class
+ * files of the code that built them. Each expression is compiled, once, to a primitive {@link DoubleUnaryOperator}
+ * in which common patterns, like {@code a*sin(w*x+p)+b}, are fused in a single evaluator.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, property = "@class")
+@JsonSerialize(using = JsonSerializer.None.class)
+@JsonDeserialize(using = JsonDeserializer.None.class)
+public abstract class Expression implements SerializableFunction<Double, Double> {
+
+  private transient DoubleUnaryOperator operator;
+
+  protected abstract DoubleUnaryOperator compile();
+
+  public DoubleUnaryOperator operator() {
+    if (operator == null) {
+      operator = compile();
+    }
+    return operator;
+  }
+
+  public double applyAsDouble(double x) {
+    return operator().applyAsDouble(x);
+  }
+
+  @Override
+  public Double apply(Double x) {
+    return operator().applyAsDouble(x);
+  }
+
+  public static Expression constant(double value) {
+    return new Constant(value);
+  }
+
+  public static Expression identity() {
+    return new Identity();
+  }
+
+  public static Expression sin(Expression argument) {
+    return new Sin(argument);
+  }
+
+  public static Expression affine(double a, double b, Expression argument) {
+    return new Affine(a, b, argument);
+  }
+
+  public static Expression sum(Expression... arguments) {
+    return new Sum(List.of(arguments));
+  }
+
+  public static Expression product(Expression... arguments) {
+    return new Product(List.of(arguments));
+  }
+
+  public static Expression lookup(double[] xs, double[] ys, boolean periodic, Expression argument) {
+    return new Lookup(xs, ys, periodic, argument);
+  }
+
+  /**
+   * Builds {@code amplitude*sin(2*pi*frequency*x+phase)}.
+   */
+  public static Expression sinusoid(double amplitude, double frequency, double phase) {
+    return affine(amplitude, 0d, sin(affine(2d * Math.PI * frequency, phase, identity())));
+  }
+
+  public static class Constant extends Expression {
+    @JsonProperty
+    private final double value;
+
+    @JsonCreator
+    public Constant(@JsonProperty("value") double value) {
+      this.value = value;
+    }
+
+    public double getValue() {
+      return value;
+    }
+
+    @Override
+    protected DoubleUnaryOperator compile() {
+      final double v = value;
+      return x -> v;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof Constant) && Double.compare(((Constant) o).value, value) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return Double.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+      return Double.toString(value);
+    }
+  }
+
+  public static class Identity extends Expression {
+    @JsonCreator
+    public Identity() {
+    }
+
+    @Override
+    protected DoubleUnaryOperator compile() {
+      return DoubleUnaryOperator.identity();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Identity;
+    }
+
+    @Override
+    public int hashCode() {
+      return Identity.class.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "x";
+    }
+  }
+
+  public static class Sin extends Expression {
+    @JsonProperty
+    private final Expression argument;
+
+    @JsonCreator
+    public Sin(@JsonProperty("argument") Expression argument) {
+      this.argument = argument;
+    }
+
+    public Expression getArgument() {
+      return argument;
+    }
+
+    @Override
+    protected DoubleUnaryOperator compile() {
+      if (argument instanceof Affine && ((Affine) argument).argument instanceof Identity) {
+        final double w = ((Affine) argument).a;
+        final double p = ((Affine) argument).b;
+        return x -> Math.sin(w * x + p);
+      }
+      final DoubleUnaryOperator inner = argument.operator();
+      return x -> Math.sin(inner.applyAsDouble(x));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof Sin) && ((Sin) o).argument.equals(argument);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(Sin.class, argument);
+    }
+
+    @Override
+    public String toString() {
+      return "sin(" + argument + ")";
+    }
+  }
+
+  public static class Affine extends Expression {
+    @JsonProperty
+    private final double a;
+    @JsonProperty
+    private final double b;
+    @JsonProperty
+    private final Expression argument;
+
+    @JsonCreator
+    public Affine(
+        @JsonProperty("a") double a,
+        @JsonProperty("b") double b,
+        @JsonProperty("argument") Expression argument
+    ) {
+      this.a = a;
+      this.b = b;
+      this.argument = argument;
+    }
+
+    public double getA() {
+      return a;
+    }
+
+    public double getB() {
+      return b;
+    }
+
+    public Expression getArgument() {
+      return argument;
+    }
+
+    @Override
+    protected DoubleUnaryOperator compile() {
+      final double a = this.a;
+      final double b = this.b;
+      if (argument instanceof Identity) {
+        return b == 0d ? x -> a * x : x -> a * x + b;
+      }
+      if (argument instanceof Sin && ((Sin) argument).argument instanceof Affine && ((Affine) ((Sin) argument).argument).argument instanceof Identity) {
+        final double w = ((Affine) ((Sin) argument).argument).a;
+        final double p = ((Affine) ((Sin) argument).argument).b;
+        return b == 0d ? x -> a * Math.sin(w * x + p) : x -> a * Math.sin(w * x + p) + b;
+      }
+      final DoubleUnaryOperator inner = argument.operator();
+      return b == 0d ? x -> a * inner.applyAsDouble(x) : x -> a * inner.applyAsDouble(x) + b;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Affine)) {
+        return false;
+      }
+      Affine other = (Affine) o;
+      return Double.compare(other.a, a) == 0 && Double.compare(other.b, b) == 0 && other.argument.equals(argument);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(a, b, argument);
+    }
+
+    @Override
+    public String toString() {
+      return a + "*" + argument + (b == 0d ? "" : ("+" + b));
+    }
+  }
+
+  public static class Sum extends Expression {
+    @JsonProperty
+    private final List<Expression> arguments;
+
+    @JsonCreator
+    public Sum(@JsonProperty("arguments") List<Expression> arguments) {
+      this.arguments = arguments;
+    }
+
+    public List<Expression> getArguments() {
+      return arguments;
+    }
+
+    @Override
+    protected DoubleUnaryOperator compile() {
+      final DoubleUnaryOperator[] inners = arguments.stream().map(Expression::operator).toArray(DoubleUnaryOperator[]::new);
+      return x -> {
+        double sum = 0d;
+        for (DoubleUnaryOperator inner : inners) {
+          sum = sum + inner.applyAsDouble(x);
+        }
+        return sum;
+      };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof Sum) && ((Sum) o).arguments.equals(arguments);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(Sum.class, arguments);
+    }
+
+    @Override
+    public String toString() {
+      return "(" + arguments.stream().map(Object::toString).collect(Collectors.joining("+")) + ")";
+    }
+  }
+
+  public static class Product extends Expression {
+    @JsonProperty
+    private final List<Expression> arguments;
+
+    @JsonCreator
+    public Product(@JsonProperty("arguments") List<Expression> arguments) {
+      this.arguments = arguments;
+    }
+
+    public List<Expression> getArguments() {
+      return arguments;
+    }
+
+    @Override
+    protected DoubleUnaryOperator compile() {
+      final DoubleUnaryOperator[] inners = arguments.stream().map(Expression::operator).toArray(DoubleUnaryOperator[]::new);
+      return x -> {
+        double product = 1d;
+        for (DoubleUnaryOperator inner : inners) {
+          product = product * inner.applyAsDouble(x);
+        }
+        return product;
+      };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof Product) && ((Product) o).arguments.equals(arguments);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(Product.class, arguments);
+    }
+
+    @Override
+    public String toString() {
+      return "(" + arguments.stream().map(Object::toString).collect(Collectors.joining("*")) + ")";
+    }
+  }
+
+  /**
+   * Piecewise linear interpolation of the {@code (xs[i],ys[i])} points, clamped outside {@code [xs[0],xs[n-1]]}, or
+   * repeated with period {@code xs[n-1]-xs[0]} if {@code periodic}.
+   */
+  public static class Lookup extends Expression {
+    @JsonProperty
+    private final double[] xs;
+    @JsonProperty
+    private final double[] ys;
+    @JsonProperty
+    private final boolean periodic;
+    @JsonProperty
+    private final Expression argument;
+
+    @JsonCreator
+    public Lookup(
+        @JsonProperty("xs") double[] xs,
+        @JsonProperty("ys") double[] ys,
+        @JsonProperty("periodic") boolean periodic,
+        @JsonProperty("argument") Expression argument
+    ) {
+      if (xs.length != ys.length || xs.length == 0) {
+        throw new IllegalArgumentException(String.format("Wrong lookup table size: %d xs and %d ys", xs.length, ys.length));
+      }
+      for (int i = 1; i < xs.length; i++) {
+        if (xs[i] <= xs[i - 1]) {
+          throw new IllegalArgumentException(String.format("Lookup xs are not strictly increasing at %d", i));
+        }
+      }
+      this.xs = xs;
+      this.ys = ys;
+      this.periodic = periodic;
+      this.argument = argument;
+    }
+
+    public double[] getXs() {
+      return xs;
+    }
+
+    public double[] getYs() {
+      return ys;
+    }
+
+    public boolean isPeriodic() {
+      return periodic;
+    }
+
+    public Expression getArgument() {
+      return argument;
+    }
+
+    @Override
+    protected DoubleUnaryOperator compile() {
+      final double[] xs = Arrays.copyOf(this.xs, this.xs.length);
+      final double[] ys = Arrays.copyOf(this.ys, this.ys.length);
+      final double period = xs[xs.length - 1] - xs[0];
+      final boolean periodic = this.periodic && period > 0d;
+      final DoubleUnaryOperator inner = argument.operator();
+      return x -> {
+        double v = inner.applyAsDouble(x);
+        if (periodic) {
+          v = xs[0] + ((v - xs[0]) % period + period) % period;
+        }
+        if (v <= xs[0]) {
+          return ys[0];
+        }
+        if (v >= xs[xs.length - 1]) {
+          return ys[ys.length - 1];
+        }
+        int i = Arrays.binarySearch(xs, v);
+        if (i >= 0) {
+          return ys[i];
+        }
+        i = -i - 1;
+        return ys[i - 1] + (ys[i] - ys[i - 1]) * (v - xs[i - 1]) / (xs[i] - xs[i - 1]);
+      };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Lookup)) {
+        return false;
+      }
+      Lookup other = (Lookup) o;
+      return periodic == other.periodic && Arrays.equals(xs, other.xs) && Arrays.equals(ys, other.ys) && argument.equals(other.argument);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(Arrays.hashCode(xs), Arrays.hashCode(ys), periodic, argument);
+    }
+
+    @Override
+    public String toString() {
+      return "lookup" + (periodic ? "~" : "") + "[" + xs.length + "](" + argument + ")";
+    }
+  }
+
+}
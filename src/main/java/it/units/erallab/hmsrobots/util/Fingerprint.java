@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import it.units.erallab.hmsrobots.core.controllers.CentralizedSensing;
+import it.units.erallab.hmsrobots.core.controllers.Controller;
+import it.units.erallab.hmsrobots.core.controllers.PhaseSin;
+import it.units.erallab.hmsrobots.core.controllers.TimeFunctions;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An immutable SHA-256 digest identifying some content, to be used as a key for caching evaluations. Bodies are
+ * translation-normalized, i.e., cropped to their bounding box before being packed, so that two bodies which differ only
+ * by a translation in their grids have the same fingerprint. Fingerprints of different parts (e.g., body, controller,
+ * task configuration) are composed with {@link #and(Fingerprint...)}, which is order-sensitive.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public final class Fingerprint implements Serializable {
+
+  public static final int BYTES = 32;
+
+  private static final String ALGORITHM = "SHA-256";
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final byte BODY_TAG = 'B';
+  private static final byte STRING_TAG = 'S';
+  private static final byte JSON_TAG = 'J';
+  private static final byte COMPOSITION_TAG = 'C';
+
+  private final byte[] digest;
+
+  private Fingerprint(byte[] digest) {
+    checkLength(digest);
+    this.digest = digest;
+  }
+
+  private static void checkLength(byte[] digest) {
+    if (digest.length != BYTES) {
+      throw new IllegalArgumentException(String.format(
+          "Invalid fingerprint: %d bytes instead of %d",
+          digest.length, BYTES
+      ));
+    }
+  }
+
+  public static Fingerprint of(BooleanGrid body) {
+    BooleanGrid cropped = body.crop();
+    int w = cropped.getW();
+    int h = cropped.getH();
+    //pack cells by rows, 8 per byte, preceded by the size of the cropped grid
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 2 + (w * h + 7) / 8);
+    buffer.putInt(w).putInt(h);
+    int current = 0;
+    int nOfBits = 0;
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        current = (current << 1) | (cropped.get(x, y) ? 1 : 0);
+        nOfBits = nOfBits + 1;
+        if (nOfBits == 8) {
+          buffer.put((byte) current);
+          current = 0;
+          nOfBits = 0;
+        }
+      }
+    }
+    if (nOfBits > 0) {
+      buffer.put((byte) (current << (8 - nOfBits)));
+    }
+    MessageDigest messageDigest = messageDigest(BODY_TAG);
+    messageDigest.update(buffer.array());
+    return new Fingerprint(messageDigest.digest());
+  }
+
+  public static Fingerprint of(Grid<Boolean> body) {
+    return of(BooleanGrid.from(body));
+  }
+
+  public static Fingerprint of(String... strings) {
+    MessageDigest messageDigest = messageDigest(STRING_TAG);
+    for (String string : strings) {
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      messageDigest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+      messageDigest.update(bytes);
+    }
+    return new Fingerprint(messageDigest.digest());
+  }
+
+  /**
+   * Returns the fingerprint of the JSON serialization of the object, which is streamed to the digest without being
+   * stored; the object has to be serializable with {@link SerializationUtils.Mode#JSON}.
+   */
+  public static Fingerprint ofJson(Object object) {
+    MessageDigest messageDigest = messageDigest(JSON_TAG);
+    try (DigestOutputStream outputStream = new DigestOutputStream(OutputStream.nullOutputStream(), messageDigest)) {
+      SerializationUtils.serialize(object, SerializationUtils.Mode.JSON, outputStream);
+    } catch (IOException e) {
+      throw new IllegalArgumentException(String.format("Cannot fingerprint %s due to %s", object.getClass().getSimpleName(), e), e);
+    }
+    return new Fingerprint(messageDigest.digest());
+  }
+
+  /**
+   * Returns the fingerprint of a robot as the composition of the fingerprints of its morphology (translation-normalized
+   * body), of its sensorization and materials (the voxels, cropped to the body), and of its controller. Controllers
+   * which look up their state by absolute grid position ({@link TimeFunctions}, {@link PhaseSin}) are translated by the
+   * same offset as the body, and masked to it, before being fingerprinted; controllers which are not known to be
+   * translation-invariant are fingerprinted together with the offset, so that translated bodies do not share a
+   * fingerprint.
+   */
+  public static Fingerprint of(Robot<?> robot) {
+    Grid<?> voxels = robot.getVoxels();
+    BooleanGrid body = BooleanGrid.from(voxels, Objects::nonNull);
+    int minX = voxels.getW();
+    int minY = voxels.getH();
+    for (Grid.Entry<?> entry : voxels) {
+      if (entry.getValue() != null) {
+        minX = Math.min(minX, entry.getX());
+        minY = Math.min(minY, entry.getY());
+      }
+    }
+    return of(body).and(
+        ofJson(Utils.cropGrid(voxels, Objects::nonNull)),
+        ofController(robot.getController(), body.crop(), minX, minY)
+    );
+  }
+
+  private static Fingerprint ofController(Controller<?> controller, BooleanGrid body, int minX, int minY) {
+    if (controller.getClass().equals(CentralizedSensing.class)) {
+      //reads the voxels in grid order, which is not affected by a translation
+      return ofJson(controller);
+    }
+    if (controller.getClass().equals(PhaseSin.class)) {
+      PhaseSin phaseSin = (PhaseSin) controller;
+      return ofJson(new PhaseSin(
+          phaseSin.getFrequency(),
+          phaseSin.getAmplitude(),
+          translate(phaseSin.getPhases(), body, minX, minY)
+      ));
+    }
+    if (controller.getClass().equals(TimeFunctions.class)) {
+      return ofJson(new TimeFunctions(translate(((TimeFunctions) controller).getFunctions(), body, minX, minY)));
+    }
+    return ofJson(controller).and(of(Integer.toString(minX), Integer.toString(minY)));
+  }
+
+  private static <K> Grid<K> translate(Grid<K> grid, BooleanGrid body, int minX, int minY) {
+    return Grid.create(body.getW(), body.getH(), (x, y) -> body.get(x, y) ? grid.get(x + minX, y + minY) : null);
+  }
+
+  public Fingerprint and(Fingerprint... others) {
+    MessageDigest messageDigest = messageDigest(COMPOSITION_TAG);
+    messageDigest.update(digest);
+    for (Fingerprint other : others) {
+      messageDigest.update(other.digest);
+    }
+    return new Fingerprint(messageDigest.digest());
+  }
+
+  public static Fingerprint fromString(String hex) {
+    if (hex.length() != BYTES * 2) {
+      throw new IllegalArgumentException(String.format(
+          "Invalid fingerprint %s: %d hexadecimal digits instead of %d",
+          hex, hex.length(), BYTES * 2
+      ));
+    }
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      int high = Character.digit(hex.charAt(i * 2), 16);
+      int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+      if (high < 0 || low < 0) {
+        throw new IllegalArgumentException(String.format("Invalid fingerprint %s: not hexadecimal", hex));
+      }
+      bytes[i] = (byte) ((high << 4) | low);
+    }
+    return new Fingerprint(bytes);
+  }
+
+  public static Fingerprint fromBytes(byte[] bytes) {
+    return new Fingerprint(bytes.clone());
+  }
+
+  public byte[] toBytes() {
+    return digest.clone();
+  }
+
+  @Serial
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    try {
+      checkLength(digest);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidObjectException(e.getMessage());
+    }
+  }
+
+  private static MessageDigest messageDigest(byte tag) {
+    try {
+      MessageDigest messageDigest = MessageDigest.getInstance(ALGORITHM);
+      messageDigest.update(tag);
+      return messageDigest;
+    } catch (NoSuchAlgorithmException e) {
+      //every java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    Fingerprint that = (Fingerprint) o;
+    return Arrays.equals(digest, that.digest);
+  }
+
+  @Override
+  public int hashCode() {
+    return ByteBuffer.wrap(digest).getInt();
+  }
+
+  @Override
+  public String toString() {
+    char[] chars = new char[digest.length * 2];
+    for (int i = 0; i < digest.length; i++) {
+      chars[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+      chars[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xF];
+    }
+    return new String(chars);
+  }
+
+}
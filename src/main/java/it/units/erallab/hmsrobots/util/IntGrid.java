@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A grid of ints stored in an array. Iteration through {@link #forEach(CellConsumer)} does not allocate; {@link
+ * #toGrid()} and {@link #from(Grid)} bridge to the generic {@link Grid}.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class IntGrid implements Serializable {
+
+  @FunctionalInterface
+  public interface CellConsumer {
+    void accept(int x, int y, int value);
+  }
+
+  @FunctionalInterface
+  public interface Filler {
+    int apply(int x, int y);
+  }
+
+  private final int w;
+  private final int h;
+  private final int[] values;
+
+  public IntGrid(int w, int h) {
+    this.w = w;
+    this.h = h;
+    values = new int[w * h];
+  }
+
+  public static IntGrid create(int w, int h, Filler filler) {
+    IntGrid grid = new IntGrid(w, h);
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        grid.values[y * w + x] = filler.apply(x, y);
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Builds a grid with the values of the given grid, where {@code null} values become 0.
+   */
+  public static IntGrid from(Grid<Integer> grid) {
+    return create(grid.getW(), grid.getH(), (x, y) -> grid.get(x, y) == null ? 0 : grid.get(x, y));
+  }
+
+  public Grid<Integer> toGrid() {
+    return Grid.create(w, h, (x, y) -> get(x, y));
+  }
+
+  public int getW() {
+    return w;
+  }
+
+  public int getH() {
+    return h;
+  }
+
+  public int get(int x, int y) {
+    check(x, y, "get");
+    return values[y * w + x];
+  }
+
+  public void set(int x, int y, int value) {
+    check(x, y, "set");
+    values[y * w + x] = value;
+  }
+
+  private void check(int x, int y, String action) {
+    if (x < 0 || x >= w || y < 0 || y >= h) {
+      throw new IllegalArgumentException(String.format(
+          "Cannot %s element at %d,%d on a %dx%d grid",
+          action, x, y, w, h
+      ));
+    }
+  }
+
+  public void fill(int value) {
+    Arrays.fill(values, value);
+  }
+
+  public void forEach(CellConsumer consumer) {
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        consumer.accept(x, y, values[y * w + x]);
+      }
+    }
+  }
+
+  public int count(IntPredicate predicate) {
+    int count = 0;
+    for (int value : values) {
+      if (predicate.test(value)) {
+        count = count + 1;
+      }
+    }
+    return count;
+  }
+
+  public long sum() {
+    long sum = 0;
+    for (int value : values) {
+      sum = sum + value;
+    }
+    return sum;
+  }
+
+  public int max() {
+    return Arrays.stream(values).max().orElse(0);
+  }
+
+  public int min() {
+    return Arrays.stream(values).min().orElse(0);
+  }
+
+  public BooleanGrid toBooleanGrid(IntPredicate predicate) {
+    return BooleanGrid.create(w, h, (x, y) -> predicate.test(values[y * w + x]));
+  }
+
+  public IntGrid copy() {
+    IntGrid copy = new IntGrid(w, h);
+    System.arraycopy(values, 0, copy.values, 0, values.length);
+    return copy;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    IntGrid intGrid = (IntGrid) o;
+    return w == intGrid.w && h == intGrid.h && Arrays.equals(values, intGrid.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * w + h) + Arrays.hashCode(values);
+  }
+
+  @Override
+  public String toString() {
+    return Grid.toString(toGrid(), "%3d");
+  }
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An index of fixed-length vectors of doubles keyed by {@link Fingerprint}s, stored in a memory-mapped file which can be
+ * shared by many processes on the same machine. The file is a header followed by an open-addressing hash table with
+ * linear probing, whose slots are made of a state, the key, and the values; lookups probe the mapped table directly,
+ * hence nothing is copied on the heap. A slot is committed by setting its state after writing the key and the values,
+ * hence a process dying while appending leaves no partial records. When the table is half full, a table twice as large
+ * is built after it in the file and then committed by updating its capacity in the header: outgrown tables are left in
+ * the file, which is hence at most twice as large as the current table. Lookups are done under a shared {@link
+ * FileLock}, appends under an exclusive one.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class MappedIndex implements Closeable {
+
+  private static final int MAGIC = 0x56534958;
+  private static final int VERSION = 2;
+  private static final int HEADER_BYTES = 32;
+  private static final int VALUE_LENGTH_OFFSET = 8;
+  private static final int COUNT_OFFSET = 16;
+  private static final int CAPACITY_OFFSET = 24;
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final long COMMITTED = 1L;
+  private static final int KEY_LONGS = Fingerprint.BYTES / Long.BYTES;
+
+  //file locks are held by the whole jvm, hence instances on the same file have to be serialized also locally
+  private static final ConcurrentMap<Path, Object> LOCAL_LOCKS = new ConcurrentHashMap<>();
+
+  private final Path path;
+  private final int valueLength;
+  private final int slotBytes;
+  private final FileChannel channel;
+  private final Object localLock;
+  private MappedByteBuffer buffer;
+
+  public MappedIndex(File file, int valueLength) throws IOException {
+    if (valueLength < 0) {
+      throw new IllegalArgumentException(String.format("Value length must be non-negative: %d found", valueLength));
+    }
+    this.valueLength = valueLength;
+    slotBytes = Long.BYTES + Fingerprint.BYTES + Double.BYTES * valueLength;
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    path = file.toPath().toRealPath();
+    localLock = LOCAL_LOCKS.computeIfAbsent(path, p -> new Object());
+    try {
+      synchronized (localLock) {
+        FileLock lock = channel.lock();
+        try {
+          if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(valueLength);
+            header.putLong(CAPACITY_OFFSET, INITIAL_CAPACITY);
+            channel.write(header.rewind(), 0);
+            extend(tableEnd(INITIAL_CAPACITY));
+          }
+          buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+          if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(String.format("Cannot open index %s: not an index file", path));
+          }
+          if (buffer.getInt(VALUE_LENGTH_OFFSET) != valueLength) {
+            throw new IOException(String.format(
+                "Cannot open index %s: values have length %d instead of %d",
+                path, buffer.getInt(VALUE_LENGTH_OFFSET), valueLength
+            ));
+          }
+        } finally {
+          lock.release();
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a copy of the values for the key, or {@code null} if the key is not in the index.
+   */
+  public double[] get(Fingerprint key) throws IOException {
+    long[] keyLongs = keyLongs(key);
+    synchronized (localLock) {
+      FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+      try {
+        long capacity = remap();
+        long offset = find(keyLongs, capacity);
+        if (offset < 0) {
+          return null;
+        }
+        double[] values = new double[valueLength];
+        for (int i = 0; i < valueLength; i++) {
+          values[i] = buffer.getDouble(Math.toIntExact(offset + Long.BYTES + Fingerprint.BYTES + (long) i * Double.BYTES));
+        }
+        return values;
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  /**
+   * Appends the values for the key, unless the key is already in the index, possibly because it has been appended by
+   * another process.
+   *
+   * @return {@code true} if the values have been appended
+   */
+  public boolean put(Fingerprint key, double[] values) throws IOException {
+    if (values.length != valueLength) {
+      throw new IllegalArgumentException(String.format("Values must have length %d: %d found", valueLength, values.length));
+    }
+    long[] keyLongs = keyLongs(key);
+    synchronized (localLock) {
+      FileLock lock = channel.lock();
+      try {
+        long capacity = remap();
+        long offset = find(keyLongs, capacity);
+        if (offset >= 0) {
+          return false;
+        }
+        long count = buffer.getLong(COUNT_OFFSET);
+        if ((count + 1) * 2 > capacity) {
+          capacity = grow(capacity);
+          count = buffer.getLong(COUNT_OFFSET);
+          offset = find(keyLongs, capacity);
+        }
+        write(-offset - 1, keyLongs, values);
+        buffer.putLong(COUNT_OFFSET, count + 1);
+        return true;
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  public int size() throws IOException {
+    synchronized (localLock) {
+      FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+      try {
+        return Math.toIntExact(buffer.getLong(COUNT_OFFSET));
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  public int getValueLength() {
+    return valueLength;
+  }
+
+  /**
+   * Forces the appended records to the storage device and closes the file; the mapping is released by the garbage
+   * collector.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (localLock) {
+      if (channel.isOpen()) {
+        buffer.force();
+        channel.close();
+      }
+    }
+  }
+
+  private static long[] keyLongs(Fingerprint key) {
+    long[] keyLongs = new long[KEY_LONGS];
+    ByteBuffer.wrap(key.toBytes()).asLongBuffer().get(keyLongs);
+    return keyLongs;
+  }
+
+  //tables of increasing capacities, starting from the initial one, are laid out one after the other
+  private long tableOffset(long capacity) {
+    return HEADER_BYTES + (capacity - INITIAL_CAPACITY) * slotBytes;
+  }
+
+  private long tableEnd(long capacity) {
+    return tableOffset(capacity) + capacity * slotBytes;
+  }
+
+  //maps the table grown by other instances or processes, if any, and returns the current capacity: to be called under a file lock
+  private long remap() throws IOException {
+    long capacity = buffer.getLong(CAPACITY_OFFSET);
+    if (tableEnd(capacity) > buffer.capacity()) {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    }
+    return capacity;
+  }
+
+  //returns the offset of the slot of the key, if any, or -1 minus the offset of the empty slot where it should go
+  private long find(long[] keyLongs, long capacity) {
+    long tableOffset = tableOffset(capacity);
+    long mask = capacity - 1;
+    long index = keyLongs[0] & mask;
+    while (true) {
+      int offset = Math.toIntExact(tableOffset + index * slotBytes);
+      if (buffer.getLong(offset) != COMMITTED) {
+        return -offset - 1L;
+      }
+      boolean equal = true;
+      for (int i = 0; i < KEY_LONGS && equal; i++) {
+        equal = buffer.getLong(offset + Long.BYTES + i * Long.BYTES) == keyLongs[i];
+      }
+      if (equal) {
+        return offset;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  private void write(long offset, long[] keyLongs, double[] values) {
+    int intOffset = Math.toIntExact(offset);
+    for (int i = 0; i < KEY_LONGS; i++) {
+      buffer.putLong(intOffset + Long.BYTES + i * Long.BYTES, keyLongs[i]);
+    }
+    for (int i = 0; i < values.length; i++) {
+      buffer.putDouble(intOffset + Long.BYTES + Fingerprint.BYTES + i * Double.BYTES, values[i]);
+    }
+    //commit
+    buffer.putLong(intOffset, COMMITTED);
+  }
+
+  //builds a table twice as large after the current one and commits it: to be called under an exclusive file lock
+  private long grow(long capacity) throws IOException {
+    long newCapacity = capacity * 2;
+    //drop what a process dying while growing may have left, so that the new table starts empty
+    channel.truncate(tableEnd(capacity));
+    extend(tableEnd(newCapacity));
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    long tableOffset = tableOffset(capacity);
+    long[] keyLongs = new long[KEY_LONGS];
+    double[] values = new double[valueLength];
+    long count = 0;
+    for (long index = 0; index < capacity; index++) {
+      int offset = Math.toIntExact(tableOffset + index * slotBytes);
+      if (buffer.getLong(offset) == COMMITTED) {
+        for (int i = 0; i < KEY_LONGS; i++) {
+          keyLongs[i] = buffer.getLong(offset + Long.BYTES + i * Long.BYTES);
+        }
+        for (int i = 0; i < valueLength; i++) {
+          values[i] = buffer.getDouble(offset + Long.BYTES + Fingerprint.BYTES + i * Double.BYTES);
+        }
+        write(-find(keyLongs, newCapacity) - 1, keyLongs, values);
+        count = count + 1;
+      }
+    }
+    //commit
+    buffer.putLong(COUNT_OFFSET, count);
+    buffer.putLong(CAPACITY_OFFSET, newCapacity);
+    return newCapacity;
+  }
+
+  private void extend(long size) throws IOException {
+    channel.write(ByteBuffer.allocate(1), size - 1);
+  }
+
+}
@@ -31,7 +31,7 @@ public class RobotUtils {
       Map.entry("px", (x, y) -> new Constant(x)),
       Map.entry("py", (x, y) -> new Constant(y)),
       Map.entry("m", (x, y) -> new Malfunction()),
-      Map.entry("cpg", (x, y) -> new Normalization(new TimeFunction(t -> Math.sin(2 * Math.PI * -1 * t), -1, 1))),
+      Map.entry("cpg", (x, y) -> new Normalization(new TimeFunction(Expression.sinusoid(1d, -1d, 0d), -1, 1))),
       Map.entry("l5", (x, y) -> new Lidar(10d, Map.of(lidarSide(x, y), 5))),
       Map.entry("l1", (x, y) -> new Lidar(10d, Map.of(lidarSide(x, y), 1)))
   ));
@@ -79,7 +79,7 @@ public class RobotUtils {
         public Robot<?> apply(Robot<?> robot) {
           return new Robot<>(
               ((Robot<SensingVoxel>) robot).getController(),
-              Grid.create(SerializationUtils.clone((Grid<SensingVoxel>) robot.getVoxels()), v -> v == null ? null : new BreakableVoxel(
+              Grid.create((Grid<SensingVoxel>) robot.getVoxels(), v -> v == null ? null : new BreakableVoxel(
                   v.getSensors(),
                   random.nextInt(),
                   Map.of(
@@ -109,7 +109,7 @@ public class RobotUtils {
         public Robot<?> apply(Robot<?> robot) {
           return new Robot<>(
               ((Robot<SensingVoxel>) robot).getController(),
-              Grid.create(SerializationUtils.clone((Grid<SensingVoxel>) robot.getVoxels()), v -> v == null ? null : random.nextDouble() > ratio ? v : new BreakableVoxel(
+              Grid.create((Grid<SensingVoxel>) robot.getVoxels(), v -> v == null ? null : random.nextDouble() > ratio ? v.copy() : new BreakableVoxel(
                   v.getSensors(),
                   random.nextInt(),
                   Map.of(BreakableVoxel.ComponentType.ACTUATOR, Set.of(BreakableVoxel.MalfunctionType.FROZEN)),
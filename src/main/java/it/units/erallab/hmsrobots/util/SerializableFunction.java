@@ -16,6 +16,7 @@
  */
 package it.units.erallab.hmsrobots.util;
 
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
@@ -23,9 +24,13 @@ import java.io.Serializable;
 import java.util.function.Function;
 
 /**
+ * A function that can be serialized. Lambdas are serialized as Java-serialized binary blobs; {@link Expression}s,
+ * which should be preferred, are serialized as structured data.
+ *
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
 @FunctionalInterface
+@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, property = "@class")
 @JsonSerialize(using = SerializationUtils.LambdaJsonSerializer.class)
 @JsonDeserialize(using = SerializationUtils.LambdaJsonDeserializer.class)
 public interface SerializableFunction<T, R> extends Function<T, R>, Serializable {
@@ -10,7 +10,12 @@ import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
@@ -23,13 +28,17 @@ public class SerializationUtils {
   private SerializationUtils() {
   }
 
-  public enum Mode {JAVA, JSON, PRETTY_JSON, GZIPPED_JAVA, GZIPPED_JSON}
+  public enum Mode {JAVA, JSON, PRETTY_JSON, GZIPPED_JAVA, GZIPPED_JSON, BINARY}
 
   private static final Logger L = Logger.getLogger(Utils.class.getName());
   private static final Mode DEFAULT_SERIALIZATION_MODE = Mode.GZIPPED_JSON;
   private static final Mode DEFAULT_CLONE_MODE = Mode.JAVA;
   private static final ObjectMapper OM;
   private static final ObjectMapper PRETTY_OM;
+  private static final ConcurrentMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<Class<?>, ObjectWriter> PRETTY_WRITERS = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+  private static final int BUFFER_SIZE = 8192;
 
   static {
     OM = new ObjectMapper();
@@ -68,10 +77,13 @@ public class SerializationUtils {
   public static class LambdaJsonDeserializer extends JsonDeserializer<SerializableFunction<?, ?>> {
     @Override
     public SerializableFunction<?, ?> deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException, JsonProcessingException {
+      if (jsonParser.isExpectedStartObjectToken()) {
+        return deserializationContext.readValue(jsonParser, Expression.class);
+      }
       byte[] value = jsonParser.getBinaryValue();
       try (
           ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(value);
-          ObjectInputStream inputStream = new ObjectInputStream(byteArrayInputStream)
+          ObjectInputStream inputStream = new LambdaResolvingObjectInputStream(byteArrayInputStream)
       ) {
         return (SerializableFunction<?, ?>) inputStream.readObject();
       } catch (ClassNotFoundException e) {
@@ -81,6 +93,10 @@ public class SerializationUtils {
 
     @Override
     public Object deserializeWithType(JsonParser jsonParser, DeserializationContext deserializationContext, TypeDeserializer typeDeserializer) throws IOException {
+      if (jsonParser.isExpectedStartObjectToken()) {
+        //structured functions, i.e., expressions, carry their type
+        return typeDeserializer.deserializeTypedFromObject(jsonParser, deserializationContext);
+      }
       return deserialize(jsonParser, deserializationContext);
     }
   }
@@ -98,18 +114,26 @@ public class SerializationUtils {
   }
 
   public static <T> T clone(T t, Mode mode) {
-    return (T) deserialize(serialize(t, mode), t.getClass(), mode);
+    try {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      serialize(t, mode, baos);
+      return (T) deserialize(new ByteArrayInputStream(baos.toByteArray()), t.getClass(), mode);
+    } catch (IOException e) {
+      L.log(Level.SEVERE, String.format("Cannot clone due to %s", e), e);
+      return null;
+    }
   }
 
   public static String serialize(Object object, Mode mode) {
     try {
-      return switch (mode) {
-        case JAVA -> encode(javaSerialize(object));
-        case JSON -> jsonSerialize(object, false);
-        case PRETTY_JSON -> jsonSerialize(object, true);
-        case GZIPPED_JAVA -> encode(gzip(javaSerialize(object)));
-        case GZIPPED_JSON -> encode(gzip(jsonSerialize(object, false).getBytes()));
-      };
+      if (mode.equals(Mode.JSON) || mode.equals(Mode.PRETTY_JSON)) {
+        return writer(object.getClass(), mode.equals(Mode.PRETTY_JSON)).writeValueAsString(object);
+      }
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      try (OutputStream outputStream = Base64.getEncoder().wrap(baos)) {
+        serialize(object, mode, outputStream);
+      }
+      return baos.toString(StandardCharsets.US_ASCII);
     } catch (IOException e) {
       L.log(Level.SEVERE, String.format("Cannot serialize due to %s", e), e);
       return "";
@@ -118,84 +142,148 @@ public class SerializationUtils {
 
   public static <T> T deserialize(String string, Class<T> tClass, Mode mode) {
     try {
-      return switch (mode) {
-        case JAVA -> javaDeserialize(decode(string), tClass);
-        case JSON, PRETTY_JSON -> jsonDeserialize(string, tClass);
-        case GZIPPED_JAVA -> javaDeserialize(ungzip(decode(string)), tClass);
-        case GZIPPED_JSON -> jsonDeserialize(new String(ungzip(decode(string))), tClass);
-      };
+      if (mode.equals(Mode.JSON) || mode.equals(Mode.PRETTY_JSON)) {
+        return reader(tClass).readValue(string);
+      }
+      return deserialize(
+          Base64.getDecoder().wrap(new ByteArrayInputStream(string.getBytes(StandardCharsets.US_ASCII))),
+          tClass,
+          mode
+      );
     } catch (IOException e) {
       L.log(Level.SEVERE, String.format("Cannot deserialize due to %s", e), e);
       return null;
     }
   }
 
-  private static byte[] javaSerialize(Object object) throws IOException {
-    try (
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ObjectOutputStream oos = new ObjectOutputStream(baos)
-    ) {
-      oos.writeObject(object);
-      oos.flush();
-      return baos.toByteArray();
+  /**
+   * Writes the object directly to the stream, without intermediate copies; the stream is flushed but not closed.
+   */
+  public static void serialize(Object object, Mode mode, OutputStream outputStream) throws IOException {
+    OutputStream target = new UnclosableOutputStream(outputStream);
+    switch (mode) {
+      case JAVA -> {
+        try (ObjectOutputStream oos = new ObjectOutputStream(target)) {
+          oos.writeObject(object);
+        }
+      }
+      case JSON, PRETTY_JSON -> writer(object.getClass(), mode.equals(Mode.PRETTY_JSON)).writeValue(target, object);
+      case GZIPPED_JAVA -> {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new GZIPOutputStream(target, BUFFER_SIZE))) {
+          oos.writeObject(object);
+        }
+      }
+      case GZIPPED_JSON -> {
+        try (GZIPOutputStream gos = new GZIPOutputStream(target, BUFFER_SIZE)) {
+          writer(object.getClass(), false).writeValue(gos, object);
+        }
+      }
+      case BINARY -> writeBinary(object, target);
     }
+    outputStream.flush();
   }
 
-  private static <T> T javaDeserialize(byte[] raw, Class<T> tClass) throws IOException {
-    try (
-        ByteArrayInputStream bais = new ByteArrayInputStream(raw);
-        ObjectInputStream ois = new ObjectInputStream(bais)
-    ) {
-      Object o = ois.readObject();
-      return (T) o;
-    } catch (ClassNotFoundException e) {
-      throw new IOException(e);
+  /**
+   * Reads an object directly from the stream, without intermediate copies; the stream is not closed, but, except for
+   * {@link Mode#JAVA}, it might be consumed beyond the end of the object.
+   */
+  public static <T> T deserialize(InputStream inputStream, Class<T> tClass, Mode mode) throws IOException {
+    InputStream source = new UnclosableInputStream(inputStream);
+    return switch (mode) {
+      case JAVA -> javaDeserialize(source, tClass);
+      case JSON, PRETTY_JSON -> reader(tClass).readValue(source);
+      case GZIPPED_JAVA -> javaDeserialize(new GZIPInputStream(source, BUFFER_SIZE), tClass);
+      case GZIPPED_JSON -> {
+        try (GZIPInputStream gis = new GZIPInputStream(source, BUFFER_SIZE)) {
+          yield reader(tClass).readValue(gis);
+        }
+      }
+      case BINARY -> readBinary(source, tClass);
+    };
+  }
+
+  public static void writeBinary(Object object, OutputStream outputStream) throws IOException {
+    try (JsonGenerator generator = BinaryCodec.generator(OM, outputStream)) {
+      writer(object.getClass(), false).writeValue(generator, object);
     }
   }
 
-  private static String jsonSerialize(Object object, boolean pretty) throws IOException {
-    return pretty ? PRETTY_OM.writeValueAsString(object) : OM.writeValueAsString(object);
+  public static <T> T readBinary(InputStream inputStream, Class<T> tClass) throws IOException {
+    try (JsonParser parser = BinaryCodec.parser(OM, inputStream)) {
+      return reader(tClass).readValue(parser);
+    }
   }
 
-  private static <T> T jsonDeserialize(String string, Class<T> tClass) throws IOException {
-    return OM.readValue(string, tClass);
+  public static void writeBinary(Object object, Path path) throws IOException {
+    try (OutputStream outputStream = Files.newOutputStream(path)) {
+      writeBinary(object, outputStream);
+    }
   }
 
-  private static byte[] gzip(byte[] raw) throws IOException {
-    try (
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        GZIPOutputStream gos = new GZIPOutputStream(baos, true);
-    ) {
-      gos.write(raw);
-      gos.flush();
-      gos.close();
-      return baos.toByteArray();
+  public static <T> T readBinary(Path path, Class<T> tClass) throws IOException {
+    try (InputStream inputStream = Files.newInputStream(path)) {
+      return readBinary(inputStream, tClass);
     }
   }
 
-  private static byte[] ungzip(byte[] raw) throws IOException {
-    try (
-        ByteArrayInputStream bais = new ByteArrayInputStream(raw);
-        GZIPInputStream gis = new GZIPInputStream(bais);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    ) {
-      byte[] buf = new byte[1024];
-      while (true) {
-        int read = gis.read(buf);
-        if (read == -1) {
-          break;
-        }
-        baos.write(buf, 0, read);
+  private static ObjectWriter writer(Class<?> tClass, boolean pretty) {
+    return pretty ? PRETTY_WRITERS.computeIfAbsent(tClass, PRETTY_OM::writerFor) : WRITERS.computeIfAbsent(tClass, OM::writerFor);
+  }
+
+  private static ObjectReader reader(Class<?> tClass) {
+    return READERS.computeIfAbsent(tClass, OM::readerFor);
+  }
+
+  private static <T> T javaDeserialize(InputStream inputStream, Class<T> tClass) throws IOException {
+    try (ObjectInputStream ois = new LambdaResolvingObjectInputStream(inputStream)) {
+      Object o = ois.readObject();
+      return (T) o;
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Reads lambdas through {@link SerializedLambda}, which also resolves lambdas removed from this library.
+   */
+  private static class LambdaResolvingObjectInputStream extends ObjectInputStream {
+    public LambdaResolvingObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+      if (desc.getName().equals(java.lang.invoke.SerializedLambda.class.getName())) {
+        return SerializedLambda.class;
       }
-      return baos.toByteArray();
+      return super.resolveClass(desc);
     }
   }
 
-  private static String encode(byte[] raw) {
-    return Base64.getEncoder().encodeToString(raw);
+  private static class UnclosableOutputStream extends FilterOutputStream {
+    public UnclosableOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
   }
 
-  private static byte[] decode(String string) {
-    return Base64.getDecoder().decode(string);
+  private static class UnclosableInputStream extends FilterInputStream {
+    public UnclosableInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public void close() {
+    }
   }
+
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import it.units.erallab.hmsrobots.core.controllers.DistributedSensing;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A stand-in for {@link java.lang.invoke.SerializedLambda} used when reading Java-serialized data (see
+ * {@link SerializationUtils}): Java serialization matches classes by their simple name, hence the name of this class.
+ * A lambda is resolved, as the JDK does, through the {@code $deserializeLambda$} method of its capturing class; if the
+ * lambda has been removed from that class, it is resolved to an equivalent function, if any, so that robots serialized
+ * with older versions of this library can still be read.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+final class SerializedLambda implements Serializable {
+
+  @Serial
+  private static final long serialVersionUID = 8025925345765570181L;
+
+  //removed lambda sites, by implementation class and method
+  private static final Map<String, Function<Object[], Object>> REMOVED = Map.of(
+      "it/units/erallab/hmsrobots/core/controllers/PhaseSin.lambda$getFunctions$481965c5$1",
+      args -> Expression.sinusoid((Double) args[2], (Double) args[0], (Double) ((Grid.Entry<?>) args[1]).getValue()),
+      "it/units/erallab/hmsrobots/util/RobotUtils.lambda$static$3fed5817$1",
+      args -> Expression.sinusoid(1d, -1d, 0d),
+      "it/units/erallab/hmsrobots/core/controllers/DistributedSensing.lambda$new$ff8d35da$1",
+      args -> DistributedSensing.zeroFunction((Integer) args[0])
+  );
+
+  private Class<?> capturingClass;
+  private String functionalInterfaceClass;
+  private String functionalInterfaceMethodName;
+  private String functionalInterfaceMethodSignature;
+  private String implClass;
+  private String implMethodName;
+  private String implMethodSignature;
+  private int implMethodKind;
+  private String instantiatedMethodType;
+  private Object[] capturedArgs;
+
+  @Serial
+  private Object readResolve() throws ObjectStreamException {
+    Exception cause;
+    try {
+      Method method = capturingClass.getDeclaredMethod("$deserializeLambda$", java.lang.invoke.SerializedLambda.class);
+      method.setAccessible(true);
+      return method.invoke(null, new java.lang.invoke.SerializedLambda(
+          capturingClass,
+          functionalInterfaceClass,
+          functionalInterfaceMethodName,
+          functionalInterfaceMethodSignature,
+          implMethodKind,
+          implClass,
+          implMethodName,
+          implMethodSignature,
+          instantiatedMethodType,
+          capturedArgs
+      ));
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | RuntimeException e) {
+      cause = e;
+    }
+    Function<Object[], Object> replacement = REMOVED.get(implClass + "." + implMethodName);
+    if (replacement != null) {
+      return replacement.apply(capturedArgs);
+    }
+    InvalidObjectException exception = new InvalidObjectException(String.format(
+        "Cannot resolve lambda %s.%s due to %s",
+        implClass, implMethodName, cause
+    ));
+    exception.initCause(cause);
+    throw exception;
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded lock-free queue which may be used by at most one producer thread and at most one consumer thread at the
+ * same time. The producer publishes an element by advancing the tail after having stored it; the consumer frees a
+ * slot by advancing the head after having cleared it.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SpscRingBuffer<E> {
+
+  private final Object[] buffer;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+
+  public SpscRingBuffer(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(String.format("Capacity must be positive: %d found", capacity));
+    }
+    buffer = new Object[capacity];
+  }
+
+  public boolean offer(E e) {
+    if (e == null) {
+      throw new NullPointerException("Null elements are not allowed");
+    }
+    long t = tail.get();
+    if (t - head.get() >= buffer.length) {
+      return false;
+    }
+    buffer[(int) (t % buffer.length)] = e;
+    tail.lazySet(t + 1);
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  public E peek() {
+    long h = head.get();
+    if (h >= tail.get()) {
+      return null;
+    }
+    return (E) buffer[(int) (h % buffer.length)];
+  }
+
+  @SuppressWarnings("unchecked")
+  public E poll() {
+    long h = head.get();
+    if (h >= tail.get()) {
+      return null;
+    }
+    int index = (int) (h % buffer.length);
+    E e = (E) buffer[index];
+    buffer[index] = null;
+    head.lazySet(h + 1);
+    return e;
+  }
+
+  public int size() {
+    return (int) Math.max(0L, tail.get() - head.get());
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public int capacity() {
+    return buffer.length;
+  }
+
+}
@@ -16,8 +16,6 @@
  */
 package it.units.erallab.hmsrobots.util;
 
-import com.google.common.collect.LinkedHashMultiset;
-import com.google.common.collect.Multiset;
 
 import java.util.*;
 import java.util.function.Predicate;
@@ -35,78 +33,189 @@ public class Utils {
 
   private static final Logger L = Logger.getLogger(Utils.class.getName());
 
-  public static <K> Grid<K> gridLargestConnected(Grid<K> kGrid, Predicate<K> p) {
-    Grid<Integer> iGrid = partitionGrid(kGrid, p);
-    //count elements per partition
-    Multiset<Integer> counts = LinkedHashMultiset.create();
-    for (Integer i : iGrid.values()) {
-      if (i != null) {
-        counts.add(i);
-      }
+  /**
+   * A 4-connected component of a grid, with its size and the bounds of its cells.
+   */
+  public static class Component {
+    private final int label;
+    private int size;
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+
+    private Component(int label, int x, int y) {
+      this.label = label;
+      minX = x;
+      maxX = x;
+      minY = y;
+      maxY = y;
     }
-    //find largest
-    Integer maxIndex = null;
-    int max = 0;
-    for (Integer index : counts.elementSet()) {
-      int count = counts.count(index);
-      if (count > max) {
-        max = count;
-        maxIndex = index;
-      }
+
+    private void add(int x, int y) {
+      size = size + 1;
+      minX = Math.min(minX, x);
+      maxX = Math.max(maxX, x);
+      minY = Math.min(minY, y);
+      maxY = Math.max(maxY, y);
     }
-    //if no largest, return empty
-    if (maxIndex == null) {
-      return Grid.create(kGrid);
+
+    public int getLabel() {
+      return label;
     }
-    //filter map
-    Grid<K> filtered = Grid.create(kGrid);
-    for (Grid.Entry<Integer> iEntry : iGrid) {
-      if (iEntry.getValue() != null && iEntry.getValue().equals(maxIndex)) {
-        filtered.set(iEntry.getX(), iEntry.getY(), kGrid.get(iEntry.getX(), iEntry.getY()));
+
+    public int getSize() {
+      return size;
+    }
+
+    public int getMinX() {
+      return minX;
+    }
+
+    public int getMinY() {
+      return minY;
+    }
+
+    public int getMaxX() {
+      return maxX;
+    }
+
+    public int getMaxY() {
+      return maxY;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Component{label=%d, size=%d, (%d,%d)->(%d,%d)}", label, size, minX, minY, maxX, maxY);
+    }
+  }
+
+  /**
+   * The 4-connected components of a grid: cells of the i-th component, in the order of their first cell by rows, are
+   * labeled with i+1; other cells are labeled with 0.
+   */
+  public static class Components {
+    private final IntGrid labels;
+    private final List<Component> components;
+
+    private Components(IntGrid labels, List<Component> components) {
+      this.labels = labels;
+      this.components = Collections.unmodifiableList(components);
+    }
+
+    public IntGrid getLabels() {
+      return labels;
+    }
+
+    public List<Component> getComponents() {
+      return components;
+    }
+
+    /**
+     * Returns the largest component, the first one in case of ties, or {@code null} if there are no components.
+     */
+    public Component largest() {
+      Component largest = null;
+      for (Component component : components) {
+        if (largest == null || component.size > largest.size) {
+          largest = component;
+        }
       }
+      return largest;
     }
-    return filtered;
   }
 
-  private static <K> Grid<Integer> partitionGrid(Grid<K> kGrid, Predicate<K> p) {
-    Grid<Integer> iGrid = Grid.create(kGrid);
-    for (int x = 0; x < kGrid.getW(); x++) {
-      for (int y = 0; y < kGrid.getH(); y++) {
-        if (iGrid.get(x, y) == null) {
-          int index = iGrid.values().stream().filter(Objects::nonNull).mapToInt(i -> i).max().orElse(0);
-          partitionGrid(x, y, index + 1, kGrid, iGrid, p);
+  /**
+   * Finds the 4-connected components of the cells satisfying the predicate, with union-find: a first pass joins each
+   * cell with its left and upper neighbors, a second pass labels the cells and collects sizes and bounds.
+   */
+  public static <K> Components components(Grid<K> kGrid, Predicate<K> p) {
+    return components(BooleanGrid.from(kGrid, p));
+  }
+
+  public static Components components(BooleanGrid grid) {
+    int w = grid.getW();
+    int h = grid.getH();
+    int[] parents = new int[w * h];
+    int[] sizes = new int[w * h];
+    //join
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        int i = y * w + x;
+        parents[i] = i;
+        sizes[i] = 1;
+        if (grid.get(x, y)) {
+          if (grid.get(x - 1, y)) {
+            union(parents, sizes, i, i - 1);
+          }
+          if (grid.get(x, y - 1)) {
+            union(parents, sizes, i, i - w);
+          }
         }
       }
     }
-    return iGrid;
+    //label
+    IntGrid labels = new IntGrid(w, h);
+    int[] rootLabels = new int[w * h];
+    List<Component> components = new ArrayList<>();
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        if (grid.get(x, y)) {
+          int root = find(parents, y * w + x);
+          if (rootLabels[root] == 0) {
+            components.add(new Component(components.size() + 1, x, y));
+            rootLabels[root] = components.size();
+          }
+          labels.set(x, y, rootLabels[root]);
+          components.get(rootLabels[root] - 1).add(x, y);
+        }
+      }
+    }
+    return new Components(labels, components);
   }
 
-  private static <K> void partitionGrid(int x, int y, int i, Grid<K> kGrid, Grid<Integer> iGrid, Predicate<K> p) {
-    boolean hereFilled = p.test(kGrid.get(x, y));
-    //already done
-    if (iGrid.get(x, y) != null) {
+  private static int find(int[] parents, int i) {
+    while (parents[i] != i) {
+      //path halving
+      parents[i] = parents[parents[i]];
+      i = parents[i];
+    }
+    return i;
+  }
+
+  private static void union(int[] parents, int[] sizes, int i, int j) {
+    int ri = find(parents, i);
+    int rj = find(parents, j);
+    if (ri == rj) {
       return;
     }
-    //filled but not done
-    if (hereFilled) {
-      iGrid.set(x, y, i);
-      //expand east
-      if (x > 0) {
-        partitionGrid(x - 1, y, i, kGrid, iGrid, p);
-      }
-      //expand west
-      if (x < kGrid.getW() - 1) {
-        partitionGrid(x + 1, y, i, kGrid, iGrid, p);
-      }
-      //expand north
-      if (y > 0) {
-        partitionGrid(x, y - 1, i, kGrid, iGrid, p);
-      }
-      //expand south
-      if (y < kGrid.getH() - 1) {
-        partitionGrid(x, y + 1, i, kGrid, iGrid, p);
+    if (sizes[ri] < sizes[rj]) {
+      int t = ri;
+      ri = rj;
+      rj = t;
+    }
+    parents[rj] = ri;
+    sizes[ri] = sizes[ri] + sizes[rj];
+  }
+
+  public static <K> Grid<K> gridLargestConnected(Grid<K> kGrid, Predicate<K> p) {
+    Components components = components(kGrid, p);
+    Component largest = components.largest();
+    //if no largest, return empty
+    Grid<K> filtered = Grid.create(kGrid);
+    if (largest == null) {
+      return filtered;
+    }
+    //filter map
+    IntGrid labels = components.getLabels();
+    for (int y = largest.minY; y <= largest.maxY; y++) {
+      for (int x = largest.minX; x <= largest.maxX; x++) {
+        if (labels.get(x, y) == largest.label) {
+          filtered.set(x, y, kGrid.get(x, y));
+        }
       }
     }
+    return filtered;
   }
 
   public static <K> Grid<K> cropGrid(Grid<K> inGrid, Predicate<K> p) {
@@ -115,12 +224,14 @@ public class Utils {
     int maxX = 0;
     int minY = inGrid.getH();
     int maxY = 0;
-    for (Grid.Entry<K> entry : inGrid) {
-      if (p.test(entry.getValue())) {
-        minX = Math.min(minX, entry.getX());
-        maxX = Math.max(maxX, entry.getX());
-        minY = Math.min(minY, entry.getY());
-        maxY = Math.max(maxY, entry.getY());
+    for (int y = 0; y < inGrid.getH(); y++) {
+      for (int x = 0; x < inGrid.getW(); x++) {
+        if (p.test(inGrid.get(x, y))) {
+          minX = Math.min(minX, x);
+          maxX = Math.max(maxX, x);
+          minY = Math.min(minY, y);
+          maxY = Math.max(maxY, y);
+        }
       }
     }
     //build new grid
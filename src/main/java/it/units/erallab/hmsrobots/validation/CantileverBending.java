@@ -37,6 +37,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -213,8 +214,11 @@ public class CantileverBending extends AbstractTask<Grid<ControllableVoxel>, Can
       //do step
       t = t + settings.getStepFrequency();
       world.step(1);
-      if (listener != null) {
-        Snapshot snapshot = new Snapshot(t, worldObjects.stream().map(WorldObject::immutable).collect(Collectors.toList()));
+      if (listener != null && listener.isNeeded(t)) {
+        Set<Snapshot.Content> contents = listener.requiredContents();
+        Snapshot snapshot = new Snapshot(t, worldObjects.stream()
+            .map(o -> o.immutable(contents))
+            .collect(Collectors.toList()));
         listener.listen(snapshot);
       }
       //get position
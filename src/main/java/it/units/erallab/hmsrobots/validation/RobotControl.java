@@ -25,6 +25,7 @@ import it.units.erallab.hmsrobots.core.objects.WorldObject;
 import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 import it.units.erallab.hmsrobots.tasks.AbstractTask;
 import it.units.erallab.hmsrobots.util.BoundingBox;
+import it.units.erallab.hmsrobots.util.Expression;
 import it.units.erallab.hmsrobots.util.Grid;
 import it.units.erallab.hmsrobots.util.SerializableFunction;
 import it.units.erallab.hmsrobots.viewers.SnapshotListener;
@@ -35,6 +36,7 @@ import org.dyn4j.geometry.Vector2;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -115,7 +117,7 @@ public class RobotControl extends AbstractTask<Grid<ControllableVoxel>, RobotCon
     //build voxel compound
     Grid<SerializableFunction<Double, Double>> functionGrid = Grid.create(voxels);
     for (Grid.Entry<ControllableVoxel> entry : voxels) {
-      functionGrid.set(entry.getX(), entry.getY(), t -> Math.sin(-2d * Math.PI * t * freq + 2d * Math.PI * (double) entry.getX() / (double) voxels.getW()));
+      functionGrid.set(entry.getX(), entry.getY(), Expression.sinusoid(1d, -freq, 2d * Math.PI * (double) entry.getX() / (double) voxels.getW()));
     }
     Robot<ControllableVoxel> robot = new Robot<>(
         new TimeFunctions(functionGrid),
@@ -168,8 +170,11 @@ public class RobotControl extends AbstractTask<Grid<ControllableVoxel>, RobotCon
       steps = steps + 1;
       //control
       robot.act(t);
-      if (listener != null) {
-        Snapshot snapshot = new Snapshot(t, worldObjects.stream().map(WorldObject::immutable).collect(Collectors.toList()));
+      if (listener != null && listener.isNeeded(t)) {
+        Set<Snapshot.Content> contents = listener.requiredContents();
+        Snapshot snapshot = new Snapshot(t, worldObjects.stream()
+            .map(o -> o.immutable(contents))
+            .collect(Collectors.toList()));
         listener.listen(snapshot);
       }
       //collect data
@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link SnapshotListener} which passes snapshots to an inner listener on the threads of an executor, so that the
+ * simulation thread is not stalled by slow listeners. Snapshots are kept in a bounded ring buffer, preallocated at
+ * construction; when the buffer is full, the {@link Policy} tells what to do.
+ * <p>
+ * The buffer is drained by tasks which return as soon as it is empty, or after a buffer-worth of snapshots, so that
+ * many listeners can share a bounded executor. The inner listener receives the snapshots in order, one at a time. Its
+ * {@link SnapshotListener#isNeeded(double, Double)} and {@link SnapshotListener#requiredContents()} are instead invoked
+ * on the simulation thread: sampling is decided there, with the time of the last snapshot accepted in the buffer, since
+ * the inner listener updates its own state only when it consumes the snapshots.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class AsyncSnapshotListener implements SnapshotListener, Flushable, AutoCloseable {
+
+  public enum Policy {BLOCK, DROP_OLDEST, DROP_NEWEST}
+
+  private final SnapshotListener inner;
+  private final Policy policy;
+  private final Executor executor;
+  private final Snapshot[] ring;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notFull = lock.newCondition();
+  private final Condition drained = lock.newCondition();
+
+  private int head;
+  private int size;
+  private boolean scheduled;
+  private boolean closed;
+  private volatile Double lastT;
+  private long listenedCount;
+  private long droppedCount;
+  private long processedCount;
+  private int maxQueueDepth;
+
+  private static final Logger L = Logger.getLogger(AsyncSnapshotListener.class.getName());
+  private static final Executor DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, AsyncSnapshotListener.class.getSimpleName());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public AsyncSnapshotListener(SnapshotListener inner, int capacity, Policy policy, Executor executor) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(String.format("Capacity must be at least 1: %d found", capacity));
+    }
+    this.inner = inner;
+    this.policy = policy;
+    this.executor = executor;
+    ring = new Snapshot[capacity];
+  }
+
+  public AsyncSnapshotListener(SnapshotListener inner, int capacity, Policy policy) {
+    this(inner, capacity, policy, DEFAULT_EXECUTOR);
+  }
+
+  /**
+   * Wraps each listener of a {@link GridSnapshotListener} in an {@link AsyncSnapshotListener}. Flushing the returned
+   * listener closes all the wrapping listeners (hence waits for all the snapshots to be consumed) and then flushes the
+   * inner one, if it is {@link Flushable}. The executor may have fewer threads than the listeners. The end of the
+   * episode of a cell is passed to the inner listener once the snapshots of that cell have been consumed.
+   */
+  public static GridSnapshotListener grid(GridSnapshotListener inner, int capacity, Policy policy, Executor executor) {
+    return new AsyncGridSnapshotListener(inner, capacity, policy, executor);
+  }
+
+  private static class AsyncGridSnapshotListener implements GridSnapshotListener, Flushable {
+    private final GridSnapshotListener inner;
+    private final int capacity;
+    private final Policy policy;
+    private final Executor executor;
+    private final Map<Pair<Integer, Integer>, AsyncSnapshotListener> listeners = new LinkedHashMap<>();
+
+    private AsyncGridSnapshotListener(GridSnapshotListener inner, int capacity, Policy policy, Executor executor) {
+      this.inner = inner;
+      this.capacity = capacity;
+      this.policy = policy;
+      this.executor = executor;
+    }
+
+    @Override
+    public SnapshotListener listener(int x, int y) {
+      AsyncSnapshotListener listener = new AsyncSnapshotListener(inner.listener(x, y), capacity, policy, executor);
+      synchronized (listeners) {
+        listeners.put(Pair.of(x, y), listener);
+      }
+      return listener;
+    }
+
+    @Override
+    public void ended(int x, int y) {
+      AsyncSnapshotListener listener;
+      synchronized (listeners) {
+        listener = listeners.get(Pair.of(x, y));
+      }
+      if (listener != null) {
+        listener.flush();
+      }
+      inner.ended(x, y);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (listeners) {
+        for (AsyncSnapshotListener listener : listeners.values()) {
+          listener.close();
+          if (listener.getDroppedCount() > 0) {
+            L.fine(String.format("%d of %d snapshots dropped", listener.getDroppedCount(), listener.getListenedCount()));
+          }
+        }
+        listeners.clear();
+      }
+      if (inner instanceof Flushable) {
+        ((Flushable) inner).flush();
+      }
+    }
+  }
+
+  @Override
+  public boolean isNeeded(double t) {
+    return inner.isNeeded(t, lastT);
+  }
+
+  @Override
+  public Set<Snapshot.Content> requiredContents() {
+    return inner.requiredContents();
+  }
+
+  @Override
+  public void listen(Snapshot snapshot) {
+    boolean toBeScheduled;
+    lock.lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Cannot listen to snapshots after closing");
+      }
+      if (!inner.isNeeded(snapshot.getTime(), lastT)) {
+        return;
+      }
+      listenedCount = listenedCount + 1;
+      if (size == ring.length) {
+        switch (policy) {
+          case BLOCK -> {
+            while (size == ring.length && !closed) {
+              notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+              throw new IllegalStateException("Cannot listen to snapshots after closing");
+            }
+          }
+          case DROP_OLDEST -> {
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size = size - 1;
+            droppedCount = droppedCount + 1;
+          }
+          case DROP_NEWEST -> {
+            droppedCount = droppedCount + 1;
+            return;
+          }
+        }
+      }
+      ring[(head + size) % ring.length] = snapshot;
+      size = size + 1;
+      lastT = snapshot.getTime();
+      maxQueueDepth = Math.max(maxQueueDepth, size);
+      toBeScheduled = !scheduled;
+      scheduled = true;
+    } finally {
+      lock.unlock();
+    }
+    if (toBeScheduled) {
+      schedule();
+    }
+  }
+
+  private void schedule() {
+    try {
+      executor.execute(this::drain);
+    } catch (RejectedExecutionException e) {
+      lock.lock();
+      try {
+        scheduled = false;
+        drained.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      throw e;
+    }
+  }
+
+  private void drain() {
+    //stop after a buffer-worth of snapshots, not to starve the other listeners sharing the executor
+    for (int i = 0; i < ring.length; i++) {
+      Snapshot snapshot;
+      lock.lock();
+      try {
+        if (size == 0) {
+          scheduled = false;
+          drained.signalAll();
+          return;
+        }
+        snapshot = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size = size - 1;
+        notFull.signal();
+      } finally {
+        lock.unlock();
+      }
+      try {
+        inner.listen(snapshot);
+      } catch (RuntimeException e) {
+        L.log(Level.SEVERE, String.format("Cannot listen to snapshot due to %s", e), e);
+      }
+      lock.lock();
+      try {
+        processedCount = processedCount + 1;
+      } finally {
+        lock.unlock();
+      }
+    }
+    schedule();
+  }
+
+  /**
+   * Waits until all the snapshots received so far have been passed to the inner listener.
+   */
+  @Override
+  public void flush() {
+    lock.lock();
+    try {
+      while (scheduled) {
+        drained.awaitUninterruptibly();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until all the snapshots received so far have been passed to the inner listener and then stops accepting
+   * snapshots.
+   */
+  @Override
+  public void close() {
+    flush();
+    lock.lock();
+    try {
+      closed = true;
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getListenedCount() {
+    lock.lock();
+    try {
+      return listenedCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getDroppedCount() {
+    lock.lock();
+    try {
+      return droppedCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getProcessedCount() {
+    lock.lock();
+    try {
+      return processedCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getQueueDepth() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getMaxQueueDepth() {
+    lock.lock();
+    try {
+      return maxQueueDepth;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getCapacity() {
+    return ring.length;
+  }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.tasks.Task;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.viewers.drawers.SensorReading;
+import org.apache.commons.lang3.time.StopWatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Renders many videos, each of one solution of a task, sharing a fixed budget of threads: jobs run their episode and
+ * draw their frames on the simulation threads, while all the videos are encoded on the encoding threads, each video
+ * one frame at a time. Rendering is off-screen and the service asks AWT to run headless. A failing job is reported
+ * and does not affect the other jobs.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class BatchVideoRenderer implements AutoCloseable {
+
+  public static class Job<S> {
+    private final String name;
+    private final Task<S, ?> task;
+    private final S solution;
+    private final File file;
+
+    public Job(String name, Task<S, ?> task, S solution, File file) {
+      this.name = name;
+      this.task = task;
+      this.solution = solution;
+      this.file = file;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public File getFile() {
+      return file;
+    }
+  }
+
+  public static class Report {
+    private final Job<?> job;
+    private final Object outcome;
+    private final Throwable failure;
+    private final double waitingTime;
+    private final double episodeTime;
+    private final double flushingTime;
+    private final int frames;
+
+    public Report(Job<?> job, Object outcome, Throwable failure, double waitingTime, double episodeTime, double flushingTime, int frames) {
+      this.job = job;
+      this.outcome = outcome;
+      this.failure = failure;
+      this.waitingTime = waitingTime;
+      this.episodeTime = episodeTime;
+      this.flushingTime = flushingTime;
+      this.frames = frames;
+    }
+
+    public Job<?> getJob() {
+      return job;
+    }
+
+    public Object getOutcome() {
+      return outcome;
+    }
+
+    public Throwable getFailure() {
+      return failure;
+    }
+
+    public boolean isSuccessful() {
+      return failure == null;
+    }
+
+    public double getWaitingTime() {
+      return waitingTime;
+    }
+
+    public double getEpisodeTime() {
+      return episodeTime;
+    }
+
+    public double getFlushingTime() {
+      return flushingTime;
+    }
+
+    public int getFrames() {
+      return frames;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s -> %s: %s, %d frames, %.2fs waiting, %.2fs episode, %.2fs flushing",
+          job.getName(), job.getFile(), isSuccessful() ? "ok" : ("failed due to " + failure), frames, waitingTime, episodeTime, flushingTime
+      );
+    }
+  }
+
+  private final int w;
+  private final int h;
+  private final double startTime;
+  private final double frameRate;
+  private final VideoUtils.EncoderFacility encoder;
+  private final ExecutorService simulationExecutor;
+  private final ExecutorService encodingExecutor;
+
+  private static final Logger L = Logger.getLogger(BatchVideoRenderer.class.getName());
+
+  public BatchVideoRenderer(int w, int h, double startTime, double frameRate, VideoUtils.EncoderFacility encoder, int nOfSimulationThreads, int nOfEncodingThreads) {
+    if (System.getProperty("java.awt.headless") == null) {
+      System.setProperty("java.awt.headless", "true");
+    }
+    this.w = w;
+    this.h = h;
+    this.startTime = startTime;
+    this.frameRate = frameRate;
+    this.encoder = encoder;
+    simulationExecutor = Executors.newFixedThreadPool(nOfSimulationThreads);
+    encodingExecutor = Executors.newFixedThreadPool(nOfEncodingThreads);
+  }
+
+  public BatchVideoRenderer(int w, int h, double startTime, double frameRate, VideoUtils.EncoderFacility encoder) {
+    this(
+        w, h, startTime, frameRate, encoder,
+        Math.max(1, (Runtime.getRuntime().availableProcessors() + 1) / 2),
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2)
+    );
+  }
+
+  public List<Report> render(List<? extends Job<?>> jobs) throws InterruptedException {
+    StopWatch stopWatch = StopWatch.createStarted();
+    List<Future<Report>> futures = new ArrayList<>(jobs.size());
+    for (Job<?> job : jobs) {
+      long submissionMillis = stopWatch.getTime(TimeUnit.MILLISECONDS);
+      futures.add(simulationExecutor.submit(() -> render(
+          job,
+          (stopWatch.getTime(TimeUnit.MILLISECONDS) - submissionMillis) / 1000d
+      )));
+    }
+    List<Report> reports = new ArrayList<>(jobs.size());
+    for (Future<Report> future : futures) {
+      try {
+        reports.add(future.get());
+      } catch (ExecutionException e) {
+        //render(job) reports its failures: this should not happen
+        throw new IllegalStateException(e);
+      }
+    }
+    L.info(String.format(
+        "%d videos rendered, %d failed, in %.1fs",
+        reports.stream().filter(Report::isSuccessful).count(),
+        reports.stream().filter(r -> !r.isSuccessful()).count(),
+        stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000f
+    ));
+    return reports;
+  }
+
+  private <S> Report render(Job<S> job, double waitingTime) {
+    StopWatch stopWatch = StopWatch.createStarted();
+    double episodeTime = 0d;
+    boolean flushed = false;
+    Object outcome = null;
+    GridFileWriter gridFileWriter = null;
+    try {
+      gridFileWriter = new GridFileWriter(
+          w, h, startTime, frameRate, encoder, job.file,
+          Grid.create(1, 1, job.name),
+          GraphicsDrawer.build().setConfigurable("drawers", List.of(
+              it.units.erallab.hmsrobots.viewers.drawers.Ground.build(),
+              it.units.erallab.hmsrobots.viewers.drawers.Robot.build(),
+              it.units.erallab.hmsrobots.viewers.drawers.Voxel.build(),
+              SensorReading.build(),
+              it.units.erallab.hmsrobots.viewers.drawers.Lidar.build(),
+              it.units.erallab.hmsrobots.viewers.drawers.Angle.build()
+          )),
+          encodingExecutor
+      );
+      outcome = job.task.apply(job.solution, gridFileWriter.listener(0, 0));
+      episodeTime = stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d;
+      flushed = true;
+      gridFileWriter.flush();
+      Report report = new Report(job, outcome, null, waitingTime, episodeTime, stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d - episodeTime, gridFileWriter.getEncodedFrames());
+      L.fine(report.toString());
+      return report;
+    } catch (Throwable t) {
+      L.log(Level.SEVERE, String.format("Cannot render %s due to %s", job.name, t), t);
+      if (!flushed) {
+        episodeTime = stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d;
+        if (gridFileWriter != null) {
+          //release the video being written
+          try {
+            gridFileWriter.flush();
+          } catch (IOException e) {
+            L.log(Level.WARNING, String.format("Cannot flush partial video of %s due to %s", job.name, e), e);
+          }
+        }
+      }
+      return new Report(
+          job, outcome, t, waitingTime, episodeTime, stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000d - episodeTime,
+          gridFileWriter == null ? 0 : gridFileWriter.getEncodedFrames()
+      );
+    }
+  }
+
+  @Override
+  public void close() {
+    simulationExecutor.shutdownNow();
+    encodingExecutor.shutdownNow();
+  }
+
+}
@@ -23,13 +23,31 @@ import it.units.erallab.hmsrobots.viewers.drawers.SensorReading;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Builds a filmstrip of the frames of an episode. In the default mode, the filmstrip is drawn in an image kept in
+ * memory. In the tiled mode, frames are drawn in parallel on their own tiles and streamed to a PNG file in order, so
+ * that memory is bounded by a few tiles regardless of the number of frames: vertical filmstrips are written tile by
+ * tile, horizontal ones are first spilled to a temporary raw file and then written row by row upon {@link #flush()}.
+ *
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
-public class FramesImageBuilder implements SnapshotListener {
+public class FramesImageBuilder implements SnapshotListener, Flushable {
 
   public enum Direction {
     HORIZONTAL, VERTICAL
@@ -41,6 +59,9 @@ public class FramesImageBuilder implements SnapshotListener {
   private final int w;
   private final int h;
   private final Direction direction;
+  private final int frames;
+  private final File file;
+  private final ExecutorService executor;
 
   private final GraphicsDrawer graphicsDrawer;
   private final Framer framer;
@@ -49,16 +70,32 @@ public class FramesImageBuilder implements SnapshotListener {
   private Snapshot lastSnapshot;
   private int frameCount;
 
+  private final Semaphore pendingTiles;
+  private final SortedMap<Integer, BufferedImage> completedTiles;
+  private int writtenTiles;
+  private StreamingPngWriter pngWriter;
+  private File spillFile;
+  private FileChannel spillChannel;
+  private IOException writingException;
+
+  private static final int MAX_PENDING_TILES = Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+
   private static final Logger L = Logger.getLogger(FramesImageBuilder.class.getName());
 
   public FramesImageBuilder(double initialT, double finalT, double dT, int w, int h, Direction direction) {
+    this(initialT, finalT, dT, w, h, direction, null, null);
+  }
+
+  public FramesImageBuilder(double initialT, double finalT, double dT, int w, int h, Direction direction, File file, ExecutorService executor) {
     this.initialT = initialT;
     this.finalT = finalT;
     this.dT = dT;
     this.w = w;
     this.h = h;
     this.direction = direction;
-    int frames = (int) Math.floor((finalT - initialT) / dT);
+    this.file = file;
+    this.executor = executor;
+    frames = (int) Math.floor((finalT - initialT) / dT);
     int overallW = w;
     int overallH = h;
     if (direction.equals(Direction.HORIZONTAL)) {
@@ -66,7 +103,13 @@ public class FramesImageBuilder implements SnapshotListener {
     } else {
       overallH = h * frames;
     }
-    image = new BufferedImage(overallW, overallH, BufferedImage.TYPE_3BYTE_BGR);
+    if (file == null) {
+      image = new BufferedImage(overallW, overallH, BufferedImage.TYPE_3BYTE_BGR);
+    } else {
+      image = null;
+    }
+    pendingTiles = new Semaphore(MAX_PENDING_TILES);
+    completedTiles = new TreeMap<>();
     graphicsDrawer = GraphicsDrawer.build().setConfigurable("drawers", List.of(
         it.units.erallab.hmsrobots.viewers.drawers.Ground.build(),
         it.units.erallab.hmsrobots.viewers.drawers.Robot.build(),
@@ -78,10 +121,31 @@ public class FramesImageBuilder implements SnapshotListener {
     frameCount = 0;
   }
 
+  /**
+   * Returns the image of the filmstrip, or {@code null} in the tiled mode.
+   */
   public BufferedImage getImage() {
     return image;
   }
 
+  @Override
+  public boolean isNeeded(double t) {
+    return isNeeded(t, lastSnapshot == null ? null : lastSnapshot.getTime());
+  }
+
+  @Override
+  public boolean isNeeded(double t, Double lastT) {
+    if ((t < initialT) || (t >= finalT)) { //out of time window
+      return false;
+    }
+    return (lastT == null) || ((t - lastT) >= dT);
+  }
+
+  @Override
+  public Set<Snapshot.Content> requiredContents() {
+    return graphicsDrawer.requiredContents();
+  }
+
   @Override
   public void listen(final Snapshot snapshot) {
     BoundingBox worldFrame = framer.getFrame(snapshot, (double) w / (double) h);
@@ -92,6 +156,10 @@ public class FramesImageBuilder implements SnapshotListener {
       return;
     }
     lastSnapshot = snapshot;
+    if (file != null) {
+      listenTiled(snapshot, worldFrame);
+      return;
+    }
     BoundingBox imageFrame;
     if (direction.equals(Direction.HORIZONTAL)) {
       imageFrame = BoundingBox.build(
@@ -111,4 +179,126 @@ public class FramesImageBuilder implements SnapshotListener {
     g.dispose();
   }
 
+  private void listenTiled(final Snapshot snapshot, final BoundingBox worldFrame) {
+    final int frameIndex = frameCount;
+    frameCount = frameCount + 1;
+    if (frameIndex >= frames) {
+      return;
+    }
+    pendingTiles.acquireUninterruptibly();
+    executor.submit(() -> {
+      BufferedImage tile = new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
+      try {
+        L.fine(String.format("Rendering frame %d on its tile: %s", frameIndex, worldFrame));
+        Graphics2D g = tile.createGraphics();
+        graphicsDrawer.draw(
+            snapshot, g,
+            BoundingBox.build(Point2.build(0, 0), Point2.build(w, h)),
+            worldFrame, String.format("%d", frameIndex + 1)
+        );
+        g.dispose();
+      } catch (RuntimeException e) {
+        L.log(Level.SEVERE, String.format("Cannot render frame %d due to %s", frameIndex, e), e);
+      } finally {
+        synchronized (completedTiles) {
+          completedTiles.put(frameIndex, tile);
+          writeCompletedTiles();
+        }
+      }
+    });
+  }
+
+  private void writeCompletedTiles() {
+    while (!completedTiles.isEmpty() && completedTiles.firstKey() == writtenTiles) {
+      BufferedImage tile = completedTiles.remove(writtenTiles);
+      try {
+        if (writingException == null) {
+          writeTile(writtenTiles, tile);
+        }
+      } catch (IOException e) {
+        L.log(Level.SEVERE, String.format("Cannot write frame %d due to %s", writtenTiles, e), e);
+        writingException = e;
+      } finally {
+        writtenTiles = writtenTiles + 1;
+        pendingTiles.release();
+      }
+    }
+  }
+
+  private void writeTile(int frameIndex, BufferedImage tile) throws IOException {
+    if (direction.equals(Direction.VERTICAL)) {
+      if (pngWriter == null) {
+        pngWriter = new StreamingPngWriter(file, w, h * frames);
+      }
+      pngWriter.writeRows(tile);
+    } else {
+      if (spillChannel == null) {
+        spillFile = File.createTempFile("frames", ".raw");
+        spillFile.deleteOnExit();
+        spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+      }
+      byte[] bgr = ((DataBufferByte) tile.getRaster().getDataBuffer()).getData();
+      ByteBuffer buffer = ByteBuffer.wrap(bgr);
+      long position = (long) frameIndex * (long) bgr.length;
+      while (buffer.hasRemaining()) {
+        position = position + spillChannel.write(buffer, position);
+      }
+    }
+  }
+
+  /**
+   * In the tiled mode, waits for all the frames to be rendered and completes the PNG file; does nothing otherwise.
+   */
+  @Override
+  public void flush() throws IOException {
+    if (file == null) {
+      return;
+    }
+    pendingTiles.acquireUninterruptibly(MAX_PENDING_TILES);
+    pendingTiles.release(MAX_PENDING_TILES);
+    synchronized (completedTiles) {
+      try {
+        if (writingException != null) {
+          throw writingException;
+        }
+        if (direction.equals(Direction.VERTICAL)) {
+          if (pngWriter == null) {
+            pngWriter = new StreamingPngWriter(file, w, h * frames);
+          }
+        } else {
+          pngWriter = new StreamingPngWriter(file, w * frames, h);
+          byte[] row = new byte[w * frames * 3];
+          for (int y = 0; y < h; y++) {
+            for (int frameIndex = 0; frameIndex < writtenTiles; frameIndex++) {
+              ByteBuffer buffer = ByteBuffer.wrap(row, frameIndex * w * 3, w * 3);
+              long position = ((long) frameIndex * (long) h + (long) y) * (long) w * 3L;
+              while (buffer.hasRemaining()) {
+                int n = spillChannel.read(buffer, position);
+                if (n < 0) {
+                  throw new IOException(String.format("Unexpected end of spilled frames on %s", spillFile));
+                }
+                position = position + n;
+              }
+            }
+            //from bgr to rgb
+            for (int i = 0; i < writtenTiles * w * 3; i = i + 3) {
+              byte b = row[i];
+              row[i] = row[i + 2];
+              row[i + 2] = b;
+            }
+            pngWriter.writeRow(row, 0);
+          }
+        }
+        pngWriter.close();
+        L.fine(String.format("Filmstrip of %d frames saved on %s", writtenTiles, file));
+      } finally {
+        if (spillChannel != null) {
+          spillChannel.close();
+          spillFile.delete();
+          spillChannel = null;
+        }
+      }
+    }
+  }
+
 }
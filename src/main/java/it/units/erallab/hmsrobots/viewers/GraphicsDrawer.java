@@ -17,6 +17,7 @@
 package it.units.erallab.hmsrobots.viewers;
 
 import it.units.erallab.hmsrobots.core.objects.immutable.Immutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.ShapedImmutable;
 import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 import it.units.erallab.hmsrobots.util.*;
 import it.units.erallab.hmsrobots.viewers.drawers.Robot;
@@ -27,11 +28,13 @@ import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.awt.image.BufferedImage;
+import java.io.Serial;
 import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -39,8 +42,14 @@ import java.util.stream.Collectors;
  */
 public class GraphicsDrawer implements Configurable<GraphicsDrawer> {
 
+  @Serial
+  private static final long serialVersionUID = 2963735257918962292L;
+
   private final static Ground MINIATURE_GROUND_DRAWER = Ground.build();
   private final static BoundingBox MINIATURE_REL_BOUNDING_BOX = BoundingBox.build(Point2.build(0.65, 0.01), Point2.build(0.99, 0.35));
+  private final static int LAYER_SIZES_PER_GROUND = 4;
+  private final static double LAYER_X_MARGIN = 0.5d;
+  private final static double LAYER_Y_MARGIN = 0.25d;
 
   static {
     MINIATURE_GROUND_DRAWER.setConfigurable("useTexture", false);
@@ -71,6 +80,8 @@ public class GraphicsDrawer implements Configurable<GraphicsDrawer> {
   private boolean drawMiniature = true;
   @ConfigurableField(uiMin = 1, uiMax = 10)
   private float miniatureMagnifyRatio = 3f;
+  @ConfigurableField
+  private boolean cacheStaticLayers = true;
   @ConfigurableField(uiType = ConfigurableField.Type.BASIC)
   private List<Drawer<?>> drawers = new ArrayList<>(List.of(
       Robot.build(),
@@ -82,6 +93,111 @@ public class GraphicsDrawer implements Configurable<GraphicsDrawer> {
       SensorReading.build()
   ));
 
+  private transient Map<Immutable, Map<LayerSize, LayerSlot>> layers;
+  private transient volatile Dispatch dispatch;
+
+  /**
+   * Maps immutable classes to the ordered drawers which can draw them, and holds the snapshot contents they need, for
+   * the {@link #drawers} it has been built from.
+   */
+  private static class Dispatch {
+    private final List<Drawer<?>> drawers;
+    private final Set<Snapshot.Content> contents;
+    private final Map<Class<?>, Drawer<?>[]> map = new ConcurrentHashMap<>();
+
+    public Dispatch(List<Drawer<?>> drawers) {
+      this.drawers = List.copyOf(drawers);
+      Set<Snapshot.Content> localContents = EnumSet.noneOf(Snapshot.Content.class);
+      for (Drawer<?> drawer : drawers) {
+        if (drawer.mayDraw(it.units.erallab.hmsrobots.core.objects.immutable.VoxelBody.class)) {
+          localContents.add(Snapshot.Content.VOXEL_BODIES);
+        }
+        if (drawer.mayDraw(it.units.erallab.hmsrobots.core.objects.immutable.VoxelJoint.class)) {
+          localContents.add(Snapshot.Content.VOXEL_JOINTS);
+        }
+        if (drawer.mayDraw(it.units.erallab.hmsrobots.core.sensors.immutable.SensorReading.class)) {
+          localContents.add(Snapshot.Content.SENSOR_READINGS);
+        }
+      }
+      contents = Collections.unmodifiableSet(localContents);
+    }
+
+    public Drawer<?>[] drawersFor(Class<? extends Immutable> immutableClass) {
+      return map.computeIfAbsent(immutableClass, c -> drawers.stream()
+          .filter(d -> d.canDraw(immutableClass))
+          .toArray(Drawer<?>[]::new));
+    }
+  }
+
+  /**
+   * Identifies a cached layer among the ones of the same ground. Grounds are instead compared by identity, since the
+   * same immutable ground is shared by all the snapshots of a simulation, and weakly referenced, so that the layers of a
+   * ground are discarded when its simulation is over.
+   */
+  private static class LayerSize {
+    private final int width;
+    private final int height;
+    private final boolean miniature;
+
+    public LayerSize(int width, int height, boolean miniature) {
+      this.width = width;
+      this.height = height;
+      this.miniature = miniature;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      LayerSize layerSize = (LayerSize) o;
+      return width == layerSize.width && height == layerSize.height && miniature == layerSize.miniature;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(width, height, miniature);
+    }
+  }
+
+  /**
+   * Holds the current layer for a ground and a frame size, together with the ratio it has been last requested with.
+   */
+  private static class LayerSlot {
+    private volatile Layer layer;
+    private volatile double lastRatio = Double.NaN;
+  }
+
+  /**
+   * A rasterized static part of the scene (background, grid, and ground) covering a portion of the world larger than
+   * the viewport it has been built for, so that it can be reused while the viewport moves.
+   */
+  private static class Layer {
+    private final double ratio;
+    private final double gridSize;
+    private final BoundingBox coverage;
+    private final List<Object> configuration;
+    private final BufferedImage image;
+
+    public Layer(double ratio, double gridSize, BoundingBox coverage, List<Object> configuration, BufferedImage image) {
+      this.ratio = ratio;
+      this.gridSize = gridSize;
+      this.coverage = coverage;
+      this.configuration = configuration;
+      this.image = image;
+    }
+
+    public boolean isValid(double ratio, double gridSize, BoundingBox worldFrame, List<Object> configuration) {
+      return this.ratio == ratio
+          && this.gridSize == gridSize
+          && coverage.contains(worldFrame)
+          && this.configuration.equals(configuration);
+    }
+  }
+
   private GraphicsDrawer() {
   }
 
@@ -89,6 +205,20 @@ public class GraphicsDrawer implements Configurable<GraphicsDrawer> {
     return new GraphicsDrawer();
   }
 
+  public Set<Snapshot.Content> requiredContents() {
+    return dispatch().contents;
+  }
+
+  private Dispatch dispatch() {
+    //rebuild the dispatch table if drawers changed
+    Dispatch localDispatch = dispatch;
+    if (localDispatch == null || !localDispatch.drawers.equals(drawers)) {
+      localDispatch = new Dispatch(drawers);
+      dispatch = localDispatch;
+    }
+    return localDispatch;
+  }
+
   public void drawMiniature(Snapshot snapshot, Graphics2D g, BoundingBox graphicsFrame, BoundingBox inWorldFrame) {
     //set clipping area
     g.setClip(
@@ -118,13 +248,23 @@ public class GraphicsDrawer implements Configurable<GraphicsDrawer> {
       at.translate(graphicsFrame.min.x, graphicsFrame.min.y);
       at.scale(ratio, -ratio);
       at.translate(-worldFrame.min.x, -inWorldFrame.max.y);
-      g.setTransform(at);
       //draw ground
-      Stroke basicStroke = new BasicStroke(strokeWidth / (float) ratio);
-      g.setStroke(basicStroke);
-      g.setColor(basicColor);
-      MINIATURE_GROUND_DRAWER.draw(ground, null, g);
+      Layer layer = cacheStaticLayers ? miniatureLayer(ground, graphicsFrame, ratio) : null;
+      if (layer != null) {
+        //blit in device space, where the image pixels are not rescaled
+        Point2D origin = at.transform(new Point2D.Double(layer.coverage.min.x, layer.coverage.max.y), null);
+        g.setTransform(new AffineTransform());
+        //keep the fractional offset, not to drift from the objects drawn with the exact transform
+        g.drawImage(layer.image, AffineTransform.getTranslateInstance(origin.getX(), origin.getY()), null);
+      } else {
+        g.setTransform(at);
+        Stroke basicStroke = new BasicStroke(strokeWidth / (float) ratio);
+        g.setStroke(basicStroke);
+        g.setColor(basicColor);
+        MINIATURE_GROUND_DRAWER.draw(ground, null, g);
+      }
       //draw in world frame
+      g.setTransform(at);
       Shape rect = new Rectangle2D.Double(inWorldFrame.min.x, inWorldFrame.min.y, inWorldFrame.width(), inWorldFrame.height());
       g.setColor(alphaed(infoColor, 0.25f));
       g.fill(rect);
@@ -136,6 +276,7 @@ public class GraphicsDrawer implements Configurable<GraphicsDrawer> {
   }
 
   public void draw(Snapshot snapshot, Graphics2D g, BoundingBox graphicsFrame, BoundingBox worldFrame, String... infos) {
+    dispatch();
     //set clipping area
     g.setClip(
         (int) graphicsFrame.min.x, (int) graphicsFrame.min.y,
@@ -151,48 +292,37 @@ public class GraphicsDrawer implements Configurable<GraphicsDrawer> {
     at.translate(graphicsFrame.min.x, graphicsFrame.min.y);
     at.scale(ratio, -ratio);
     at.translate(-worldFrame.min.x, -worldFrame.max.y);
-    //draw background
-    g.setColor(backgroundColor);
-    g.fillRect(
-        (int) graphicsFrame.min.x, (int) graphicsFrame.min.y,
-        (int) graphicsFrame.width(), (int) graphicsFrame.height()
-    );
-    //draw grid
-    g.setTransform(at);
-    if (generalRenderingModes.contains(GeneralRenderingMode.GRID_MAJOR) || generalRenderingModes.contains(GeneralRenderingMode.GRID_MINOR)) {
-      g.setColor(gridColor);
-      g.setStroke(new BasicStroke(1f / (float) ratio));
-      double gridSize = computeGridSize(worldFrame.min.x, worldFrame.max.x);
-      if (generalRenderingModes.contains(GeneralRenderingMode.GRID_MAJOR)) {
-        for (double gridX = Math.floor(worldFrame.min.x / gridSize) * gridSize; gridX < worldFrame.max.x; gridX = gridX + gridSize) {
-          g.draw(new Line2D.Double(gridX, worldFrame.min.y, gridX, worldFrame.max.y));
-        }
-        for (double gridY = Math.floor(worldFrame.min.y / gridSize) * gridSize; gridY < worldFrame.max.y; gridY = gridY + gridSize) {
-          g.draw(new Line2D.Double(worldFrame.min.x, gridY, worldFrame.max.x, gridY));
-        }
-      }
-      if (generalRenderingModes.contains(GeneralRenderingMode.GRID_MINOR)) {
-        gridSize = gridSize / 5d;
-        g.setStroke(new BasicStroke(
-            1f / (float) ratio,
-            BasicStroke.CAP_BUTT,
-            BasicStroke.JOIN_ROUND,
-            1.0f,
-            new float[]{2f / (float) ratio, 0f, 2f / (float) ratio},
-            0f));
-        for (double gridX = Math.floor(worldFrame.min.x / gridSize) * gridSize; gridX < worldFrame.max.x; gridX = gridX + gridSize) {
-          g.draw(new Line2D.Double(gridX, worldFrame.min.y, gridX, worldFrame.max.y));
-        }
-        for (double gridY = Math.floor(worldFrame.min.y / gridSize) * gridSize; gridY < worldFrame.max.y; gridY = gridY + gridSize) {
-          g.draw(new Line2D.Double(worldFrame.min.x, gridY, worldFrame.max.x, gridY));
-        }
-      }
+    //draw background, grid, and ground
+    double gridSize = computeGridSize(worldFrame.min.x, worldFrame.max.x);
+    Immutable ground = snapshot.getObjects().stream()
+        .filter(i -> i instanceof it.units.erallab.hmsrobots.core.objects.immutable.Ground)
+        .findFirst().orElse(null);
+    Immutable cachedGround = null;
+    Layer layer = cacheStaticLayers ? layer(ground, g, graphicsFrame, worldFrame, ratio, gridSize) : null;
+    if (layer != null) {
+      //blit in device space, where the image pixels are not rescaled
+      Point2D origin = at.transform(new Point2D.Double(layer.coverage.min.x, layer.coverage.max.y), null);
+      g.setTransform(new AffineTransform());
+      //keep the fractional offset, not to drift from the objects drawn with the exact transform
+      g.drawImage(layer.image, AffineTransform.getTranslateInstance(origin.getX(), origin.getY()), null);
+      g.setTransform(at);
+      cachedGround = ground;
+    } else {
+      g.setColor(backgroundColor);
+      g.fillRect(
+          (int) graphicsFrame.min.x, (int) graphicsFrame.min.y,
+          (int) graphicsFrame.width(), (int) graphicsFrame.height()
+      );
+      g.setTransform(at);
+      drawGrid(g, worldFrame, ratio, gridSize);
     }
     //draw components
     List<Point2> compoundCenters = new ArrayList<>();
     Stroke basicStroke = new BasicStroke(strokeWidth / (float) ratio);
     for (Immutable immutable : snapshot.getObjects()) {
-      recursivelyDraw(immutable, null, g, basicStroke);
+      if (immutable != cachedGround) {
+        recursivelyDraw(immutable, null, g, basicStroke, worldFrame);
+      }
       if (generalRenderingModes.contains(GeneralRenderingMode.VOXEL_COMPOUND_CENTERS_INFO)) {
         if (immutable instanceof it.units.erallab.hmsrobots.core.objects.immutable.Robot) {
           Point2[] centers = new Point2[immutable.getChildren().size()];
@@ -249,6 +379,151 @@ public class GraphicsDrawer implements Configurable<GraphicsDrawer> {
     }
   }
 
+  private void drawGrid(Graphics2D g, BoundingBox worldFrame, double ratio, double gridSize) {
+    if (generalRenderingModes.contains(GeneralRenderingMode.GRID_MAJOR) || generalRenderingModes.contains(GeneralRenderingMode.GRID_MINOR)) {
+      g.setColor(gridColor);
+      g.setStroke(new BasicStroke(1f / (float) ratio));
+      if (generalRenderingModes.contains(GeneralRenderingMode.GRID_MAJOR)) {
+        for (double gridX = Math.floor(worldFrame.min.x / gridSize) * gridSize; gridX < worldFrame.max.x; gridX = gridX + gridSize) {
+          g.draw(new Line2D.Double(gridX, worldFrame.min.y, gridX, worldFrame.max.y));
+        }
+        for (double gridY = Math.floor(worldFrame.min.y / gridSize) * gridSize; gridY < worldFrame.max.y; gridY = gridY + gridSize) {
+          g.draw(new Line2D.Double(worldFrame.min.x, gridY, worldFrame.max.x, gridY));
+        }
+      }
+      if (generalRenderingModes.contains(GeneralRenderingMode.GRID_MINOR)) {
+        gridSize = gridSize / 5d;
+        g.setStroke(new BasicStroke(
+            1f / (float) ratio,
+            BasicStroke.CAP_BUTT,
+            BasicStroke.JOIN_ROUND,
+            1.0f,
+            new float[]{2f / (float) ratio, 0f, 2f / (float) ratio},
+            0f));
+        for (double gridX = Math.floor(worldFrame.min.x / gridSize) * gridSize; gridX < worldFrame.max.x; gridX = gridX + gridSize) {
+          g.draw(new Line2D.Double(gridX, worldFrame.min.y, gridX, worldFrame.max.y));
+        }
+        for (double gridY = Math.floor(worldFrame.min.y / gridSize) * gridSize; gridY < worldFrame.max.y; gridY = gridY + gridSize) {
+          g.draw(new Line2D.Double(worldFrame.min.x, gridY, worldFrame.max.x, gridY));
+        }
+      }
+    }
+  }
+
+  private Layer layer(Immutable ground, Graphics2D g, BoundingBox graphicsFrame, BoundingBox worldFrame, double ratio, double gridSize) {
+    LayerSlot slot = layerSlot(ground, new LayerSize((int) graphicsFrame.width(), (int) graphicsFrame.height(), false));
+    List<Object> configuration = layerConfiguration();
+    Layer layer = slot.layer;
+    if (layer != null && layer.isValid(ratio, gridSize, worldFrame, configuration)) {
+      return layer;
+    }
+    if (isZooming(slot, layer, ratio)) {
+      return null;
+    }
+    //build a new layer larger than the viewport, for reusing it while the viewport moves
+    double w = worldFrame.width();
+    double h = worldFrame.height();
+    BoundingBox coverage = BoundingBox.build(
+        Point2.build(worldFrame.min.x - w * LAYER_X_MARGIN, worldFrame.min.y - h * LAYER_Y_MARGIN),
+        Point2.build(worldFrame.max.x + w * LAYER_X_MARGIN, worldFrame.max.y + h * LAYER_Y_MARGIN)
+    );
+    BufferedImage image = new BufferedImage(
+        (int) Math.ceil(coverage.width() * ratio), (int) Math.ceil(coverage.height() * ratio),
+        BufferedImage.TYPE_INT_RGB
+    );
+    Graphics2D lg = image.createGraphics();
+    lg.setRenderingHints(g.getRenderingHints());
+    lg.setColor(backgroundColor);
+    lg.fillRect(0, 0, image.getWidth(), image.getHeight());
+    lg.scale(ratio, -ratio);
+    lg.translate(-coverage.min.x, -coverage.max.y);
+    drawGrid(lg, coverage, ratio, gridSize);
+    if (ground != null) {
+      recursivelyDraw(ground, null, lg, new BasicStroke(strokeWidth / (float) ratio), coverage);
+    }
+    lg.dispose();
+    layer = new Layer(ratio, gridSize, coverage, configuration, image);
+    slot.layer = layer;
+    return layer;
+  }
+
+  private Layer miniatureLayer(it.units.erallab.hmsrobots.core.objects.immutable.Ground ground, BoundingBox graphicsFrame, double ratio) {
+    LayerSlot slot = layerSlot(ground, new LayerSize((int) graphicsFrame.width(), (int) graphicsFrame.height(), true));
+    List<Object> configuration = List.of(basicColor, strokeWidth);
+    Layer layer = slot.layer;
+    if (layer != null && layer.ratio == ratio && layer.configuration.equals(configuration)) {
+      return layer;
+    }
+    if (isZooming(slot, layer, ratio)) {
+      return null;
+    }
+    //the miniature shows the ground always at the same scale: the whole ground is rasterized once
+    BoundingBox coverage = ground.getShape().boundingBox();
+    BufferedImage image = new BufferedImage(
+        Math.max(1, (int) Math.ceil(coverage.width() * ratio)), Math.max(1, (int) Math.ceil(coverage.height() * ratio)),
+        BufferedImage.TYPE_INT_ARGB
+    );
+    Graphics2D lg = image.createGraphics();
+    lg.scale(ratio, -ratio);
+    lg.translate(-coverage.min.x, -coverage.max.y);
+    lg.setStroke(new BasicStroke(strokeWidth / (float) ratio));
+    lg.setColor(basicColor);
+    MINIATURE_GROUND_DRAWER.draw(ground, null, lg);
+    lg.dispose();
+    layer = new Layer(ratio, 0d, coverage, configuration, image);
+    slot.layer = layer;
+    return layer;
+  }
+
+  private static boolean isZooming(LayerSlot slot, Layer layer, double ratio) {
+    //while the ratio changes at every frame, rasterizing a layer per frame would be slower than drawing directly
+    double lastRatio = slot.lastRatio;
+    slot.lastRatio = ratio;
+    return layer != null && layer.ratio != ratio && lastRatio != ratio;
+  }
+
+  private synchronized LayerSlot layerSlot(Immutable ground, LayerSize size) {
+    if (layers == null) {
+      layers = new WeakHashMap<>();
+    }
+    return layers.computeIfAbsent(ground, g -> new LinkedHashMap<>(LAYER_SIZES_PER_GROUND, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<LayerSize, LayerSlot> eldest) {
+        return size() > LAYER_SIZES_PER_GROUND;
+      }
+    }).computeIfAbsent(size, s -> new LayerSlot());
+  }
+
+  private List<Object> layerConfiguration() {
+    List<Object> configuration = new ArrayList<>(List.of(
+        backgroundColor, gridColor, basicColor, strokeWidth,
+        generalRenderingModes.contains(GeneralRenderingMode.GRID_MAJOR),
+        generalRenderingModes.contains(GeneralRenderingMode.GRID_MINOR)
+    ));
+    for (Drawer<?> drawer : drawers) {
+      if (drawer.canDraw(it.units.erallab.hmsrobots.core.objects.immutable.Ground.class)) {
+        configuration.add(drawer);
+        if (drawer instanceof Configurable) {
+          Configurable<?> configurable = (Configurable<?>) drawer;
+          configurable.configurables().stream()
+              .sorted()
+              .forEach(k -> configuration.add(Objects.toString(configurable.getConfigurable(k))));
+        }
+      }
+    }
+    return configuration;
+  }
+
+  private static double cullingMargin(Immutable immutable, BoundingBox boundingBox) {
+    double margin = Math.max(boundingBox.width(), boundingBox.height());
+    for (Immutable child : immutable.getChildren()) {
+      if (child instanceof it.units.erallab.hmsrobots.core.sensors.immutable.Lidar) {
+        margin = Math.max(margin, ((it.units.erallab.hmsrobots.core.sensors.immutable.Lidar) child).getRayLength());
+      }
+    }
+    return margin;
+  }
+
   private double computeGridSize(double x1, double x2) {
     double gridSize = (x2 - x1) / 10d;
     double exp = Math.floor(Math.log10(gridSize));
@@ -264,17 +539,26 @@ public class GraphicsDrawer implements Configurable<GraphicsDrawer> {
     return gridSize;
   }
 
-  private void recursivelyDraw(final Immutable immutable, final Immutable parent, final Graphics2D g, Stroke basicStroke) {
-    boolean drawChildren = false;
-    for (Drawer drawer : drawers) {
-      if (drawer.canDraw(immutable.getClass())) {
-        g.setStroke(basicStroke);
-        g.setColor(basicColor);
-        drawChildren = drawChildren || drawer.draw(immutable, parent, g);
+  private void recursivelyDraw(final Immutable immutable, final Immutable parent, final Graphics2D g, Stroke basicStroke, BoundingBox worldFrame) {
+    //skip objects which are (with what may be drawn around them) out of the viewport
+    if (immutable instanceof ShapedImmutable && !(immutable instanceof it.units.erallab.hmsrobots.core.objects.immutable.Ground)) {
+      BoundingBox boundingBox = ((ShapedImmutable) immutable).getShape().boundingBox();
+      double margin = cullingMargin(immutable, boundingBox);
+      if (!worldFrame.intersects(BoundingBox.build(
+          Point2.build(boundingBox.min.x - margin, boundingBox.min.y - margin),
+          Point2.build(boundingBox.max.x + margin, boundingBox.max.y + margin)
+      ))) {
+        return;
       }
     }
+    boolean drawChildren = false;
+    for (Drawer drawer : dispatch.drawersFor(immutable.getClass())) {
+      g.setStroke(basicStroke);
+      g.setColor(basicColor);
+      drawChildren = drawChildren || drawer.draw(immutable, parent, g);
+    }
     if (drawChildren) {
-      immutable.getChildren().forEach(c -> recursivelyDraw(c, immutable, g, basicStroke));
+      immutable.getChildren().forEach(c -> recursivelyDraw(c, immutable, g, basicStroke, worldFrame));
     }
   }
 
@@ -70,8 +70,12 @@ public class GridEpisodeRunner<S> implements Runnable {
         .forEach(entry -> {
           results.add(executor.submit(() -> {
             L.fine(String.format("Starting %s in position (%d,%d)", episode.getClass().getSimpleName(), entry.getX(), entry.getY()));
-            Object outcome = episode.apply(entry.getValue().getRight(), gridSnapshotListener.listener(entry.getX(), entry.getY()));
-            L.fine(String.format("Ended %s in position (%d,%d) with outcome %s", episode.getClass().getSimpleName(), entry.getX(), entry.getY(), outcome));
+            try {
+              Object outcome = episode.apply(entry.getValue().getRight(), gridSnapshotListener.listener(entry.getX(), entry.getY()));
+              L.fine(String.format("Ended %s in position (%d,%d) with outcome %s", episode.getClass().getSimpleName(), entry.getX(), entry.getY(), outcome));
+            } finally {
+              gridSnapshotListener.ended(entry.getX(), entry.getY());
+            }
           }));
         });
     //wait for results
@@ -31,14 +31,22 @@ import java.io.File;
 import java.io.Flushable;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * A {@link GridSnapshotListener} which draws the snapshots of each cell of a grid on the corresponding part of the
+ * frames of a video. Each cell is drawn on its own tiles, without locking the other cells, so that episodes running in
+ * parallel also draw in parallel. Once every cell with a name has gone past a frame, the tiles of the frame are
+ * composed and encoded on a dedicated thread, or one at a time on a given executor: only a sliding window of tiles
+ * being drawn is kept in memory, provided that the episodes of all the cells run concurrently.
+ *
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
 public class GridFileWriter implements Flushable, GridSnapshotListener {
@@ -51,19 +59,108 @@ public class GridFileWriter implements Flushable, GridSnapshotListener {
   private final File file;
 
   private final Grid<String> namesGrid;
-  private final Grid<List<Double>> timesGrid;
-  private final Grid<Framer> framerGrid;
-  private final List<BufferedImage> images;
+  private final Grid<Cell> cellGrid;
+  private final Queue<BufferedImage> recycledImages;
+  private final Semaphore pendingFrames;
+  private final Queue<Frame> readyFrames;
+  private int firstFrameNumber;
+  private int encodedFrames;
 
   private final GraphicsDrawer graphicsDrawer;
 
+  private final Executor sharedEncoderExecutor;
+  private Executor encoderExecutor;
+  private ExecutorService ownEncoderExecutor;
+  private VideoUtils.VideoWriter videoWriter;
+  private IOException encodingException;
+
+  private static final int ASYNC_BUFFER_CAPACITY = 64;
+  private static final int MAX_PENDING_FRAMES = 16;
+  private static final int MAX_BUFFERED_FRAMES = 64;
+
   private static final Logger L = Logger.getLogger(GridFileWriter.class.getName());
 
+  /**
+   * Runs tasks one at a time, in order, on another executor.
+   */
+  private static class SerialExecutor implements Executor {
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean active;
+
+    public SerialExecutor(Executor executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    public synchronized void execute(Runnable runnable) {
+      tasks.offer(() -> {
+        try {
+          runnable.run();
+        } finally {
+          scheduleNext();
+        }
+      });
+      if (!active) {
+        scheduleNext();
+      }
+    }
+
+    private synchronized void scheduleNext() {
+      Runnable next = tasks.poll();
+      active = next != null;
+      if (active) {
+        executor.execute(next);
+      }
+    }
+  }
+
+  private static class Cell {
+    private final int x;
+    private final int y;
+    private final int w;
+    private final int h;
+    private final Framer framer;
+    private final List<BufferedImage> tiles = new ArrayList<>();
+    private final Queue<BufferedImage> recycledTiles = new ConcurrentLinkedQueue<>();
+    private int firstFrameNumber;
+    private volatile Double lastTime;
+    private boolean started;
+    private boolean ended;
+
+    private Cell(int x, int y, int w, int h, Framer framer) {
+      this.x = x;
+      this.y = y;
+      this.w = w;
+      this.h = h;
+      this.framer = framer;
+    }
+
+    private BufferedImage newTile() {
+      BufferedImage tile = recycledTiles.poll();
+      return tile == null ? new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR) : tile;
+    }
+  }
+
+  private static class Frame {
+    private final List<Cell> cells;
+    private final List<BufferedImage> tiles;
+
+    private Frame(List<Cell> cells, List<BufferedImage> tiles) {
+      this.cells = cells;
+      this.tiles = tiles;
+    }
+  }
+
   public GridFileWriter(int w, int h, double startTime, double frameRate, VideoUtils.EncoderFacility encoder, File file, Grid<String> namesGrid) throws IOException {
     this(w, h, startTime, frameRate, encoder, file, namesGrid, GraphicsDrawer.build());
   }
 
   public GridFileWriter(int w, int h, double startTime, double frameRate, VideoUtils.EncoderFacility encoder, File file, Grid<String> namesGrid, GraphicsDrawer graphicsDrawer) throws IOException {
+    this(w, h, startTime, frameRate, encoder, file, namesGrid, graphicsDrawer, null);
+  }
+
+  public GridFileWriter(int w, int h, double startTime, double frameRate, VideoUtils.EncoderFacility encoder, File file, Grid<String> namesGrid, GraphicsDrawer graphicsDrawer, Executor encoderExecutor) throws IOException {
     this.w = w;
     this.h = h;
     this.startTime = startTime;
@@ -71,67 +168,303 @@ public class GridFileWriter implements Flushable, GridSnapshotListener {
     this.frameRate = frameRate;
     this.encoder = encoder;
     this.file = file;
-    images = new ArrayList<>();
+    recycledImages = new ConcurrentLinkedQueue<>();
+    pendingFrames = new Semaphore(MAX_PENDING_FRAMES);
+    readyFrames = new ArrayDeque<>();
     this.graphicsDrawer = graphicsDrawer;
-    framerGrid = Grid.create(namesGrid.getW(), namesGrid.getH(), (x, y) -> new RobotFollower((int) frameRate * 3, 1.5d, 100, RobotFollower.AggregateType.MAX));
-    timesGrid = Grid.create(namesGrid.getW(), namesGrid.getH(), (x, y) -> new ArrayList<>());
+    sharedEncoderExecutor = encoderExecutor;
+    cellGrid = Grid.create(namesGrid.getW(), namesGrid.getH(), (x, y) -> {
+      int minX = (int) Math.round((double) w * (double) x / (double) namesGrid.getW());
+      int maxX = (int) Math.round((double) w * (double) (x + 1) / (double) namesGrid.getW());
+      int minY = (int) Math.round((double) h * (double) y / (double) namesGrid.getH());
+      int maxY = (int) Math.round((double) h * (double) (y + 1) / (double) namesGrid.getH());
+      return new Cell(
+          minX, minY, maxX - minX, maxY - minY,
+          new RobotFollower((int) frameRate * 3, 1.5d, 100, RobotFollower.AggregateType.MAX)
+      );
+    });
   }
 
   @Override
   public SnapshotListener listener(final int lX, final int lY) {
-    return (Snapshot snapshot) -> {
-      List<Double> times = timesGrid.get(lX, lY);
-      double lastTime = times.isEmpty() ? Double.NEGATIVE_INFINITY : times.get(times.size() - 1);
-      if (snapshot.getTime() >= startTime && snapshot.getTime() - lastTime >= 1d / frameRate) {
-        int frameNumber = (int) Math.round((snapshot.getTime() - startTime) * frameRate);
-        int lastFrameNumber = times.isEmpty() ? frameNumber : (int) Math.round((times.get(times.size() - 1) - startTime) * frameRate);
-        synchronized (images) {
-          times.add(snapshot.getTime());
-          while (frameNumber >= images.size()) {
-            images.add(new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR));
+    final Cell cell = cellGrid.get(lX, lY);
+    final BoundingBox tileFrame = BoundingBox.build(Point2.build(0, 0), Point2.build(cell.w, cell.h));
+    synchronized (cellGrid) {
+      cell.started = true;
+    }
+    return new SnapshotListener() {
+      @Override
+      public boolean isNeeded(double t) {
+        //called at every step: read without locking the other cells
+        return isNeeded(t, cell.lastTime);
+      }
+
+      @Override
+      public boolean isNeeded(double t, Double lastT) {
+        boolean needed = t >= startTime && (lastT == null || t - lastT >= 1d / frameRate);
+        if (needed) {
+          awaitSlowerCells(frameNumber(t));
+        }
+        return needed;
+      }
+
+      @Override
+      public Set<Snapshot.Content> requiredContents() {
+        return graphicsDrawer.requiredContents();
+      }
+
+      @Override
+      public void listen(Snapshot snapshot) {
+        if (!isNeeded(snapshot.getTime())) {
+          return;
+        }
+        int frameNumber = frameNumber(snapshot.getTime());
+        //take the tiles to draw on: they are not composed until the last time of this cell is updated
+        List<BufferedImage> tiles = new ArrayList<>();
+        synchronized (cellGrid) {
+          if (cell.lastTime == null) {
+            cell.firstFrameNumber = Math.max(frameNumber, firstFrameNumber);
+          }
+          int lastFrameNumber = cell.lastTime == null ? frameNumber : frameNumber(cell.lastTime);
+          while (cell.firstFrameNumber + cell.tiles.size() <= frameNumber) {
+            cell.tiles.add(cell.newTile());
           }
-          for (int i = lastFrameNumber; i <= frameNumber; i++) {
-            BufferedImage image = images.get(i);
-            Graphics2D g = image.createGraphics();
-            double localW = (double) w / (double) namesGrid.getW();
-            double localH = (double) h / (double) namesGrid.getH();
-            //obtain viewport
-            BoundingBox frame = framerGrid.get(lX, lY).getFrame(snapshot, localW / localH);
-            //draw
-            graphicsDrawer.draw(
-                snapshot, g,
-                BoundingBox.build(
-                    Point2.build(localW * lX, localH * lY),
-                    Point2.build(localW * (lX + 1), localH * (lY + 1))
-                ),
-                frame, namesGrid.get(lX, lY)
-            );
+          for (int i = Math.max(lastFrameNumber, cell.firstFrameNumber); i <= frameNumber; i++) {
+            tiles.add(cell.tiles.get(i - cell.firstFrameNumber));
+          }
+        }
+        //draw, without holding the lock
+        if (!tiles.isEmpty()) {
+          BoundingBox frame = cell.framer.getFrame(snapshot, (double) cell.w / (double) cell.h);
+          for (BufferedImage tile : tiles) {
+            Graphics2D g = tile.createGraphics();
+            graphicsDrawer.draw(snapshot, g, tileFrame, frame, namesGrid.get(lX, lY));
             g.dispose();
           }
         }
+        synchronized (cellGrid) {
+          cell.lastTime = snapshot.getTime();
+          //take the frames which every cell has gone past
+          collectUpTo(completedFrameNumber());
+          cellGrid.notifyAll();
+        }
+        //wait for the encoder, without holding the lock
+        encodeReadyFrames();
       }
     };
   }
 
+  /**
+   * Marks the cell as complete, so that the frames of the other cells are no longer kept for it.
+   */
+  @Override
+  public void ended(int lX, int lY) {
+    synchronized (cellGrid) {
+      cellGrid.get(lX, lY).ended = true;
+      collectUpTo(completedFrameNumber());
+      cellGrid.notifyAll();
+    }
+    encodeReadyFrames();
+  }
+
+  /**
+   * Makes a cell wait, on the thread of its simulation (which is the one asking for snapshots), while it is more than
+   * {@code MAX_BUFFERED_FRAMES} frames ahead of the slowest running cell, so that its tiles kept for the other cells are
+   * bounded. Cells which have not started yet are not waited for, since they may need the thread of a waiting cell to
+   * start: their frames are kept until they start.
+   */
+  private void awaitSlowerCells(int frameNumber) {
+    synchronized (cellGrid) {
+      while (frameNumber - slowestRunningFrameNumber() > MAX_BUFFERED_FRAMES) {
+        try {
+          cellGrid.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private int slowestRunningFrameNumber() {
+    int slowest = Integer.MAX_VALUE;
+    for (Cell cell : cellGrid.values()) {
+      if (cell.started && !cell.ended) {
+        slowest = Math.min(slowest, cell.lastTime == null ? firstFrameNumber : frameNumber(cell.lastTime));
+      }
+    }
+    return slowest;
+  }
+
+  private int frameNumber(double t) {
+    return (int) Math.round((t - startTime) * frameRate);
+  }
+
+  private BufferedImage newImage() {
+    BufferedImage image = recycledImages.poll();
+    return image == null ? new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR) : image;
+  }
+
+  private int completedFrameNumber() {
+    int completed = Integer.MAX_VALUE;
+    for (Grid.Entry<String> entry : namesGrid) {
+      if (entry.getValue() != null) {
+        Cell cell = cellGrid.get(entry.getX(), entry.getY());
+        if (cell.ended) {
+          continue;
+        }
+        Double lastTime = cell.lastTime;
+        if (lastTime == null) {
+          return firstFrameNumber;
+        }
+        //the last frame of a cell may still be drawn again with a later snapshot
+        completed = Math.min(completed, frameNumber(lastTime));
+      }
+    }
+    return completed;
+  }
+
+  private int lastDrawnFrameNumber() {
+    int last = firstFrameNumber - 1;
+    for (Cell cell : cellGrid.values()) {
+      last = Math.max(last, cell.firstFrameNumber + cell.tiles.size() - 1);
+    }
+    return last;
+  }
+
+  private void collectUpTo(int frameNumber) {
+    frameNumber = Math.min(frameNumber, lastDrawnFrameNumber() + 1);
+    while (firstFrameNumber < frameNumber) {
+      //take the tiles of the frame, if any, from each cell
+      List<Cell> cells = new ArrayList<>();
+      List<BufferedImage> tiles = new ArrayList<>();
+      for (Cell cell : cellGrid.values()) {
+        if (!cell.tiles.isEmpty() && cell.firstFrameNumber == firstFrameNumber) {
+          cells.add(cell);
+          tiles.add(cell.tiles.remove(0));
+          cell.firstFrameNumber = cell.firstFrameNumber + 1;
+        }
+      }
+      firstFrameNumber = firstFrameNumber + 1;
+      readyFrames.offer(new Frame(cells, tiles));
+    }
+  }
+
+  private void encodeReadyFrames() {
+    while (true) {
+      synchronized (cellGrid) {
+        if (readyFrames.isEmpty()) {
+          return;
+        }
+      }
+      pendingFrames.acquireUninterruptibly();
+      //frames are taken and submitted under the lock, hence in order
+      synchronized (cellGrid) {
+        Frame frame = readyFrames.poll();
+        if (frame == null) {
+          pendingFrames.release();
+          return;
+        }
+        encode(frame);
+      }
+    }
+  }
+
+  private void encode(Frame frame) {
+    if (encoderExecutor == null) {
+      if (sharedEncoderExecutor != null) {
+        encoderExecutor = new SerialExecutor(sharedEncoderExecutor);
+      } else {
+        ownEncoderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+          Thread thread = new Thread(runnable, GridFileWriter.class.getSimpleName());
+          thread.setDaemon(true);
+          return thread;
+        });
+        encoderExecutor = ownEncoderExecutor;
+      }
+    }
+    encoderExecutor.execute(() -> {
+      BufferedImage image = newImage();
+      try {
+        //compose
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, w, h);
+        for (int i = 0; i < frame.cells.size(); i++) {
+          g.drawImage(frame.tiles.get(i), frame.cells.get(i).x, frame.cells.get(i).y, null);
+        }
+        g.dispose();
+        //encode
+        if (encodingException == null) {
+          if (videoWriter == null) {
+            L.fine(String.format("Saving video on %s", file));
+            videoWriter = VideoUtils.videoWriter(file, frameRate, encoder);
+          }
+          videoWriter.write(image);
+          encodedFrames = encodedFrames + 1;
+        }
+      } catch (IOException e) {
+        L.log(Level.SEVERE, String.format("Cannot encode frame due to %s", e), e);
+        encodingException = e;
+      } finally {
+        for (int i = 0; i < frame.cells.size(); i++) {
+          frame.cells.get(i).recycledTiles.offer(frame.tiles.get(i));
+        }
+        recycledImages.offer(image);
+        pendingFrames.release();
+      }
+    });
+  }
 
   @Override
   public void flush() throws IOException {
-    L.fine(String.format("Saving video on %s", file));
     StopWatch stopWatch = StopWatch.createStarted();
-    VideoUtils.encodeAndSave(images, frameRate, file, encoder);
+    synchronized (cellGrid) {
+      collectUpTo(Integer.MAX_VALUE);
+    }
+    encodeReadyFrames();
+    if (encoderExecutor == null) {
+      L.warning(String.format("No frames to save on %s", file));
+      return;
+    }
+    //wait for all the frames to be encoded
+    try {
+      pendingFrames.acquire(MAX_PENDING_FRAMES);
+    } catch (InterruptedException e) {
+      throw new IOException(e);
+    }
+    pendingFrames.release(MAX_PENDING_FRAMES);
+    if (ownEncoderExecutor != null) {
+      ownEncoderExecutor.shutdown();
+    }
+    if (videoWriter != null) {
+      videoWriter.close();
+    }
+    if (encodingException != null) {
+      throw encodingException;
+    }
     long millis = stopWatch.getTime(TimeUnit.MILLISECONDS);
     L.fine(String.format(
-        "Video saved: %.1fMB written in %.2fs",
+        "Video saved: %d frames, %.1fMB written, %.2fs spent on flushing",
+        encodedFrames,
         Files.size(file.toPath()) / 1024f / 1024f,
         millis / 1000f
     ));
   }
 
+  public int getEncodedFrames() {
+    return encodedFrames;
+  }
+
   public static <S> void save(Task<S, ?> task, Grid<Pair<String, S>> namedSolutions, int w, int h, double startTime, double frameRate, VideoUtils.EncoderFacility encoder, File file) throws IOException {
-    ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    //frames are encoded as soon as every running cell has gone past them: with more cells than cores, the frames of the
+    //first cells are kept until the last ones start
+    int nOfSolutions = (int) namedSolutions.values().stream().filter(p -> p != null && p.getRight() != null).count();
+    int nOfThreads = Runtime.getRuntime().availableProcessors();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(nOfSolutions, nOfThreads)));
     GridFileWriter gridFileWriter = new GridFileWriter(
         w, h, startTime, frameRate, encoder, file,
-        Grid.create(namedSolutions, p -> p == null ? null : p.getLeft()),
+        Grid.create(namedSolutions, p -> p == null || p.getRight() == null ? null : p.getLeft()),
         GraphicsDrawer.build().setConfigurable("drawers", List.of(
             it.units.erallab.hmsrobots.viewers.drawers.Ground.build(),
             it.units.erallab.hmsrobots.viewers.drawers.Robot.build(),
@@ -141,14 +474,17 @@ public class GridFileWriter implements Flushable, GridSnapshotListener {
             it.units.erallab.hmsrobots.viewers.drawers.Angle.build()
         ))
     );
+    //frames are drawn on other threads, not to stall the simulations
+    ExecutorService drawingExecutor = Executors.newFixedThreadPool(nOfThreads);
     GridEpisodeRunner<S> runner = new GridEpisodeRunner<>(
         namedSolutions,
         task,
-        gridFileWriter,
+        AsyncSnapshotListener.grid(gridFileWriter, ASYNC_BUFFER_CAPACITY, AsyncSnapshotListener.Policy.BLOCK, drawingExecutor),
         executor
     );
     runner.run();
     executor.shutdownNow();
+    drawingExecutor.shutdownNow();
   }
 
   public static <S> void save(Task<S, ?> task, List<S> ss, int w, int h, double startTime, double frameRate, VideoUtils.EncoderFacility encoder, File file) throws IOException {
@@ -22,32 +22,45 @@ import it.units.erallab.hmsrobots.tasks.Task;
 import it.units.erallab.hmsrobots.util.BoundingBox;
 import it.units.erallab.hmsrobots.util.Grid;
 import it.units.erallab.hmsrobots.util.Point2;
+import it.units.erallab.hmsrobots.util.SpscRingBuffer;
 import it.units.erallab.hmsrobots.viewers.drawers.SensorReading;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferStrategy;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
+ * Shows the episodes of a grid live, at {@link #FRAME_RATE} frames per second. Snapshots flow from the simulations to
+ * the composer, and from the composer to the renderer, through bounded lock-free queues: with {@link
+ * FramePolicy#REAL_TIME}, snapshots which do not fit the queues are dropped and frames are shown at their simulated
+ * time; with {@link FramePolicy#THROTTLE}, simulations wait for the display and all frames are shown.
+ *
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
 public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
 
+  public enum FramePolicy {REAL_TIME, THROTTLE}
+
   private final static int FRAME_RATE = 20;
   private final static int INIT_WIN_WIDTH = 1000;
   private final static int INIT_WIN_HEIGHT = 600;
+  private final static int DEFAULT_QUEUE_CAPACITY = FRAME_RATE * 2;
+  private final static long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
 
   private final Grid<String> namesGrid;
-  private final Queue<Grid<Snapshot>> gridQueue;
-  private final Grid<Queue<Snapshot>> queueGrid;
+  private final FramePolicy framePolicy;
+  private final SpscRingBuffer<Grid<Snapshot>> gridQueue;
+  private final Grid<SpscRingBuffer<Snapshot>> queueGrid;
+  private final Grid<AtomicLong> droppedGrid;
   private final Grid<Framer> framerGrid;
 
   private final Canvas canvas;
@@ -57,20 +70,26 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
   private double t;
   private final boolean running;
 
-  public GridOnlineViewer(Grid<String> namesGrid, ScheduledExecutorService executor, GraphicsDrawer graphicsDrawer) {
+  private final AtomicLong skippedFrames = new AtomicLong();
+  private final AtomicLong lateFrames = new AtomicLong();
+
+  public GridOnlineViewer(Grid<String> namesGrid, ScheduledExecutorService executor, GraphicsDrawer graphicsDrawer, FramePolicy framePolicy, int queueCapacity) {
     super("World viewer");
     this.namesGrid = namesGrid;
     this.executor = executor;
+    this.framePolicy = framePolicy;
     //create things
     framerGrid = Grid.create(namesGrid);
-    gridQueue = new LinkedList<>();
+    gridQueue = new SpscRingBuffer<>(queueCapacity);
     queueGrid = Grid.create(namesGrid);
+    droppedGrid = Grid.create(namesGrid);
     //create drawer
     this.graphicsDrawer = graphicsDrawer;
     for (int x = 0; x < namesGrid.getW(); x++) {
       for (int y = 0; y < namesGrid.getH(); y++) {
         framerGrid.set(x, y, new RobotFollower(FRAME_RATE * 3, 1.5d, 100, RobotFollower.AggregateType.MAX));
-        queueGrid.set(x, y, new LinkedList<>());
+        queueGrid.set(x, y, new SpscRingBuffer<>(queueCapacity));
+        droppedGrid.set(x, y, new AtomicLong());
       }
     }
     //create/set ui components
@@ -92,45 +111,36 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
           while (running) {
             //check if ready
             Grid<Snapshot> snapshotGrid = Grid.create(queueGrid);
-            synchronized (queueGrid) {
-              for (Grid.Entry<Queue<Snapshot>> entry : queueGrid) {
-                Snapshot snapshot;
-                while ((snapshot = entry.getValue().peek()) != null) {
-                  if (snapshot.getTime() < t) {
-                    entry.getValue().poll();
-                  } else {
-                    break;
-                  }
+            for (Grid.Entry<SpscRingBuffer<Snapshot>> entry : queueGrid) {
+              Snapshot snapshot;
+              while ((snapshot = entry.getValue().peek()) != null) {
+                if (snapshot.getTime() < t) {
+                  entry.getValue().poll();
+                } else {
+                  break;
                 }
-                snapshotGrid.set(entry.getX(), entry.getY(), snapshot);
               }
+              snapshotGrid.set(entry.getX(), entry.getY(), snapshot);
             }
             boolean ready = true;
-            for (Grid.Entry<Queue<Snapshot>> entry : queueGrid) {
+            for (Grid.Entry<SpscRingBuffer<Snapshot>> entry : queueGrid) {
               ready = ready && ((namesGrid.get(entry.getX(), entry.getY()) == null) || (snapshotGrid.get(entry.getX(), entry.getY()) != null));
             }
-            if (ready) {
+            if (ready && gridQueue.offer(Grid.copy(snapshotGrid))) {
               //update time
               t = t + 1d / FRAME_RATE;
-              //render asynchronously
-              synchronized (gridQueue) {
-                gridQueue.offer(Grid.copy(snapshotGrid));
-                gridQueue.notifyAll();
-              }
             } else {
-              synchronized (queueGrid) {
-                try {
-                  queueGrid.wait();
-                } catch (InterruptedException ex) {
-                  //ignore
-                }
-              }
+              LockSupport.parkNanos(IDLE_NANOS);
             }
           }
         }
     );
   }
 
+  public GridOnlineViewer(Grid<String> namesGrid, ScheduledExecutorService executor, GraphicsDrawer graphicsDrawer) {
+    this(namesGrid, executor, graphicsDrawer, FramePolicy.REAL_TIME, DEFAULT_QUEUE_CAPACITY);
+  }
+
   public GridOnlineViewer(Grid<String> namesGrid, ScheduledExecutorService executor) {
     this(namesGrid, executor, GraphicsDrawer.build());
   }
@@ -142,6 +152,7 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
     //start consumer of composed frames
     Runnable drawer = new Runnable() {
       final Stopwatch stopwatch = Stopwatch.createUnstarted();
+      boolean rendered = false;
 
       @Override
       public void run() {
@@ -150,34 +161,32 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
         }
         double currentTime = (double) stopwatch.elapsed(TimeUnit.MILLISECONDS) / 1000d;
         Grid<Snapshot> localSnapshotGrid = null;
-        synchronized (gridQueue) {
-          while (!gridQueue.isEmpty()) {
-            localSnapshotGrid = gridQueue.poll();
-            if (gridQueue.isEmpty() || (gridQueue.peek().get(0, 0).getTime() > currentTime)) {
+        if (framePolicy.equals(FramePolicy.THROTTLE)) {
+          localSnapshotGrid = gridQueue.poll();
+        } else {
+          //take the latest frame which is due, skipping the older ones
+          Grid<Snapshot> next;
+          while ((next = gridQueue.peek()) != null) {
+            if (localSnapshotGrid != null && time(next) > currentTime) {
               break;
             }
+            if (localSnapshotGrid != null) {
+              skippedFrames.incrementAndGet();
+            }
+            localSnapshotGrid = gridQueue.poll();
           }
         }
         if (localSnapshotGrid != null) {
           try {
-            renderFrame(localSnapshotGrid);
+            renderFrame(localSnapshotGrid, currentTime - time(localSnapshotGrid));
+            rendered = true;
           } catch (Throwable t) {
             t.printStackTrace();
             System.exit(0);
           }
-          synchronized (gridQueue) {
-            gridQueue.notifyAll();
-          }
-        } else {
-          synchronized (gridQueue) {
-            try {
-              gridQueue.wait();
-            } catch (InterruptedException ex) {
-              //ignore
-            }
-          }
+        } else if (rendered) {
+          lateFrames.incrementAndGet();
         }
-
       }
     };
     executor.scheduleAtFixedRate(drawer, Math.round(delay * 1000d), Math.round(1000d / (double) FRAME_RATE), TimeUnit.MILLISECONDS);
@@ -187,17 +196,38 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
     return e.name().replace("_", " ").toLowerCase();
   }
 
+  private static double time(Grid<Snapshot> snapshotGrid) {
+    return snapshotGrid.values().stream()
+        .filter(s -> s != null)
+        .mapToDouble(Snapshot::getTime)
+        .findFirst().orElse(0d);
+  }
+
   @Override
   public SnapshotListener listener(final int lX, final int lY) {
-    return (Snapshot snapshot) -> {
-      synchronized (queueGrid) {
-        queueGrid.get(lX, lY).offer(snapshot);
-        queueGrid.notifyAll();
+    //frames are rendered at FRAME_RATE in simulated time: other snapshots would be discarded anyway
+    return SamplingSnapshotListener.rate(0d, Double.POSITIVE_INFINITY, FRAME_RATE, new SnapshotListener() {
+      @Override
+      public Set<Snapshot.Content> requiredContents() {
+        //drawers may be changed while running: contents are derived anew at each snapshot
+        return graphicsDrawer.requiredContents();
       }
-    };
+
+      @Override
+      public void listen(Snapshot snapshot) {
+        SpscRingBuffer<Snapshot> queue = queueGrid.get(lX, lY);
+        if (framePolicy.equals(FramePolicy.THROTTLE)) {
+          while (!queue.offer(snapshot)) {
+            LockSupport.parkNanos(IDLE_NANOS);
+          }
+        } else if (!queue.offer(snapshot)) {
+          droppedGrid.get(lX, lY).incrementAndGet();
+        }
+      }
+    });
   }
 
-  private void renderFrame(Grid<Snapshot> localSnapshotGrid) {
+  private void renderFrame(Grid<Snapshot> localSnapshotGrid, double lag) {
     //set local clip size
     double localW = (double) canvas.getWidth() / (double) namesGrid.getW();
     double localH = (double) canvas.getHeight() / (double) namesGrid.getH();
@@ -215,10 +245,24 @@ public class GridOnlineViewer extends JFrame implements GridSnapshotListener {
                 Point2.build(localW * entry.getX(), localH * entry.getY()),
                 Point2.build(localW * (entry.getX() + 1), localH * (entry.getY() + 1))
             ),
-            frame, namesGrid.get(entry.getX(), entry.getY())
+            frame,
+            namesGrid.get(entry.getX(), entry.getY()),
+            String.format(
+                "queue=%d/%d dropped=%d",
+                queueGrid.get(entry.getX(), entry.getY()).size(),
+                queueGrid.get(entry.getX(), entry.getY()).capacity(),
+                droppedGrid.get(entry.getX(), entry.getY()).get()
+            )
         );
       }
     }
+    //draw stats
+    g.setClip(0, 0, canvas.getWidth(), canvas.getHeight());
+    g.setColor(Color.BLUE);
+    g.drawString(
+        String.format("%s: lag=%.1fs skipped=%d late=%d", name(framePolicy), lag, skippedFrames.get(), lateFrames.get()),
+        1, canvas.getHeight() - g.getFontMetrics().getMaxDescent() - 1
+    );
     //dispose and encode
     g.dispose();
     BufferStrategy strategy = canvas.getBufferStrategy();
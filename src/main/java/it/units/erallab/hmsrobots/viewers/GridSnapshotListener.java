@@ -23,4 +23,11 @@ public interface GridSnapshotListener {
 
   SnapshotListener listener(int x, int y);
 
+  /**
+   * Tells that the episode of the cell at {@code x,y} is over, either completed or failed: no more snapshots will be
+   * passed to its listener.
+   */
+  default void ended(int x, int y) {
+  }
+
 }
@@ -16,14 +16,22 @@
  */
 package it.units.erallab.hmsrobots.viewers;
 
-import com.google.common.collect.EvictingQueue;
 import it.units.erallab.hmsrobots.core.objects.immutable.Robot;
 import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
-import it.units.erallab.hmsrobots.core.objects.immutable.Voxel;
 import it.units.erallab.hmsrobots.util.BoundingBox;
 import it.units.erallab.hmsrobots.util.Point2;
 
+import java.util.Objects;
+
 /**
+ * Frames the robots of the snapshots aggregating their enclosing boxes over a sliding window of the last snapshots.
+ * The aggregate is updated in constant amortized time: with {@link AggregateType#MAX}, each coordinate of the box is
+ * the extreme kept by a monotonic deque; with {@link AggregateType#AVG}, it is the mean kept as a running sum.
+ * <p>
+ * With {@link AggregateType#AVG}, each coordinate is the arithmetic mean over the window: formerly, it was the result of
+ * averaging the boxes pairwise in order, which weighted the most recent box by one half and the older ones
+ * exponentially less.
+ *
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
 public class RobotFollower implements Framer {
@@ -36,13 +44,69 @@ public class RobotFollower implements Framer {
   private final int compounds;
   private final AggregateType aggregateType;
 
-  private final EvictingQueue<BoundingBox> enclosingFrames;
+  private final BoundingBox[] window;
+  private long count;
+  private final SlidingExtreme minX;
+  private final SlidingExtreme minY;
+  private final SlidingExtreme maxX;
+  private final SlidingExtreme maxY;
+  private double sumMinX;
+  private double sumMinY;
+  private double sumMaxX;
+  private double sumMaxY;
+
+  /**
+   * The extreme (max or min) of the last values, kept in a deque of decreasing (or increasing) values stored in a
+   * ring.
+   */
+  private static class SlidingExtreme {
+    private final boolean max;
+    private final double[] values;
+    private final long[] indexes;
+    private int head;
+    private int size;
+
+    public SlidingExtreme(int windowSize, boolean max) {
+      this.max = max;
+      values = new double[windowSize];
+      indexes = new long[windowSize];
+    }
+
+    public void add(long index, double value) {
+      //remove values out of the window
+      while (size > 0 && indexes[head] <= index - values.length) {
+        head = (head + 1) % values.length;
+        size = size - 1;
+      }
+      //remove values which can no longer be the extreme
+      while (size > 0) {
+        int last = (head + size - 1) % values.length;
+        if (max ? values[last] <= value : values[last] >= value) {
+          size = size - 1;
+        } else {
+          break;
+        }
+      }
+      int tail = (head + size) % values.length;
+      values[tail] = value;
+      indexes[tail] = index;
+      size = size + 1;
+    }
+
+    public double get() {
+      return values[head];
+    }
+  }
 
   public RobotFollower(int windowSize, double sizeRelativeMargin, int nOfRobots, AggregateType aggregateType) {
     this.sizeRelativeMargin = sizeRelativeMargin;
     this.compounds = nOfRobots;
     this.aggregateType = aggregateType;
-    enclosingFrames = EvictingQueue.create(windowSize);
+    window = new BoundingBox[windowSize];
+    minX = new SlidingExtreme(windowSize, false);
+    minY = new SlidingExtreme(windowSize, false);
+    maxX = new SlidingExtreme(windowSize, true);
+    maxY = new SlidingExtreme(windowSize, true);
   }
 
   @Override
@@ -51,22 +115,42 @@ public class RobotFollower implements Framer {
     BoundingBox enclosing = snapshot.getObjects().stream()
         .filter(o -> o instanceof Robot)
         .limit(compounds)
-        .map(o -> o.getChildren().stream()
-            .filter(c -> c instanceof Voxel)
-            .map(c -> ((Voxel) c).getShape().boundingBox())
-            .reduce((b1, b2) -> BoundingBox.largest(b1, b2))
-            .get())
-        .reduce((b1, b2) -> BoundingBox.largest(b1, b2))
+        .map(o -> ((Robot) o).getBoundingBox())
+        .filter(Objects::nonNull)
+        .reduce(BoundingBox::largest)
         .get();
-    //add to queue
-    enclosingFrames.offer(enclosing);
+    //add to window
+    int slot = (int) (count % window.length);
+    if (count >= window.length) {
+      sumMinX = sumMinX - window[slot].min.x;
+      sumMinY = sumMinY - window[slot].min.y;
+      sumMaxX = sumMaxX - window[slot].max.x;
+      sumMaxY = sumMaxY - window[slot].max.y;
+    }
+    window[slot] = enclosing;
+    sumMinX = sumMinX + enclosing.min.x;
+    sumMinY = sumMinY + enclosing.min.y;
+    sumMaxX = sumMaxX + enclosing.max.x;
+    sumMaxY = sumMaxY + enclosing.max.y;
+    minX.add(count, enclosing.min.x);
+    minY.add(count, enclosing.min.y);
+    maxX.add(count, enclosing.max.x);
+    maxY.add(count, enclosing.max.y);
+    count = count + 1;
     //compute aggregate frame
-    BoundingBox aggregated = enclosingFrames.stream().reduce((b1, b2) -> {
-      if (aggregateType.equals(AggregateType.AVG)) {
-        return average(b1, b2);
-      }
-      return BoundingBox.largest(b1, b2);
-    }).get();
+    BoundingBox aggregated;
+    if (aggregateType.equals(AggregateType.AVG)) {
+      double n = (double) Math.min(count, window.length);
+      aggregated = BoundingBox.build(
+          Point2.build(sumMinX / n, sumMinY / n),
+          Point2.build(sumMaxX / n, sumMaxY / n)
+      );
+    } else {
+      aggregated = BoundingBox.build(
+          Point2.build(minX.get(), minY.get()),
+          Point2.build(maxX.get(), maxY.get())
+      );
+    }
     //enlarge
     double cx = (aggregated.min.x + aggregated.max.x) / 2d;
     double cy = (aggregated.min.y + aggregated.max.y) / 2d;
@@ -113,13 +197,6 @@ public class RobotFollower implements Framer {
     return adjusted;
   }
 
-  private static BoundingBox average(BoundingBox b1, BoundingBox b2) {
-    return BoundingBox.build(
-        Point2.average(b1.min, b2.min),
-        Point2.average(b1.max, b2.max)
-    );
-  }
-
   public void setSizeRelativeMargin(double sizeRelativeMargin) {
     this.sizeRelativeMargin = sizeRelativeMargin;
   }
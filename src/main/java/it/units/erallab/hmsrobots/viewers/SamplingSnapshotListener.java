@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * A {@link SnapshotListener} that passes to an inner listener only the snapshots taken at the times it needs: either
+ * at a given rate, or all the ones in a time window, or the first ones at or after each of a set of given times.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SamplingSnapshotListener implements SnapshotListener {
+
+  private enum Type {RATE, WINDOW, TIMES}
+
+  private final Type type;
+  private final double startT;
+  private final double endT;
+  private final double rate;
+  private final double[] times;
+  private final SnapshotListener inner;
+
+  private double nextT;
+
+  private SamplingSnapshotListener(Type type, double startT, double endT, double rate, double[] times, SnapshotListener inner) {
+    this.type = type;
+    this.startT = startT;
+    this.endT = endT;
+    this.rate = rate;
+    this.times = times;
+    this.inner = inner;
+    nextT = nextT(null);
+  }
+
+  /**
+   * Samples at the times {@code startT+k/rate} in {@code [startT,endT]}, taking for each the first snapshot at or
+   * after it.
+   */
+  public static SamplingSnapshotListener rate(double startT, double endT, double rate, SnapshotListener inner) {
+    if (rate <= 0d) {
+      throw new IllegalArgumentException(String.format("Rate must be positive: %f found", rate));
+    }
+    return new SamplingSnapshotListener(Type.RATE, startT, endT, rate, null, inner);
+  }
+
+  public static SamplingSnapshotListener window(double startT, double endT, SnapshotListener inner) {
+    return new SamplingSnapshotListener(Type.WINDOW, startT, endT, Double.POSITIVE_INFINITY, null, inner);
+  }
+
+  /**
+   * Samples, for each of the given times, the first snapshot at or after it.
+   */
+  public static SamplingSnapshotListener times(Collection<Double> times, SnapshotListener inner) {
+    double[] sortedTimes = times.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+    return new SamplingSnapshotListener(Type.TIMES, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NaN, sortedTimes, inner);
+  }
+
+  private double nextT(Double lastT) {
+    if (lastT == null) {
+      return type.equals(Type.TIMES) ? (times.length > 0 ? times[0] : Double.POSITIVE_INFINITY) : startT;
+    }
+    return switch (type) {
+      case RATE -> startT + (Math.floor((lastT - startT) * rate) + 1d) / rate;
+      case WINDOW -> Math.nextUp(lastT);
+      case TIMES -> {
+        int timeIndex = Arrays.binarySearch(times, lastT);
+        timeIndex = timeIndex >= 0 ? timeIndex : (-timeIndex - 1);
+        while (timeIndex < times.length && times[timeIndex] <= lastT) {
+          timeIndex = timeIndex + 1;
+        }
+        yield timeIndex < times.length ? times[timeIndex] : Double.POSITIVE_INFINITY;
+      }
+    };
+  }
+
+  @Override
+  public boolean isNeeded(double t) {
+    return t >= nextT && t <= endT && inner.isNeeded(t);
+  }
+
+  @Override
+  public boolean isNeeded(double t, Double lastT) {
+    //the inner listener gets all and only the snapshots used by this one
+    return t >= nextT(lastT) && t <= endT && inner.isNeeded(t, lastT);
+  }
+
+  @Override
+  public Set<Snapshot.Content> requiredContents() {
+    return inner.requiredContents();
+  }
+
+  @Override
+  public void listen(Snapshot snapshot) {
+    double t = snapshot.getTime();
+    if (!isNeeded(t)) {
+      return;
+    }
+    inner.listen(snapshot);
+    nextT = nextT(t);
+  }
+
+  @Override
+  public String toString() {
+    return "SamplingSnapshotListener{" +
+        "type=" + type +
+        ", startT=" + startT +
+        ", endT=" + endT +
+        (type.equals(Type.RATE) ? (", rate=" + rate) : "") +
+        (type.equals(Type.TIMES) ? (", times=" + Arrays.toString(times)) : "") +
+        '}';
+  }
+}
@@ -18,6 +18,8 @@ package it.units.erallab.hmsrobots.viewers;
 
 import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
 
+import java.util.Set;
+
 /**
  * @author Eric Medvet <eric.medvet@gmail.com>
  */
@@ -25,4 +27,31 @@ public interface SnapshotListener {
 
   void listen(Snapshot snapshot);
 
+  /**
+   * Tells whether a snapshot taken at time {@code t} would be used by this listener: tasks do not build (and do not
+   * pass) the snapshots which are not needed, since building the immutable representation of the world is costly.
+   */
+  default boolean isNeeded(double t) {
+    return true;
+  }
+
+  /**
+   * Tells whether a snapshot taken at time {@code t} would be used by this listener, provided that the last snapshot
+   * it has used (or will use, once it has listened to the ones already passed) was taken at {@code lastT}, or that it
+   * has used none if {@code lastT} is {@code null}. Listeners which consume snapshots later than they receive them
+   * (e.g., {@link AsyncSnapshotListener}) rely on this for sampling, since the state read by {@link #isNeeded(double)}
+   * is not yet updated. By default, it ignores {@code lastT}.
+   */
+  default boolean isNeeded(double t, Double lastT) {
+    return isNeeded(t);
+  }
+
+  /**
+   * Tells which optional parts of the objects this listener actually uses: tasks build the immutable representation
+   * with only these parts.
+   */
+  default Set<Snapshot.Content> requiredContents() {
+    return Snapshot.ALL_CONTENTS;
+  }
+
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.objects.immutable.*;
+import it.units.erallab.hmsrobots.core.sensors.immutable.Angle;
+import it.units.erallab.hmsrobots.core.sensors.immutable.Lidar;
+import it.units.erallab.hmsrobots.core.sensors.immutable.SensorReading;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Constants and primitives shared by {@link SnapshotLogWriter} and {@link SnapshotLogReader}.
+ * <p>
+ * A log starts with a header (magic number, version, position quantum, value quantum) followed by a sequence of
+ * records, each preceded by a one-byte tag. A topology record describes the tree of objects of the following frames:
+ * kind of each object, number of vertexes of each shape, number of values of each sensor reading, and all the data
+ * which does not change at each step (sensor domains, lidar rays, malfunctions, the ground shape). A frame record
+ * contains the time followed by all the vertex coordinates and then all the scalar values (area ratios, energies,
+ * sensor readings) in the order given by the topology: each one is quantized and written as the zigzag varint of the
+ * difference with the same quantity in the previous frame. A topology record is written only when the tree changes.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+final class SnapshotLogFormat {
+
+  static final byte[] MAGIC = new byte[]{'H', 'M', 'S', 'L'};
+  static final int VERSION = 1;
+
+  static final int TOPOLOGY = 0;
+  static final int FRAME = 1;
+
+  static final int ROBOT = 0;
+  static final int GROUND = 1;
+  static final int BOX = 2;
+  static final int VOXEL = 3;
+  static final int CONTROLLABLE_VOXEL = 4;
+  static final int BREAKABLE_VOXEL = 5;
+  static final int VOXEL_BODY = 6;
+  static final int VOXEL_JOINT = 7;
+  static final int SENSOR_READING = 8;
+  static final int ANGLE = 9;
+  static final int LIDAR = 10;
+
+  static final Map<Class<? extends Immutable>, Integer> KINDS = Map.ofEntries(
+      Map.entry(Robot.class, ROBOT),
+      Map.entry(Ground.class, GROUND),
+      Map.entry(Box.class, BOX),
+      Map.entry(Voxel.class, VOXEL),
+      Map.entry(ControllableVoxel.class, CONTROLLABLE_VOXEL),
+      Map.entry(BreakableVoxel.class, BREAKABLE_VOXEL),
+      Map.entry(VoxelBody.class, VOXEL_BODY),
+      Map.entry(VoxelJoint.class, VOXEL_JOINT),
+      Map.entry(SensorReading.class, SENSOR_READING),
+      Map.entry(Angle.class, ANGLE),
+      Map.entry(Lidar.class, LIDAR)
+  );
+
+  static final int POLY = 0;
+  static final int VECTOR = 1;
+  static final int POINT = 2;
+
+  private SnapshotLogFormat() {
+  }
+
+  static void writeUnsignedVarint(DataOutput out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value = value >>> 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  static void writeSignedVarint(DataOutput out, long value) throws IOException {
+    writeUnsignedVarint(out, (value << 1) ^ (value >> 63));
+  }
+
+  static long readUnsignedVarint(DataInput in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift = shift + 7) {
+      int b = in.readUnsignedByte();
+      value = value | ((long) (b & 0x7F) << shift);
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  static long readSignedVarint(DataInput in) throws IOException {
+    long value = readUnsignedVarint(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  static void writeDouble(DataOutput out, double value) throws IOException {
+    out.writeLong(Long.reverseBytes(Double.doubleToRawLongBits(value)));
+  }
+
+  static double readDouble(DataInput in) throws IOException {
+    return Double.longBitsToDouble(Long.reverseBytes(in.readLong()));
+  }
+
+}
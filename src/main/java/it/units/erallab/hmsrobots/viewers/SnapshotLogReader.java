@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.objects.immutable.*;
+import it.units.erallab.hmsrobots.core.sensors.Sensor;
+import it.units.erallab.hmsrobots.core.sensors.immutable.Angle;
+import it.units.erallab.hmsrobots.core.sensors.immutable.Lidar;
+import it.units.erallab.hmsrobots.core.sensors.immutable.SensorReading;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.Point2;
+import it.units.erallab.hmsrobots.util.Poly;
+import it.units.erallab.hmsrobots.util.Shape;
+import it.units.erallab.hmsrobots.util.Vector;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoublePredicate;
+
+import static it.units.erallab.hmsrobots.viewers.SnapshotLogFormat.*;
+
+/**
+ * Reads back the snapshots written by a {@link SnapshotLogWriter}, so that they can be passed to any
+ * {@link SnapshotListener} (e.g., {@link GridFileWriter}, {@link FramesImageBuilder}, {@link GridOnlineViewer}) without
+ * running the simulation again. Vertex coordinates and scalar values are restored up to the quanta used when writing.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SnapshotLogReader implements Closeable {
+
+  private static final it.units.erallab.hmsrobots.core.objects.BreakableVoxel.MalfunctionType[] MALFUNCTION_TYPES = it.units.erallab.hmsrobots.core.objects.BreakableVoxel.MalfunctionType.values();
+
+  private final DataInputStream in;
+  private final double positionQuantum;
+  private final double valueQuantum;
+
+  private List<Node> topology;
+  private long[] positions;
+  private long[] values;
+  private int positionIndex;
+  private int valueIndex;
+
+  private static class Node {
+    private final int kind;
+    private final List<Node> children = new ArrayList<>();
+    private int shapeKind;
+    private int nOfVertexes;
+    private Shape staticShape;
+    private it.units.erallab.hmsrobots.core.objects.BreakableVoxel.MalfunctionType[] malfunctionTypes;
+    private int sensorIndex;
+    private int nOfSensors;
+    private int nOfValues;
+    private Sensor.Domain[] domains;
+    private double rayLength;
+    private double[] rayDirections;
+
+    private Node(int kind) {
+      this.kind = kind;
+    }
+  }
+
+  public SnapshotLogReader(InputStream inputStream) throws IOException {
+    in = new DataInputStream(inputStream instanceof BufferedInputStream ? inputStream : new BufferedInputStream(inputStream));
+    byte[] magic = new byte[MAGIC.length];
+    in.readFully(magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IOException("Not a snapshot log: wrong magic number");
+    }
+    int version = in.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException(String.format("Unsupported snapshot log version: %d instead of %d", version, VERSION));
+    }
+    positionQuantum = readDouble(in);
+    valueQuantum = readDouble(in);
+  }
+
+  public SnapshotLogReader(File file) throws IOException {
+    this(new FileInputStream(file));
+  }
+
+  /**
+   * Passes all the snapshots of a log to a listener. Snapshots which are not needed by the listener are decoded but not
+   * built.
+   */
+  public static void replay(File file, SnapshotListener listener) throws IOException {
+    try (SnapshotLogReader reader = new SnapshotLogReader(file)) {
+      reader.replay(listener);
+    }
+  }
+
+  /**
+   * Passes the snapshots of each log to the listener of the corresponding cell, one cell after the other, and then
+   * flushes the listener, if it is {@link Flushable}. Null files are skipped.
+   */
+  public static void replay(Grid<File> files, GridSnapshotListener gridSnapshotListener) throws IOException {
+    for (Grid.Entry<File> entry : files) {
+      if (entry.getValue() != null) {
+        replay(entry.getValue(), gridSnapshotListener.listener(entry.getX(), entry.getY()));
+      }
+    }
+    if (gridSnapshotListener instanceof Flushable) {
+      ((Flushable) gridSnapshotListener).flush();
+    }
+  }
+
+  public void replay(SnapshotListener listener) throws IOException {
+    while (true) {
+      Snapshot snapshot = next(listener::isNeeded);
+      if (snapshot == null) {
+        return;
+      }
+      listener.listen(snapshot);
+    }
+  }
+
+  public Snapshot next() throws IOException {
+    return next(t -> true);
+  }
+
+  /**
+   * Returns the next snapshot whose time satisfies the predicate, or {@code null} if the end of the log is reached.
+   */
+  public Snapshot next(DoublePredicate isNeeded) throws IOException {
+    while (true) {
+      int tag = in.read();
+      if (tag == -1) {
+        return null;
+      }
+      if (tag == TOPOLOGY) {
+        readTopology();
+      } else if (tag == FRAME) {
+        if (topology == null) {
+          throw new IOException("Malformed snapshot log: frame before topology");
+        }
+        double t = readDouble(in);
+        for (int i = 0; i < positions.length; i++) {
+          positions[i] = positions[i] + readSignedVarint(in);
+        }
+        for (int i = 0; i < values.length; i++) {
+          values[i] = values[i] + readSignedVarint(in);
+        }
+        if (isNeeded.test(t)) {
+          positionIndex = 0;
+          valueIndex = 0;
+          List<Immutable> objects = new ArrayList<>(topology.size());
+          for (Node node : topology) {
+            objects.add(build(node));
+          }
+          return new Snapshot(t, objects);
+        }
+      } else {
+        throw new IOException(String.format("Malformed snapshot log: unknown record %d", tag));
+      }
+    }
+  }
+
+  private void readTopology() throws IOException {
+    byte[] bytes = new byte[(int) readUnsignedVarint(in)];
+    in.readFully(bytes);
+    DataInputStream topologyIn = new DataInputStream(new ByteArrayInputStream(bytes));
+    int[] counts = new int[2];
+    int nOfObjects = (int) readUnsignedVarint(topologyIn);
+    topology = new ArrayList<>(nOfObjects);
+    for (int i = 0; i < nOfObjects; i++) {
+      topology.add(readNode(topologyIn, counts));
+    }
+    positions = new long[counts[0]];
+    values = new long[counts[1]];
+  }
+
+  private static Node readNode(DataInput topologyIn, int[] counts) throws IOException {
+    Node node = new Node((int) readUnsignedVarint(topologyIn));
+    switch (node.kind) {
+      case ROBOT -> {
+      }
+      case GROUND -> {
+        Point2[] vertexes = new Point2[(int) readUnsignedVarint(topologyIn)];
+        for (int i = 0; i < vertexes.length; i++) {
+          vertexes[i] = Point2.build(readDouble(topologyIn), readDouble(topologyIn));
+        }
+        node.staticShape = Poly.build(vertexes);
+      }
+      case BOX, VOXEL_BODY, VOXEL_JOINT -> readShape(node, topologyIn, counts);
+      case VOXEL, CONTROLLABLE_VOXEL, BREAKABLE_VOXEL -> {
+        readShape(node, topologyIn, counts);
+        counts[1] = counts[1] + (node.kind == VOXEL ? 2 : 4);
+        if (node.kind == BREAKABLE_VOXEL) {
+          node.malfunctionTypes = new it.units.erallab.hmsrobots.core.objects.BreakableVoxel.MalfunctionType[3];
+          for (int i = 0; i < node.malfunctionTypes.length; i++) {
+            node.malfunctionTypes[i] = MALFUNCTION_TYPES[(int) readUnsignedVarint(topologyIn)];
+          }
+        }
+      }
+      case SENSOR_READING, ANGLE, LIDAR -> {
+        node.sensorIndex = (int) readUnsignedVarint(topologyIn);
+        node.nOfSensors = (int) readUnsignedVarint(topologyIn);
+        node.nOfValues = (int) readUnsignedVarint(topologyIn);
+        node.domains = new Sensor.Domain[(int) readUnsignedVarint(topologyIn)];
+        for (int i = 0; i < node.domains.length; i++) {
+          node.domains[i] = Sensor.Domain.of(readDouble(topologyIn), readDouble(topologyIn));
+        }
+        counts[1] = counts[1] + node.nOfValues;
+        if (node.kind == LIDAR) {
+          node.rayLength = readDouble(topologyIn);
+          node.rayDirections = new double[(int) readUnsignedVarint(topologyIn)];
+          for (int i = 0; i < node.rayDirections.length; i++) {
+            node.rayDirections[i] = readDouble(topologyIn);
+          }
+          counts[1] = counts[1] + 1;
+        }
+      }
+      default -> throw new IOException(String.format("Malformed snapshot log: unknown object kind %d", node.kind));
+    }
+    int nOfChildren = (int) readUnsignedVarint(topologyIn);
+    for (int i = 0; i < nOfChildren; i++) {
+      node.children.add(readNode(topologyIn, counts));
+    }
+    return node;
+  }
+
+  private static void readShape(Node node, DataInput topologyIn, int[] counts) throws IOException {
+    node.shapeKind = (int) readUnsignedVarint(topologyIn);
+    node.nOfVertexes = switch (node.shapeKind) {
+      case POLY -> (int) readUnsignedVarint(topologyIn);
+      case VECTOR -> 2;
+      case POINT -> 1;
+      default -> throw new IOException(String.format("Malformed snapshot log: unknown shape kind %d", node.shapeKind));
+    };
+    counts[0] = counts[0] + 2 * node.nOfVertexes;
+  }
+
+  private Immutable build(Node node) {
+    Immutable immutable = switch (node.kind) {
+      case ROBOT -> new Robot();
+      case GROUND -> new Ground(node.staticShape);
+      case BOX -> new Box(nextShape(node));
+      case VOXEL_BODY -> new VoxelBody(nextShape(node));
+      case VOXEL_JOINT -> new VoxelJoint(nextShape(node));
+      case VOXEL -> new Voxel(nextShape(node), nextValue(), nextValue());
+      case CONTROLLABLE_VOXEL -> new ControllableVoxel(nextShape(node), nextValue(), nextValue(), nextValue(), nextValue());
+      case BREAKABLE_VOXEL -> new BreakableVoxel(
+          nextShape(node), nextValue(), nextValue(), nextValue(), nextValue(),
+          node.malfunctionTypes[0], node.malfunctionTypes[1], node.malfunctionTypes[2]
+      );
+      case SENSOR_READING -> new SensorReading(nextValues(node.nOfValues), node.domains, node.sensorIndex, node.nOfSensors);
+      case ANGLE -> new Angle(nextValues(node.nOfValues), node.domains, node.sensorIndex, node.nOfSensors);
+      case LIDAR -> new Lidar(nextValues(node.nOfValues), node.domains, node.sensorIndex, node.nOfSensors, nextValue(), node.rayLength, node.rayDirections);
+      default -> throw new IllegalStateException(String.format("Unknown object kind %d", node.kind));
+    };
+    for (Node child : node.children) {
+      immutable.getChildren().add(build(child));
+    }
+    return immutable;
+  }
+
+  private Shape nextShape(Node node) {
+    Point2[] vertexes = new Point2[node.nOfVertexes];
+    for (int i = 0; i < vertexes.length; i++) {
+      vertexes[i] = Point2.build(
+          (double) positions[positionIndex] * positionQuantum,
+          (double) positions[positionIndex + 1] * positionQuantum
+      );
+      positionIndex = positionIndex + 2;
+    }
+    return switch (node.shapeKind) {
+      case VECTOR -> Vector.build(vertexes[0], vertexes[1]);
+      case POINT -> vertexes[0];
+      default -> Poly.build(vertexes);
+    };
+  }
+
+  private double nextValue() {
+    double value = (double) values[valueIndex] * valueQuantum;
+    valueIndex = valueIndex + 1;
+    return value;
+  }
+
+  private double[] nextValues(int n) {
+    double[] nextValues = new double[n];
+    for (int i = 0; i < n; i++) {
+      nextValues[i] = nextValue();
+    }
+    return nextValues;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.objects.immutable.*;
+import it.units.erallab.hmsrobots.core.sensors.Sensor;
+import it.units.erallab.hmsrobots.core.sensors.immutable.Lidar;
+import it.units.erallab.hmsrobots.core.sensors.immutable.SensorReading;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.Point2;
+import it.units.erallab.hmsrobots.util.Poly;
+import it.units.erallab.hmsrobots.util.Shape;
+import it.units.erallab.hmsrobots.util.Vector;
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static it.units.erallab.hmsrobots.viewers.SnapshotLogFormat.*;
+
+/**
+ * A {@link SnapshotListener} which appends the snapshots to a compact binary log, to be later replayed with
+ * {@link SnapshotLogReader} without running the simulation again. The description of the objects (which voxels,
+ * joints and sensors exist) is written once and then only when it changes; for each snapshot, vertex coordinates and
+ * scalar values are quantized and written as deltas with respect to the previous snapshot. See
+ * {@link SnapshotLogFormat} for the details of the format.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SnapshotLogWriter implements SnapshotListener, Flushable, Closeable {
+
+  public static final double DEFAULT_POSITION_QUANTUM = 1e-4;
+  public static final double DEFAULT_VALUE_QUANTUM = 1e-4;
+
+  private final DataOutputStream out;
+  private final double positionQuantum;
+  private final double valueQuantum;
+  private final Set<Snapshot.Content> contents;
+
+  private final TopologyBuffer topologyBuffer = new TopologyBuffer();
+  private final DataOutputStream topologyOut = new DataOutputStream(topologyBuffer);
+  private byte[] lastTopology;
+  private double[] positions = new double[256];
+  private int nOfPositions;
+  private double[] values = new double[256];
+  private int nOfValues;
+  private long[] lastPositions;
+  private long[] lastValues;
+  private long frameCount;
+  private long topologyCount;
+  private final Set<Class<?>> skippedClasses = new HashSet<>();
+
+  private static final Logger L = Logger.getLogger(SnapshotLogWriter.class.getName());
+
+  private static class TopologyBuffer extends ByteArrayOutputStream {
+    private boolean contentEquals(byte[] other) {
+      return other != null && Arrays.equals(buf, 0, count, other, 0, other.length);
+    }
+  }
+
+  public SnapshotLogWriter(OutputStream outputStream, double positionQuantum, double valueQuantum, Set<Snapshot.Content> contents) throws IOException {
+    if (positionQuantum <= 0d || valueQuantum <= 0d) {
+      throw new IllegalArgumentException(String.format("Quanta must be positive: %f and %f found", positionQuantum, valueQuantum));
+    }
+    out = new DataOutputStream(outputStream instanceof BufferedOutputStream ? outputStream : new BufferedOutputStream(outputStream));
+    this.positionQuantum = positionQuantum;
+    this.valueQuantum = valueQuantum;
+    this.contents = contents;
+    out.write(MAGIC);
+    out.writeByte(VERSION);
+    writeDouble(out, positionQuantum);
+    writeDouble(out, valueQuantum);
+  }
+
+  public SnapshotLogWriter(File file) throws IOException {
+    this(new FileOutputStream(file), DEFAULT_POSITION_QUANTUM, DEFAULT_VALUE_QUANTUM, Snapshot.ALL_CONTENTS);
+  }
+
+  /**
+   * Builds a {@link GridSnapshotListener} which logs the snapshots of each cell of the grid on the corresponding file.
+   * Flushing the returned listener closes all the logs.
+   */
+  public static GridSnapshotListener grid(Grid<File> files) {
+    return new GridLogWriter(files);
+  }
+
+  private static class GridLogWriter implements GridSnapshotListener, Flushable {
+    private final Grid<File> files;
+    private final List<SnapshotLogWriter> writers = new ArrayList<>();
+
+    private GridLogWriter(Grid<File> files) {
+      this.files = files;
+    }
+
+    @Override
+    public SnapshotListener listener(int x, int y) {
+      try {
+        SnapshotLogWriter writer = new SnapshotLogWriter(files.get(x, y));
+        synchronized (writers) {
+          writers.add(writer);
+        }
+        return writer;
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Cannot open log file due to %s", e), e);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (writers) {
+        for (SnapshotLogWriter writer : writers) {
+          writer.close();
+        }
+        writers.clear();
+      }
+    }
+  }
+
+  @Override
+  public Set<Snapshot.Content> requiredContents() {
+    return contents;
+  }
+
+  @Override
+  public void listen(Snapshot snapshot) {
+    topologyBuffer.reset();
+    nOfPositions = 0;
+    nOfValues = 0;
+    try {
+      List<Immutable> objects = encodable(snapshot.getObjects());
+      writeUnsignedVarint(topologyOut, objects.size());
+      for (Immutable object : objects) {
+        encode(object);
+      }
+      if (!topologyBuffer.contentEquals(lastTopology)) {
+        out.writeByte(TOPOLOGY);
+        writeUnsignedVarint(out, topologyBuffer.size());
+        topologyBuffer.writeTo(out);
+        lastTopology = topologyBuffer.toByteArray();
+        lastPositions = new long[nOfPositions];
+        lastValues = new long[nOfValues];
+        topologyCount = topologyCount + 1;
+      }
+      out.writeByte(FRAME);
+      writeDouble(out, snapshot.getTime());
+      for (int i = 0; i < nOfPositions; i++) {
+        long q = Math.round(positions[i] / positionQuantum);
+        writeSignedVarint(out, q - lastPositions[i]);
+        lastPositions[i] = q;
+      }
+      for (int i = 0; i < nOfValues; i++) {
+        long q = Math.round(values[i] / valueQuantum);
+        writeSignedVarint(out, q - lastValues[i]);
+        lastValues[i] = q;
+      }
+      frameCount = frameCount + 1;
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Cannot write snapshot due to %s", e), e);
+    }
+  }
+
+  private List<Immutable> encodable(Collection<Immutable> immutables) {
+    List<Immutable> encodable = new ArrayList<>(immutables.size());
+    for (Immutable immutable : immutables) {
+      if (KINDS.containsKey(immutable.getClass())) {
+        encodable.add(immutable);
+      } else if (skippedClasses.add(immutable.getClass())) {
+        L.warning(String.format("Cannot log objects of class %s: skipping them", immutable.getClass().getName()));
+      }
+    }
+    return encodable;
+  }
+
+  private void encode(Immutable immutable) throws IOException {
+    int kind = KINDS.get(immutable.getClass());
+    writeUnsignedVarint(topologyOut, kind);
+    switch (kind) {
+      case GROUND -> {
+        //the ground does not move: its shape is part of the topology
+        Point2[] vertexes = ((Poly) ((Ground) immutable).getShape()).getVertexes();
+        writeUnsignedVarint(topologyOut, vertexes.length);
+        for (Point2 vertex : vertexes) {
+          writeDouble(topologyOut, vertex.x);
+          writeDouble(topologyOut, vertex.y);
+        }
+      }
+      case BOX, VOXEL_BODY, VOXEL_JOINT -> encodeShape(((ShapedImmutable) immutable).getShape());
+      case VOXEL, CONTROLLABLE_VOXEL, BREAKABLE_VOXEL -> {
+        Voxel voxel = (Voxel) immutable;
+        encodeShape(voxel.getShape());
+        addValue(voxel.getAreaRatio());
+        addValue(voxel.getAreaRatioEnergy());
+        if (kind != VOXEL) {
+          addValue(((ControllableVoxel) voxel).getLastAppliedForce());
+          addValue(((ControllableVoxel) voxel).getControlEnergy());
+        }
+        if (kind == BREAKABLE_VOXEL) {
+          BreakableVoxel breakableVoxel = (BreakableVoxel) voxel;
+          writeUnsignedVarint(topologyOut, breakableVoxel.getActuatorMalfunctionType().ordinal());
+          writeUnsignedVarint(topologyOut, breakableVoxel.getSensorsMalfunctionType().ordinal());
+          writeUnsignedVarint(topologyOut, breakableVoxel.getStructureMalfunctionType().ordinal());
+        }
+      }
+      case SENSOR_READING, ANGLE, LIDAR -> {
+        SensorReading reading = (SensorReading) immutable;
+        writeUnsignedVarint(topologyOut, reading.getSensorIndex());
+        writeUnsignedVarint(topologyOut, reading.getnOfSensors());
+        writeUnsignedVarint(topologyOut, reading.getValues().length);
+        writeUnsignedVarint(topologyOut, reading.getDomains().length);
+        for (Sensor.Domain domain : reading.getDomains()) {
+          writeDouble(topologyOut, domain.getMin());
+          writeDouble(topologyOut, domain.getMax());
+        }
+        for (double value : reading.getValues()) {
+          addValue(value);
+        }
+        if (kind == LIDAR) {
+          Lidar lidar = (Lidar) reading;
+          writeDouble(topologyOut, lidar.getRayLength());
+          writeUnsignedVarint(topologyOut, lidar.getRayDirections().length);
+          for (double rayDirection : lidar.getRayDirections()) {
+            writeDouble(topologyOut, rayDirection);
+          }
+          addValue(lidar.getAngle());
+        }
+      }
+    }
+    List<Immutable> children = encodable(immutable.getChildren());
+    writeUnsignedVarint(topologyOut, children.size());
+    for (Immutable child : children) {
+      encode(child);
+    }
+  }
+
+  private void encodeShape(Shape shape) throws IOException {
+    if (shape instanceof Poly) {
+      Point2[] vertexes = ((Poly) shape).getVertexes();
+      writeUnsignedVarint(topologyOut, POLY);
+      writeUnsignedVarint(topologyOut, vertexes.length);
+      for (Point2 vertex : vertexes) {
+        addPosition(vertex);
+      }
+    } else if (shape instanceof Vector) {
+      writeUnsignedVarint(topologyOut, VECTOR);
+      addPosition(((Vector) shape).getStart());
+      addPosition(((Vector) shape).getEnd());
+    } else if (shape instanceof Point2) {
+      writeUnsignedVarint(topologyOut, POINT);
+      addPosition((Point2) shape);
+    } else {
+      throw new IllegalArgumentException(String.format("Cannot log shape of class %s", shape.getClass().getName()));
+    }
+  }
+
+  private void addPosition(Point2 point) {
+    if (nOfPositions + 2 > positions.length) {
+      positions = Arrays.copyOf(positions, positions.length * 2);
+    }
+    positions[nOfPositions] = point.x;
+    positions[nOfPositions + 1] = point.y;
+    nOfPositions = nOfPositions + 2;
+  }
+
+  private void addValue(double value) {
+    if (nOfValues == values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+    }
+    values[nOfValues] = value;
+    nOfValues = nOfValues + 1;
+  }
+
+  public long getFrameCount() {
+    return frameCount;
+  }
+
+  public long getTopologyCount() {
+    return topologyCount;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+}
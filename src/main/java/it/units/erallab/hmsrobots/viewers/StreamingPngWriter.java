@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an 8-bit RGB PNG image one row at a time, so that the image never needs to be in memory as a whole. Rows are
+ * filtered with the PNG sub filter, deflated, and emitted in IDAT chunks of bounded size.
+ *
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+class StreamingPngWriter implements Closeable {
+
+  private static final byte[] SIGNATURE = new byte[]{(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+  private static final int CHUNK_SIZE = 1 << 16;
+  private static final int BYTES_PER_PIXEL = 3;
+
+  private final DataOutputStream out;
+  private final int width;
+  private final int height;
+  private final DeflaterOutputStream idatOut;
+  private final byte[] filteredRow;
+  private int writtenRows;
+
+  /**
+   * Collects deflated data and emits it as IDAT chunks.
+   */
+  private class IdatOutputStream extends OutputStream {
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private int size;
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        int n = Math.min(len, buffer.length - size);
+        System.arraycopy(b, off, buffer, size, n);
+        size = size + n;
+        off = off + n;
+        len = len - n;
+        if (size == buffer.length) {
+          flush();
+        }
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (size > 0) {
+        writeChunk("IDAT", buffer, size);
+        size = 0;
+      }
+    }
+  }
+
+  public StreamingPngWriter(OutputStream out, int width, int height) throws IOException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException(String.format("Invalid image size: %dx%d", width, height));
+    }
+    this.out = new DataOutputStream(new BufferedOutputStream(out, CHUNK_SIZE));
+    this.width = width;
+    this.height = height;
+    filteredRow = new byte[1 + width * BYTES_PER_PIXEL];
+    this.out.write(SIGNATURE);
+    ByteArrayOutputStream ihdr = new ByteArrayOutputStream();
+    DataOutputStream ihdrOut = new DataOutputStream(ihdr);
+    ihdrOut.writeInt(width);
+    ihdrOut.writeInt(height);
+    ihdrOut.writeByte(8); //bit depth
+    ihdrOut.writeByte(2); //color type: truecolor
+    ihdrOut.writeByte(0); //compression method
+    ihdrOut.writeByte(0); //filter method
+    ihdrOut.writeByte(0); //interlace method
+    writeChunk("IHDR", ihdr.toByteArray(), ihdr.size());
+    idatOut = new DeflaterOutputStream(new IdatOutputStream(), new Deflater(Deflater.DEFAULT_COMPRESSION), CHUNK_SIZE);
+  }
+
+  public StreamingPngWriter(File file, int width, int height) throws IOException {
+    this(new FileOutputStream(file), width, height);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Writes the next row, given as {@code width} RGB triplets starting at {@code offset}.
+   */
+  public void writeRow(byte[] rgb, int offset) throws IOException {
+    if (writtenRows >= height) {
+      throw new IOException(String.format("Cannot write more than %d rows", height));
+    }
+    filteredRow[0] = 1; //sub filter
+    for (int i = 0; i < width * BYTES_PER_PIXEL; i++) {
+      int left = (i < BYTES_PER_PIXEL) ? 0 : rgb[offset + i - BYTES_PER_PIXEL];
+      filteredRow[1 + i] = (byte) (rgb[offset + i] - left);
+    }
+    idatOut.write(filteredRow);
+    writtenRows = writtenRows + 1;
+  }
+
+  /**
+   * Writes all the rows of the image as the next rows: the image has to be as wide as the PNG image.
+   */
+  public void writeRows(BufferedImage image) throws IOException {
+    if (image.getWidth() != width) {
+      throw new IllegalArgumentException(String.format("Wrong image width: %d instead of %d", image.getWidth(), width));
+    }
+    byte[] row = new byte[width * BYTES_PER_PIXEL];
+    int[] pixels = new int[width];
+    for (int y = 0; y < image.getHeight(); y++) {
+      image.getRGB(0, y, width, 1, pixels, 0, width);
+      for (int x = 0; x < width; x++) {
+        row[x * BYTES_PER_PIXEL] = (byte) (pixels[x] >> 16);
+        row[x * BYTES_PER_PIXEL + 1] = (byte) (pixels[x] >> 8);
+        row[x * BYTES_PER_PIXEL + 2] = (byte) pixels[x];
+      }
+      writeRow(row, 0);
+    }
+  }
+
+  /**
+   * Completes the image, filling the rows not written with black, and closes the underlying stream.
+   */
+  @Override
+  public void close() throws IOException {
+    byte[] row = new byte[width * BYTES_PER_PIXEL];
+    while (writtenRows < height) {
+      writeRow(row, 0);
+    }
+    idatOut.finish();
+    idatOut.flush();
+    writeChunk("IEND", new byte[0], 0);
+    out.close();
+  }
+
+  private void writeChunk(String type, byte[] data, int length) throws IOException {
+    byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data, 0, length);
+    out.writeInt(length);
+    out.write(typeBytes);
+    out.write(data, 0, length);
+    out.writeInt((int) crc.getValue());
+  }
+
+}
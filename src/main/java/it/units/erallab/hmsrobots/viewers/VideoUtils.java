@@ -7,17 +7,11 @@ import org.jcodec.common.io.SeekableByteChannel;
 import org.jcodec.common.model.Rational;
 import org.jcodec.scale.AWTUtil;
 
-import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
+import java.awt.image.DataBufferByte;
+import java.io.*;
 import java.util.List;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -28,6 +22,9 @@ public class VideoUtils {
   public enum EncoderFacility {JCODEC, FFMPEG_LARGE, FFMPEG_SMALL}
 
   private static final EncoderFacility DEFAULT_ENCODER = EncoderFacility.JCODEC;
+  private static final String FFMPEG_EXECUTABLE = "ffmpeg";
+  private static final int MAX_OUTPUT_LENGTH = 64 * 1024;
+  private static final long OUTPUT_READER_TIMEOUT_MILLIS = 1000;
   private static final Logger L = Logger.getLogger(VideoUtils.class.getName());
 
   private VideoUtils() {
@@ -38,82 +35,193 @@ public class VideoUtils {
   }
 
   public static void encodeAndSave(List<BufferedImage> images, double frameRate, File file, EncoderFacility encoder) throws IOException {
-    switch (encoder) {
-      case JCODEC -> encodeAndSaveWithJCodec(images, frameRate, file);
-      case FFMPEG_LARGE -> encodeAndSaveWithFFMpeg(images, frameRate, file, 18);
-      case FFMPEG_SMALL -> encodeAndSaveWithFFMpeg(images, frameRate, file, 30);
+    try (VideoWriter videoWriter = videoWriter(file, frameRate, encoder)) {
+      for (BufferedImage image : images) {
+        videoWriter.write(image);
+      }
     }
   }
 
-  private static void encodeAndSaveWithJCodec(List<BufferedImage> images, double frameRate, File file) throws IOException {
-    SeekableByteChannel channel = NIOUtils.writableChannel(file);
-    SequenceEncoder encoder = new SequenceEncoder(
-        channel,
-        Rational.R((int) Math.round(frameRate), 1),
-        Format.MOV,
-        org.jcodec.common.Codec.H264,
-        null
+  /**
+   * A video being encoded one frame at a time: frames are encoded (or stored on disk, for ffmpeg) as soon as they are
+   * written, rather than kept in memory. The video is completed on {@link #close()}.
+   */
+  public interface VideoWriter extends Closeable {
+    void write(BufferedImage image) throws IOException;
+  }
+
+  /**
+   * Builds the command line of an external encoder which reads raw frames (24 bits per pixel, in BGR order) of the
+   * given size from its standard input and writes the video on the given file.
+   */
+  @FunctionalInterface
+  public interface CommandBuilder {
+    List<String> build(int w, int h, double frameRate, File file);
+  }
+
+  public static CommandBuilder ffmpegCommand(int compression) {
+    return (w, h, frameRate, file) -> List.of(
+        FFMPEG_EXECUTABLE, "-y", "-loglevel", "error",
+        "-f", "rawvideo", "-pix_fmt", "bgr24", "-s", String.format("%dx%d", w, h), "-r", String.format("%d", (int) Math.round(frameRate)),
+        "-i", "-",
+        "-vcodec", "libx264", "-crf", String.format("%d", compression), "-pix_fmt", "yuv420p",
+        file.getPath()
     );
-    //encode
-    try {
-      for (BufferedImage image : images) {
-        encoder.encodeNativeFrame(AWTUtil.fromBufferedImageRGB(image));
+  }
+
+  public static VideoWriter videoWriter(File file, double frameRate, EncoderFacility encoder) throws IOException {
+    return switch (encoder) {
+      case JCODEC -> new JCodecVideoWriter(file, frameRate);
+      case FFMPEG_LARGE -> videoWriter(file, frameRate, ffmpegCommand(18));
+      case FFMPEG_SMALL -> videoWriter(file, frameRate, ffmpegCommand(30));
+    };
+  }
+
+  /**
+   * Builds a writer which streams the frames to an external process, started at the first frame, through its standard
+   * input. The video is complete when the process exits after its standard input has been closed: a nonzero exit value
+   * results in an exception.
+   */
+  public static VideoWriter videoWriter(File file, double frameRate, CommandBuilder commandBuilder) {
+    return new PipedVideoWriter(file, frameRate, commandBuilder);
+  }
+
+  private static class JCodecVideoWriter implements VideoWriter {
+    private final SeekableByteChannel channel;
+    private final SequenceEncoder encoder;
+
+    private JCodecVideoWriter(File file, double frameRate) throws IOException {
+      channel = NIOUtils.writableChannel(file);
+      encoder = new SequenceEncoder(
+          channel,
+          Rational.R((int) Math.round(frameRate), 1),
+          Format.MOV,
+          org.jcodec.common.Codec.H264,
+          null
+      );
+    }
+
+    @Override
+    public void write(BufferedImage image) throws IOException {
+      encoder.encodeNativeFrame(AWTUtil.fromBufferedImageRGB(image));
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        encoder.finish();
+      } finally {
+        NIOUtils.closeQuietly(channel);
       }
-    } catch (IOException ex) {
-      L.severe(String.format("Cannot encode image due to %s", ex));
     }
-    encoder.finish();
-    NIOUtils.closeQuietly(channel);
   }
 
-  private static void encodeAndSaveWithFFMpeg(List<BufferedImage> images, double frameRate, File file, int compression) throws IOException {
-    //save all files
-    String workingDirName = file.getAbsoluteFile().getParentFile().getPath();
-    String imagesDirName = workingDirName + File.separator + "imgs." + System.currentTimeMillis();
-    Files.createDirectories(Path.of(imagesDirName));
-    List<Path> toDeletePaths = new ArrayList<>();
-    L.fine(String.format("Saving %d files in %s", images.size(), imagesDirName));
-    for (int i = 0; i < images.size(); i++) {
-      File imageFile = new File(imagesDirName + File.separator + String.format("frame%06d", i) + ".jpg");
-      ImageIO.write(images.get(i), "jpg", imageFile);
-      toDeletePaths.add(imageFile.toPath());
+  private static class PipedVideoWriter implements VideoWriter {
+    private final File file;
+    private final double frameRate;
+    private final CommandBuilder commandBuilder;
+    private final StringBuilder output = new StringBuilder();
+    private Process process;
+    private OutputStream stdin;
+    private Thread outputReader;
+    private BufferedImage converted;
+    private List<String> command;
+
+    private PipedVideoWriter(File file, double frameRate, CommandBuilder commandBuilder) {
+      this.file = file;
+      this.frameRate = frameRate;
+      this.commandBuilder = commandBuilder;
     }
-    toDeletePaths.add(Path.of(imagesDirName));
-    //invoke ffmpeg
-    String command = String.format(
-        "ffmpeg -y -r %d -i %s/frame%%06d.jpg -vcodec libx264 -crf %d -pix_fmt yuv420p %s",
-        (int) Math.round(frameRate),
-        imagesDirName,
-        compression,
-        file.getPath()
-    );
-    L.fine(String.format("Running: %s", command));
-    ProcessBuilder pb = new ProcessBuilder(command.split(" "));
-    pb.directory(new File(workingDirName));
-    StringBuilder sb = new StringBuilder();
-    try {
-      Process process = pb.start();
-      BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-      String line;
-      while ((line = reader.readLine()) != null) {
-        sb.append(line).append("\n");
+
+    @Override
+    public void write(BufferedImage image) throws IOException {
+      if (process == null) {
+        start(image.getWidth(), image.getHeight());
+      } else if (image.getWidth() != converted.getWidth() || image.getHeight() != converted.getHeight()) {
+        throw new IllegalArgumentException(String.format(
+            "Wrong frame size: %dx%d instead of %dx%d",
+            image.getWidth(), image.getHeight(), converted.getWidth(), converted.getHeight()
+        ));
       }
-      reader.close();
-      int exitVal = process.waitFor();
-      if (exitVal < 0) {
-        throw new IOException(String.format("Unexpected exit val: %d. Full output is:%n%s", exitVal, sb.toString()));
+      try {
+        stdin.write(bgrBytes(image));
+      } catch (IOException e) {
+        process.destroy();
+        throw new IOException(String.format("Cannot write frame to %s due to %s. Full output is:%n%s", command.get(0), e, collectOutput()), e);
       }
-    } catch (IOException | InterruptedException e) {
-      throw (e instanceof IOException) ? (IOException) e : (new IOException(e));
-    } finally {
-      //delete all files
-      L.fine(String.format("Deleting %d paths", toDeletePaths.size()));
-      for (Path path : toDeletePaths) {
-        try {
-          Files.delete(path);
+    }
+
+    private void start(int w, int h) throws IOException {
+      command = commandBuilder.build(w, h, frameRate, file);
+      L.fine(String.format("Running: %s", String.join(" ", command)));
+      ProcessBuilder pb = new ProcessBuilder(command);
+      pb.directory(file.getAbsoluteFile().getParentFile());
+      pb.redirectErrorStream(true);
+      process = pb.start();
+      stdin = new BufferedOutputStream(process.getOutputStream(), w * h * 3);
+      converted = new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
+      //the output has to be consumed, otherwise the process may block
+      outputReader = new Thread(() -> {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            synchronized (output) {
+              output.append(line).append("\n");
+              if (output.length() > MAX_OUTPUT_LENGTH) {
+                output.delete(0, output.length() - MAX_OUTPUT_LENGTH);
+              }
+            }
+          }
         } catch (IOException e) {
-          L.log(Level.WARNING, String.format("Cannot delete %s", path), e);
+          //ignore: the process has been closed
         }
+      }, PipedVideoWriter.class.getSimpleName());
+      outputReader.setDaemon(true);
+      outputReader.start();
+    }
+
+    private byte[] bgrBytes(BufferedImage image) {
+      if (image.getType() == BufferedImage.TYPE_3BYTE_BGR && image.getRaster().getParent() == null) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+      }
+      Graphics2D g = converted.createGraphics();
+      g.drawImage(image, 0, 0, null);
+      g.dispose();
+      return ((DataBufferByte) converted.getRaster().getDataBuffer()).getData();
+    }
+
+    private String collectOutput() {
+      try {
+        outputReader.join(OUTPUT_READER_TIMEOUT_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      synchronized (output) {
+        return output.toString();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (process == null) {
+        L.warning(String.format("No frames written: %s not created", file));
+        return;
+      }
+      try {
+        stdin.close();
+      } catch (IOException e) {
+        //ignore: the exit value tells if something went wrong
+      }
+      int exitVal;
+      try {
+        exitVal = process.waitFor();
+      } catch (InterruptedException e) {
+        process.destroy();
+        throw new IOException(e);
+      }
+      String fullOutput = collectOutput();
+      if (exitVal != 0) {
+        throw new IOException(String.format("Unexpected exit val of %s: %d. Full output is:%n%s", command.get(0), exitVal, fullOutput));
       }
     }
   }
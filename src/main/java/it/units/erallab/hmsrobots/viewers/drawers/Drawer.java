@@ -34,4 +34,8 @@ public abstract class Drawer<I extends Immutable> {
     return drawableClass.isAssignableFrom(immutableClass);
   }
 
+  public boolean mayDraw(Class<? extends Immutable> immutableClass) {
+    return canDraw(immutableClass) || immutableClass.isAssignableFrom(drawableClass);
+  }
+
 }
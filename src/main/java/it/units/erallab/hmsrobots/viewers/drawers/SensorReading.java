@@ -44,6 +44,28 @@ public class SensorReading extends Drawer<it.units.erallab.hmsrobots.core.sensor
   @ConfigurableField
   private boolean rotated = true;
 
+  private transient Arc arc;
+
+  /**
+   * Cosines and sines of multiples of the angle resolution, used for drawing sectors by rotating them rather than
+   * calling trigonometric functions for each point.
+   */
+  private static class Arc {
+    private final double resolution;
+    private final double[] cos;
+    private final double[] sin;
+
+    public Arc(double resolution, int n) {
+      this.resolution = resolution;
+      cos = new double[n];
+      sin = new double[n];
+      for (int i = 0; i < n; i++) {
+        cos[i] = Math.cos(resolution * (double) i);
+        sin[i] = Math.sin(resolution * (double) i);
+      }
+    }
+  }
+
   private SensorReading() {
     super(it.units.erallab.hmsrobots.core.sensors.immutable.SensorReading.class);
   }
@@ -52,11 +74,27 @@ public class SensorReading extends Drawer<it.units.erallab.hmsrobots.core.sensor
     return new SensorReading();
   }
 
+  private Arc arc(double a1, double a2) {
+    int n = (int) Math.ceil((a2 - a1) / angleResolution) + 1;
+    Arc localArc = arc;
+    if (localArc == null || localArc.resolution != angleResolution || localArc.cos.length < n) {
+      localArc = new Arc(angleResolution, Math.max(n, (int) Math.ceil(2d * Math.PI / angleResolution) + 1));
+      arc = localArc;
+    }
+    return localArc;
+  }
+
   private Path2D getSector(Point2 c, double r, double a1, double a2) {
+    Arc localArc = arc(a1, a2);
+    double cos1 = r * Math.cos(a1);
+    double sin1 = r * Math.sin(a1);
     Path2D sector = new Path2D.Double();
     sector.moveTo(c.x, c.y);
-    for (double a = a1; a < a2; a = a + angleResolution) {
-      sector.lineTo(c.x + r * Math.cos(a), c.y + r * Math.sin(a));
+    for (int i = 0; a1 + localArc.resolution * (double) i < a2; i++) {
+      sector.lineTo(
+          c.x + cos1 * localArc.cos[i] - sin1 * localArc.sin[i],
+          c.y + sin1 * localArc.cos[i] + cos1 * localArc.sin[i]
+      );
     }
     sector.lineTo(c.x + r * Math.cos(a2), c.y + r * Math.sin(a2));
     sector.closePath();
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class EpisodeExecutorTest {
+
+  /**
+   * Test of fork on a closed executor, of class EpisodeExecutor.Scope.
+   */
+  @Test
+  public void testForkAfterClose() {
+    System.out.println("forkAfterClose");
+    EpisodeExecutor executor = new EpisodeExecutor(1);
+    executor.close();
+    Task<Integer, Integer> task = (solution, listener) -> solution;
+    try (EpisodeExecutor.Scope<Integer, Integer> scope = executor.open(task)) {
+      assertThrows(RejectedExecutionException.class, () -> scope.fork(1));
+      //the rejected episode is not waited for
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+        assertNull(scope.take());
+        assertEquals(List.of(), scope.join());
+        assertEquals(List.of(), scope.joinUntil(System.currentTimeMillis() + 1000));
+      });
+    }
+  }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.tasks;
+
+import it.units.erallab.hmsrobots.util.Fingerprint;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class EvaluationCacheTest {
+
+  /**
+   * Test of the LRU eviction, of class EvaluationCache.
+   */
+  @Test
+  public void testEviction() {
+    System.out.println("eviction");
+    EvaluationCache<String> cache = new EvaluationCache<>(2);
+    AtomicInteger evaluations = new AtomicInteger();
+    for (String key : List.of("a", "b", "a", "c", "a", "b")) {
+      assertEquals(key, cache.get(Fingerprint.of(key), () -> {
+        evaluations.incrementAndGet();
+        return key;
+      }));
+    }
+    //b is evicted by c, since a is used more recently
+    assertEquals(4, evaluations.get());
+    assertEquals(2, cache.getHitCount());
+    assertEquals(2, cache.size());
+    //failed evaluations are not cached
+    assertNull(cache.get(Fingerprint.of("d"), () -> null));
+    assertEquals("d", cache.get(Fingerprint.of("d"), () -> "d"));
+  }
+
+  /**
+   * Test of concurrent requests of the same key, of class EvaluationCache.
+   */
+  @Test
+  public void testConcurrentRequests() throws InterruptedException {
+    System.out.println("concurrentRequests");
+    EvaluationCache<String> cache = new EvaluationCache<>(10);
+    AtomicInteger evaluations = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> results = new ArrayList<>();
+    Thread owner = new Thread(() -> cache.get(Fingerprint.of("k"), () -> {
+      evaluations.incrementAndGet();
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "v";
+    }));
+    owner.start();
+    started.await();
+    Thread waiter = new Thread(() -> {
+      String result = cache.get(Fingerprint.of("k"), () -> {
+        evaluations.incrementAndGet();
+        return "w";
+      });
+      synchronized (results) {
+        results.add(result);
+      }
+    });
+    waiter.start();
+    release.countDown();
+    owner.join();
+    waiter.join();
+    assertEquals(1, evaluations.get());
+    assertEquals(List.of("v"), results);
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class BooleanGridTest {
+
+  /**
+   * Test of components and largestConnected methods, of class BooleanGrid.
+   */
+  @Test
+  public void testLargestConnected() {
+    System.out.println("largestConnected");
+    Grid<Boolean> kGrid = Grid.create(7, 3, false);
+    kGrid.set(0, 0, true);
+    kGrid.set(1, 0, true);
+    kGrid.set(0, 1, true);
+    kGrid.set(3, 0, true);
+    kGrid.set(3, 1, true);
+    kGrid.set(3, 2, true);
+    kGrid.set(2, 2, true);
+    kGrid.set(6, 2, true);
+    BooleanGrid grid = BooleanGrid.from(kGrid);
+    assertEquals(8, grid.count());
+    assertEquals(3, grid.components().max());
+    assertEquals(BooleanGrid.from(Utils.gridLargestConnected(kGrid, b -> b)), grid.largestConnected());
+  }
+
+  /**
+   * Test of crop method, of class BooleanGrid.
+   */
+  @Test
+  public void testCrop() {
+    System.out.println("crop");
+    BooleanGrid grid = new BooleanGrid(5, 4);
+    grid.fill(1, 1, 3, 2, true);
+    grid.set(2, 1, false);
+    BooleanGrid cropped = grid.crop();
+    assertEquals(3, cropped.getW());
+    assertEquals(2, cropped.getH());
+    assertEquals(5, cropped.count());
+    assertEquals(grid.toGrid(), BooleanGrid.from(grid.toGrid()).toGrid());
+    assertEquals(0, new BooleanGrid(3, 3).crop().getW());
+  }
+
+  /**
+   * Test of fill method, of class BooleanGrid, with rectangles partially or entirely outside the grid.
+   */
+  @Test
+  public void testFillClipped() {
+    System.out.println("fillClipped");
+    BooleanGrid grid = new BooleanGrid(5, 5);
+    grid.fill(7, 0, 9, 2, true);
+    grid.fill(-5, 0, -3, 2, true);
+    grid.fill(0, 6, 4, 8, true);
+    grid.fill(3, 0, 1, 4, true);
+    assertEquals(0, grid.count());
+    grid.fill(-2, -2, 1, 0, true);
+    assertEquals(2, grid.count());
+    assertEquals(true, grid.get(1, 0));
+    grid.fill(3, 3, 9, 9, true);
+    assertEquals(6, grid.count());
+    assertEquals(true, grid.get(4, 4));
+    assertEquals(false, grid.get(2, 3));
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import it.units.erallab.hmsrobots.core.controllers.PhaseSin;
+import it.units.erallab.hmsrobots.core.objects.ControllableVoxel;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class FingerprintTest {
+
+  /**
+   * Test of fingerprinting bodies which differ by a translation, of class Fingerprint.
+   */
+  @Test
+  public void testTranslatedBody() {
+    System.out.println("translatedBody");
+    Grid<Boolean> body = RobotUtils.buildShape("biped-4x3");
+    Grid<Boolean> translated = Grid.create(body.getW() + 3, body.getH() + 2, (x, y) -> x >= 3 && y >= 2 && body.get(x - 3, y - 2));
+    assertEquals(Fingerprint.of(body), Fingerprint.of(translated));
+    Grid<Boolean> different = Grid.create(body.getW(), body.getH(), (x, y) -> x > 0 || y > 0 ? body.get(x, y) : !body.get(x, y));
+    assertNotEquals(Fingerprint.of(body), Fingerprint.of(different));
+    //same cells packed in a different shape
+    assertNotEquals(Fingerprint.of(Grid.create(4, 1, true)), Fingerprint.of(Grid.create(2, 2, true)));
+  }
+
+  /**
+   * Test of fingerprinting robots with translated bodies and a position-indexed controller, of class Fingerprint.
+   */
+  @Test
+  public void testTranslatedRobot() {
+    System.out.println("translatedRobot");
+    Grid<Double> phases = Grid.create(6, 4, (x, y) -> (double) x + 10d * y);
+    Grid<Boolean> body = Grid.create(6, 4, (x, y) -> x < 4 && y < 3);
+    Grid<Boolean> translated = Grid.create(6, 4, (x, y) -> x >= 2 && y >= 1);
+    //same full-size phases, hence different phases on the voxels
+    assertNotEquals(
+        Fingerprint.of(new Robot<>(new PhaseSin(1d, 1d, phases), Grid.create(body, b -> b ? new ControllableVoxel() : null))),
+        Fingerprint.of(new Robot<>(new PhaseSin(1d, 1d, phases), Grid.create(translated, b -> b ? new ControllableVoxel() : null)))
+    );
+    //phases translated with the body, hence same phases on the voxels
+    Grid<Double> translatedPhases = Grid.create(6, 4, (x, y) -> phases.get(x - 2, y - 1));
+    assertEquals(
+        Fingerprint.of(new Robot<>(new PhaseSin(1d, 1d, phases), Grid.create(body, b -> b ? new ControllableVoxel() : null))),
+        Fingerprint.of(new Robot<>(new PhaseSin(1d, 1d, translatedPhases), Grid.create(translated, b -> b ? new ControllableVoxel() : null)))
+    );
+  }
+
+  /**
+   * Test of composing fingerprints, of class Fingerprint.
+   */
+  @Test
+  public void testAnd() {
+    System.out.println("and");
+    Fingerprint a = Fingerprint.of("a");
+    Fingerprint b = Fingerprint.of("b");
+    assertEquals(a.and(b), Fingerprint.of("a").and(Fingerprint.of("b")));
+    assertNotEquals(a.and(b), b.and(a));
+    assertNotEquals(Fingerprint.of("a", "b"), Fingerprint.of("ab"));
+    assertEquals(a.and(b), Fingerprint.fromString(a.and(b).toString()));
+  }
+
+  /**
+   * Test of fromString and fromBytes with digests of a wrong length, of class Fingerprint.
+   */
+  @Test
+  public void testWrongLength() {
+    System.out.println("wrongLength");
+    assertThrows(IllegalArgumentException.class, () -> Fingerprint.fromString("abcd"));
+    assertThrows(IllegalArgumentException.class, () -> Fingerprint.fromString(Fingerprint.of("a") + "00"));
+    assertThrows(IllegalArgumentException.class, () -> Fingerprint.fromBytes(new byte[3]));
+    assertEquals(Fingerprint.fromBytes(new byte[Fingerprint.BYTES]).hashCode(), Fingerprint.fromString("0".repeat(Fingerprint.BYTES * 2)).hashCode());
+  }
+
+}
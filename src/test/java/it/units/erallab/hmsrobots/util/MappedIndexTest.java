@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class MappedIndexTest {
+
+  /**
+   * Test of appending to and reading from an index shared by two instances and reopened, of class MappedIndex.
+   */
+  @Test
+  public void testSharedIndex() throws IOException {
+    System.out.println("sharedIndex");
+    File file = File.createTempFile("mapped-index-test", ".bin");
+    file.deleteOnExit();
+    assertTrue(file.delete());
+    int n = 3000;
+    try (MappedIndex first = new MappedIndex(file, 2); MappedIndex second = new MappedIndex(file, 2)) {
+      for (int i = 0; i < n; i++) {
+        assertTrue((i % 2 == 0 ? first : second).put(Fingerprint.of(Integer.toString(i)), new double[]{i, -i}));
+      }
+      //already appended by the other instance
+      assertFalse(first.put(Fingerprint.of("1"), new double[]{0, 0}));
+      assertArrayEquals(new double[]{1, -1}, first.get(Fingerprint.of("1")));
+      assertNull(second.get(Fingerprint.of("missing")));
+      assertEquals(n, second.size());
+    }
+    try (MappedIndex reopened = new MappedIndex(file, 2)) {
+      assertEquals(n, reopened.size());
+      for (int i = 0; i < n; i++) {
+        assertArrayEquals(new double[]{i, -i}, reopened.get(Fingerprint.of(Integer.toString(i))));
+      }
+    }
+    assertThrows(IOException.class, () -> new MappedIndex(file, 3));
+  }
+
+}
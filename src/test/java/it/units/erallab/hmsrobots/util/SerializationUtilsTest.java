@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import it.units.erallab.hmsrobots.core.controllers.DistributedSensing;
+import it.units.erallab.hmsrobots.core.controllers.MultiLayerPerceptron;
+import it.units.erallab.hmsrobots.core.controllers.PhaseSin;
+import it.units.erallab.hmsrobots.core.controllers.TimeFunctions;
+import it.units.erallab.hmsrobots.core.objects.ControllableVoxel;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.SensingVoxel;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.tasks.locomotion.Outcome;
+import org.dyn4j.dynamics.Settings;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SerializationUtilsTest {
+
+  private static void assertBinaryRoundTrip(Object object) throws IOException {
+    String json = SerializationUtils.serialize(object, SerializationUtils.Mode.JSON);
+    Object fromString = SerializationUtils.deserialize(
+        SerializationUtils.serialize(object, SerializationUtils.Mode.BINARY),
+        object.getClass(),
+        SerializationUtils.Mode.BINARY
+    );
+    assertEquals(json, SerializationUtils.serialize(fromString, SerializationUtils.Mode.JSON));
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    SerializationUtils.writeBinary(object, baos);
+    Object fromStream = SerializationUtils.readBinary(new ByteArrayInputStream(baos.toByteArray()), object.getClass());
+    assertEquals(json, SerializationUtils.serialize(fromStream, SerializationUtils.Mode.JSON));
+  }
+
+  private static String fixture(String name) throws IOException {
+    try (InputStream inputStream = SerializationUtilsTest.class.getResourceAsStream(name)) {
+      return new String(inputStream.readAllBytes(), StandardCharsets.US_ASCII);
+    }
+  }
+
+  /**
+   * Test of reading robots serialized with the baseline version of this library, which Java-serialized lambdas that
+   * have been removed since then, of class SerializationUtils.
+   */
+  @Test
+  public void testBaselineRobots() throws IOException {
+    System.out.println("baselineRobots");
+    Locomotion locomotion = new Locomotion(1d, Locomotion.createTerrain("flat"), new Settings());
+    for (String name : List.of("phase-sin", "centralized-cpg", "distributed-default")) {
+      for (SerializationUtils.Mode mode : List.of(SerializationUtils.Mode.JSON, SerializationUtils.Mode.JAVA)) {
+        String fileName = "baseline-" + name + (mode.equals(SerializationUtils.Mode.JSON) ? ".json" : ".java.txt");
+        if (name.equals("distributed-default") && mode.equals(SerializationUtils.Mode.JAVA)) {
+          //not Java-serializable in the baseline
+          continue;
+        }
+        Robot<?> robot = SerializationUtils.deserialize(fixture(fileName), Robot.class, mode);
+        assertNotNull(robot, fileName);
+        String json = SerializationUtils.serialize(robot, SerializationUtils.Mode.JSON);
+        assertEquals(json, SerializationUtils.serialize(SerializationUtils.deserialize(json, Robot.class, SerializationUtils.Mode.JSON), SerializationUtils.Mode.JSON), fileName);
+        Outcome outcome = locomotion.apply(robot);
+        assertTrue(Double.isFinite(outcome.getDistance()), fileName);
+        if (name.equals("phase-sin")) {
+          SerializableFunction<Double, Double> function = ((TimeFunctions) robot.getController()).getFunctions().get(1, 1);
+          assertEquals(Math.sin(2d * Math.PI * 0.3d + 0.25d) * 0.5d, function.apply(0.3d), 1e-12, fileName);
+        }
+      }
+    }
+  }
+
+  /**
+   * Test of the serialization of expressions, of class SerializationUtils.
+   */
+  @Test
+  public void testExpressionRoundTrip() {
+    System.out.println("expressionRoundTrip");
+    Expression expression = Expression.sum(
+        Expression.sinusoid(0.5d, 2d, Math.PI / 4d),
+        Expression.product(Expression.constant(2d), Expression.sin(Expression.identity())),
+        Expression.lookup(new double[]{0d, 1d, 2d}, new double[]{0d, 1d, 0d}, true, Expression.affine(3d, 1d, Expression.identity()))
+    );
+    for (SerializationUtils.Mode mode : SerializationUtils.Mode.values()) {
+      Expression cloned = SerializationUtils.clone(expression, mode);
+      assertEquals(expression, cloned, mode.toString());
+      for (double t = 0d; t < 5d; t = t + 0.1d) {
+        assertEquals(expression.applyAsDouble(t), cloned.applyAsDouble(t), mode.toString());
+      }
+    }
+  }
+
+  /**
+   * Test of the stream based serialize and deserialize methods, of class SerializationUtils.
+   */
+  @Test
+  public void testStreamRoundTrip() throws IOException {
+    System.out.println("streamRoundTrip");
+    Grid<Boolean> shape = RobotUtils.buildShape("biped-4x3");
+    Robot<?> robot = new Robot<>(
+        new TimeFunctions(Grid.create(shape.getW(), shape.getH(), (x, y) -> (Double t) -> Math.sin(t + x))),
+        Grid.create(shape, b -> b ? new ControllableVoxel() : null)
+    );
+    String json = SerializationUtils.serialize(robot, SerializationUtils.Mode.JSON);
+    for (SerializationUtils.Mode mode : SerializationUtils.Mode.values()) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      SerializationUtils.serialize(robot, mode, baos);
+      Robot<?> fromStream = SerializationUtils.deserialize(new ByteArrayInputStream(baos.toByteArray()), Robot.class, mode);
+      assertEquals(json, SerializationUtils.serialize(fromStream, SerializationUtils.Mode.JSON), mode.toString());
+      Robot<?> fromString = SerializationUtils.deserialize(SerializationUtils.serialize(robot, mode), Robot.class, mode);
+      assertEquals(json, SerializationUtils.serialize(fromString, SerializationUtils.Mode.JSON), mode.toString());
+    }
+  }
+
+  /**
+   * Test of the BINARY mode, of class SerializationUtils.
+   */
+  @Test
+  public void testBinaryRoundTrip() throws IOException {
+    System.out.println("binaryRoundTrip");
+    Grid<Boolean> shape = RobotUtils.buildShape("biped-4x3");
+    assertBinaryRoundTrip(shape);
+    assertBinaryRoundTrip(new Robot<>(
+        new PhaseSin(1d, 1d, Grid.create(shape, b -> b ? Math.PI / 3d : null)),
+        Grid.create(shape, b -> b ? new ControllableVoxel() : null)
+    ));
+    assertBinaryRoundTrip(new Robot<>(
+        new TimeFunctions(Grid.create(shape.getW(), shape.getH(), (x, y) -> (Double t) -> Math.sin(t + x))),
+        Grid.create(shape, b -> b ? new ControllableVoxel() : null)
+    ));
+    Grid<? extends SensingVoxel> body = RobotUtils.buildSensorizingFunction("uniform-t+a+vxy+l5-0").apply(shape);
+    DistributedSensing controller = new DistributedSensing(body, 1);
+    Random random = new Random(1);
+    for (Grid.Entry<? extends SensingVoxel> entry : body) {
+      if (entry.getValue() != null) {
+        MultiLayerPerceptron mlp = new MultiLayerPerceptron(
+            MultiLayerPerceptron.ActivationFunction.TANH,
+            controller.nOfInputs(entry.getX(), entry.getY()),
+            new int[]{3},
+            controller.nOfOutputs(entry.getX(), entry.getY()),
+            random.doubles(MultiLayerPerceptron.countWeights(
+                controller.nOfInputs(entry.getX(), entry.getY()),
+                new int[]{3},
+                controller.nOfOutputs(entry.getX(), entry.getY())
+            )).toArray()
+        );
+        controller.getFunctions().set(entry.getX(), entry.getY(), mlp);
+      }
+    }
+    assertBinaryRoundTrip(new Robot<>(controller, Grid.create(body, v -> v)));
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SpscRingBufferTest {
+
+  /**
+   * Test of offer and poll methods, of class SpscRingBuffer.
+   */
+  @Test
+  public void testOfferPoll() {
+    System.out.println("offerPoll");
+    SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(3);
+    assertNull(buffer.poll());
+    for (int round = 0; round < 3; round++) {
+      assertTrue(buffer.offer(1));
+      assertTrue(buffer.offer(2));
+      assertTrue(buffer.offer(3));
+      assertFalse(buffer.offer(4));
+      assertEquals(3, buffer.size());
+      assertEquals(Integer.valueOf(1), buffer.peek());
+      assertEquals(Integer.valueOf(1), buffer.poll());
+      assertEquals(Integer.valueOf(2), buffer.poll());
+      assertEquals(Integer.valueOf(3), buffer.poll());
+      assertTrue(buffer.isEmpty());
+    }
+  }
+
+  /**
+   * Test of concurrent use by one producer and one consumer, of class SpscRingBuffer.
+   */
+  @Test
+  public void testConcurrentOrder() throws InterruptedException {
+    System.out.println("concurrentOrder");
+    int n = 10000;
+    SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(16);
+    Thread producer = new Thread(() -> {
+      for (int i = 0; i < n; i++) {
+        while (!buffer.offer(i)) {
+          Thread.yield();
+        }
+      }
+    });
+    producer.start();
+    for (int i = 0; i < n; i++) {
+      Integer value;
+      while ((value = buffer.poll()) == null) {
+        Thread.yield();
+      }
+      assertEquals(Integer.valueOf(i), value);
+    }
+    producer.join();
+    assertTrue(buffer.isEmpty());
+  }
+
+}
@@ -69,6 +69,43 @@ public class UtilsTest {
     assertEquals(expResult, result);
   }
 
+  /**
+   * Test of components method, of class Util.
+   */
+  @Test
+  public void testComponents() {
+    System.out.println("components");
+    Grid<Boolean> kGrid = Grid.create(7, 3, false);
+    //1st region
+    kGrid.set(0, 0, true);
+    kGrid.set(1, 0, true);
+    kGrid.set(0, 1, true);
+    //2nd regions
+    kGrid.set(3, 0, true);
+    kGrid.set(3, 1, true);
+    kGrid.set(3, 2, true);
+    kGrid.set(2, 2, true);
+    //3rd region
+    kGrid.set(6, 2, true);
+    Utils.Components components = Utils.components(kGrid, b -> b);
+    assertEquals(3, components.getComponents().size());
+    Utils.Component largest = components.largest();
+    assertEquals(2, largest.getLabel());
+    assertEquals(4, largest.getSize());
+    assertEquals(2, largest.getMinX());
+    assertEquals(0, largest.getMinY());
+    assertEquals(3, largest.getMaxX());
+    assertEquals(2, largest.getMaxY());
+    assertEquals(2, components.getLabels().get(2, 2));
+    assertEquals(0, components.getLabels().get(2, 1));
+    //a long snake, which would be deep for a recursive flood fill
+    int n = 301;
+    Grid<Boolean> snake = Grid.create(n, n, (x, y) -> y % 2 == 0 || (y % 4 == 1 && x == n - 1) || (y % 4 == 3 && x == 0));
+    Utils.Components snakeComponents = Utils.components(snake, b -> b);
+    assertEquals(1, snakeComponents.getComponents().size());
+    assertEquals(snake.count(b -> b), snakeComponents.largest().getSize());
+  }
+
   /**
    * Test of cropGrid method, of class Util.
    */
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
+import org.junit.jupiter.api.Test;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class AsyncSnapshotListenerTest {
+
+  private static final int N_OF_SNAPSHOTS = 100;
+
+  /**
+   * Test of grid, of class AsyncSnapshotListener, with an executor having fewer threads than the cells.
+   */
+  @Test
+  public void testGridWithBoundedExecutor() {
+    System.out.println("gridWithBoundedExecutor");
+    int w = 3;
+    int h = 2;
+    List<List<Double>> times = new ArrayList<>();
+    for (int i = 0; i < w * h; i++) {
+      times.add(new ArrayList<>());
+    }
+    GridSnapshotListener inner = (x, y) -> snapshot -> times.get(y * w + x).add(snapshot.getTime());
+    ExecutorService executor = Executors.newFixedThreadPool(1);
+    GridSnapshotListener async = AsyncSnapshotListener.grid(inner, 1, AsyncSnapshotListener.Policy.BLOCK, executor);
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      List<Thread> simulations = new ArrayList<>();
+      for (int x = 0; x < w; x++) {
+        for (int y = 0; y < h; y++) {
+          SnapshotListener listener = async.listener(x, y);
+          simulations.add(new Thread(() -> {
+            for (int i = 0; i < N_OF_SNAPSHOTS; i++) {
+              listener.listen(new Snapshot(i, List.of()));
+            }
+          }));
+        }
+      }
+      simulations.forEach(Thread::start);
+      for (Thread simulation : simulations) {
+        simulation.join();
+      }
+      ((Flushable) async).flush();
+    });
+    executor.shutdownNow();
+    for (List<Double> cellTimes : times) {
+      assertEquals(N_OF_SNAPSHOTS, cellTimes.size());
+      for (int i = 0; i < N_OF_SNAPSHOTS; i++) {
+        assertEquals((double) i, cellTimes.get(i).doubleValue());
+      }
+    }
+  }
+
+  /**
+   * Test of isNeeded, of class AsyncSnapshotListener, while the snapshots are not yet consumed by the inner listener.
+   */
+  @Test
+  public void testSamplingBeforeConsuming() {
+    System.out.println("samplingBeforeConsuming");
+    List<Double> times = new ArrayList<>();
+    List<Runnable> drains = new ArrayList<>();
+    //the inner listener samples one snapshot every 10 steps
+    SnapshotListener inner = new SnapshotListener() {
+      @Override
+      public void listen(Snapshot snapshot) {
+        times.add(snapshot.getTime());
+      }
+
+      @Override
+      public boolean isNeeded(double t) {
+        return isNeeded(t, times.isEmpty() ? null : times.get(times.size() - 1));
+      }
+
+      @Override
+      public boolean isNeeded(double t, Double lastT) {
+        return lastT == null || t - lastT >= 10d;
+      }
+    };
+    //nothing is consumed until the drains are run
+    AsyncSnapshotListener async = new AsyncSnapshotListener(inner, N_OF_SNAPSHOTS, AsyncSnapshotListener.Policy.BLOCK, drains::add);
+    for (int i = 0; i < N_OF_SNAPSHOTS; i++) {
+      if (async.isNeeded(i)) {
+        async.listen(new Snapshot(i, List.of()));
+      }
+    }
+    assertEquals(N_OF_SNAPSHOTS / 10, async.getQueueDepth());
+    while (!drains.isEmpty()) {
+      drains.remove(0).run();
+    }
+    assertEquals(N_OF_SNAPSHOTS / 10, times.size());
+    for (int i = 0; i < times.size(); i++) {
+      assertEquals(i * 10d, times.get(i).doubleValue());
+    }
+  }
+
+}
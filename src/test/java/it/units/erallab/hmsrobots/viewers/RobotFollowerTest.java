@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.objects.immutable.Immutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.Robot;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
+import it.units.erallab.hmsrobots.core.objects.immutable.Voxel;
+import it.units.erallab.hmsrobots.util.BoundingBox;
+import it.units.erallab.hmsrobots.util.Point2;
+import it.units.erallab.hmsrobots.util.Poly;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class RobotFollowerTest {
+
+  private static final int WINDOW_SIZE = 5;
+  private static final double RATIO = 1.5d;
+  private static final double EPSILON = 1e-9;
+
+  /**
+   * Test of getFrame, of class RobotFollower, against a reduction over the last boxes, with MAX.
+   */
+  @Test
+  public void testMax() {
+    System.out.println("max");
+    assertSameFrames(RobotFollower.AggregateType.MAX);
+  }
+
+  /**
+   * Test of getFrame, of class RobotFollower, against a reduction over the last boxes, with AVG.
+   */
+  @Test
+  public void testAvg() {
+    System.out.println("avg");
+    assertSameFrames(RobotFollower.AggregateType.AVG);
+  }
+
+  private static void assertSameFrames(RobotFollower.AggregateType aggregateType) {
+    Random random = new Random(1);
+    RobotFollower follower = new RobotFollower(WINDOW_SIZE, 1d, 1, aggregateType);
+    List<BoundingBox> boxes = new ArrayList<>();
+    //several times the window, to wrap around the rings
+    for (int i = 0; i < WINDOW_SIZE * 4 + 3; i++) {
+      double minX = random.nextDouble() * 100d;
+      double minY = random.nextDouble() * 10d;
+      BoundingBox box = BoundingBox.build(
+          Point2.build(minX, minY),
+          Point2.build(minX + 1d + random.nextDouble() * 10d, minY + 1d + random.nextDouble() * 10d)
+      );
+      boxes.add(box);
+      BoundingBox frame = follower.getFrame(snapshot(i, box), RATIO);
+      List<BoundingBox> last = boxes.subList(Math.max(0, boxes.size() - WINDOW_SIZE), boxes.size());
+      BoundingBox expected = adjust(aggregateType.equals(RobotFollower.AggregateType.MAX) ? max(last) : avg(last));
+      String message = String.format("frame %d", i);
+      assertEquals(expected.min.x, frame.min.x, EPSILON, message);
+      assertEquals(expected.min.y, frame.min.y, EPSILON, message);
+      assertEquals(expected.max.x, frame.max.x, EPSILON, message);
+      assertEquals(expected.max.y, frame.max.y, EPSILON, message);
+    }
+  }
+
+  private static Snapshot snapshot(double t, BoundingBox box) {
+    Robot robot = new Robot();
+    robot.getChildren().add(new Voxel(Poly.build(
+        Point2.build(box.min.x, box.min.y),
+        Point2.build(box.max.x, box.min.y),
+        Point2.build(box.max.x, box.max.y),
+        Point2.build(box.min.x, box.max.y)
+    ), 1d, 0d));
+    return new Snapshot(t, List.<Immutable>of(robot));
+  }
+
+  private static BoundingBox max(List<BoundingBox> boxes) {
+    return boxes.stream().reduce(BoundingBox::largest).orElseThrow();
+  }
+
+  private static BoundingBox avg(List<BoundingBox> boxes) {
+    double n = boxes.size();
+    return BoundingBox.build(
+        Point2.build(
+            boxes.stream().mapToDouble(b -> b.min.x).sum() / n,
+            boxes.stream().mapToDouble(b -> b.min.y).sum() / n
+        ),
+        Point2.build(
+            boxes.stream().mapToDouble(b -> b.max.x).sum() / n,
+            boxes.stream().mapToDouble(b -> b.max.y).sum() / n
+        )
+    );
+  }
+
+  //the smallest box with the ratio enclosing the given one, with the same center
+  private static BoundingBox adjust(BoundingBox box) {
+    double cx = (box.min.x + box.max.x) / 2d;
+    double cy = (box.min.y + box.max.y) / 2d;
+    double w = box.max.x - box.min.x;
+    double h = box.max.y - box.min.y;
+    if (w / h > RATIO) {
+      h = w / RATIO;
+    } else {
+      w = h * RATIO;
+    }
+    return BoundingBox.build(Point2.build(cx - w / 2d, cy - h / 2d), Point2.build(cx + w / 2d, cy + h / 2d));
+  }
+
+}
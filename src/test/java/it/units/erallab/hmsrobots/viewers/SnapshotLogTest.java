@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import it.units.erallab.hmsrobots.core.controllers.PhaseSin;
+import it.units.erallab.hmsrobots.core.objects.Robot;
+import it.units.erallab.hmsrobots.core.objects.immutable.Immutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.ShapedImmutable;
+import it.units.erallab.hmsrobots.core.objects.immutable.Snapshot;
+import it.units.erallab.hmsrobots.core.objects.immutable.Voxel;
+import it.units.erallab.hmsrobots.core.sensors.immutable.SensorReading;
+import it.units.erallab.hmsrobots.tasks.locomotion.Locomotion;
+import it.units.erallab.hmsrobots.util.Grid;
+import it.units.erallab.hmsrobots.util.RobotUtils;
+import org.dyn4j.dynamics.Settings;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class SnapshotLogTest {
+
+  private static final double QUANTUM = 1e-3;
+
+  private static void assertImmutableEquals(Immutable expected, Immutable actual) {
+    assertEquals(expected.getClass(), actual.getClass());
+    if (expected instanceof ShapedImmutable) {
+      assertEquals(((ShapedImmutable) expected).getShape().center().x, ((ShapedImmutable) actual).getShape().center().x, QUANTUM);
+      assertEquals(((ShapedImmutable) expected).getShape().center().y, ((ShapedImmutable) actual).getShape().center().y, QUANTUM);
+    }
+    if (expected instanceof Voxel) {
+      assertEquals(((Voxel) expected).getAreaRatio(), ((Voxel) actual).getAreaRatio(), QUANTUM);
+    }
+    if (expected instanceof SensorReading) {
+      assertArrayEquals(((SensorReading) expected).getValues(), ((SensorReading) actual).getValues(), QUANTUM);
+      assertEquals(((SensorReading) expected).getSensorIndex(), ((SensorReading) actual).getSensorIndex());
+    }
+    assertEquals(expected.getChildren().size(), actual.getChildren().size());
+    for (int i = 0; i < expected.getChildren().size(); i++) {
+      assertImmutableEquals(expected.getChildren().get(i), actual.getChildren().get(i));
+    }
+  }
+
+  /**
+   * Test of writing and then reading a log, of classes SnapshotLogWriter and SnapshotLogReader.
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    System.out.println("roundTrip");
+    Grid<Boolean> shape = RobotUtils.buildShape("biped-4x3");
+    Robot<?> robot = new Robot<>(
+        new PhaseSin(1d, 1d, Grid.create(shape, b -> b ? Math.PI / 3d : null)),
+        RobotUtils.buildSensorizingFunction("uniform-t+a+r+l5-0").apply(shape)
+    );
+    Locomotion locomotion = new Locomotion(5d, Locomotion.createTerrain("hilly-1-10-0"), new Settings());
+    List<Snapshot> snapshots = new ArrayList<>();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    SnapshotLogWriter writer = new SnapshotLogWriter(baos, QUANTUM / 2d, QUANTUM / 2d, Snapshot.ALL_CONTENTS);
+    locomotion.apply(robot, snapshot -> {
+      snapshots.add(snapshot);
+      writer.listen(snapshot);
+    });
+    writer.close();
+    assertEquals(snapshots.size(), writer.getFrameCount());
+    SnapshotLogReader reader = new SnapshotLogReader(new ByteArrayInputStream(baos.toByteArray()));
+    for (Snapshot expected : snapshots) {
+      Snapshot actual = reader.next();
+      assertNotNull(actual);
+      assertEquals(expected.getTime(), actual.getTime());
+      assertEquals(expected.getObjects().size(), actual.getObjects().size());
+      List<Immutable> expectedObjects = new ArrayList<>(expected.getObjects());
+      List<Immutable> actualObjects = new ArrayList<>(actual.getObjects());
+      for (int i = 0; i < expectedObjects.size(); i++) {
+        assertImmutableEquals(expectedObjects.get(i), actualObjects.get(i));
+      }
+    }
+    assertNull(reader.next());
+  }
+
+}
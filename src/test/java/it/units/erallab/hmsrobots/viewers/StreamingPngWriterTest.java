@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class StreamingPngWriterTest {
+
+  /**
+   * Test of writing rows in bands, of class StreamingPngWriter.
+   */
+  @Test
+  public void testWriteRows() throws IOException {
+    System.out.println("writeRows");
+    int w = 37;
+    int h = 11;
+    Random random = new Random(1);
+    BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    for (int x = 0; x < w; x++) {
+      for (int y = 0; y < h; y++) {
+        image.setRGB(x, y, random.nextInt(0x1000000));
+      }
+    }
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    //write the first 8 rows and let the writer fill the others with black
+    StreamingPngWriter writer = new StreamingPngWriter(baos, w, h);
+    writer.writeRows(image.getSubimage(0, 0, w, 5));
+    writer.writeRows(image.getSubimage(0, 5, w, 3));
+    writer.close();
+    BufferedImage read = ImageIO.read(new ByteArrayInputStream(baos.toByteArray()));
+    assertEquals(w, read.getWidth());
+    assertEquals(h, read.getHeight());
+    for (int x = 0; x < w; x++) {
+      for (int y = 0; y < h; y++) {
+        assertEquals(y < 8 ? image.getRGB(x, y) : 0xff000000, read.getRGB(x, y));
+      }
+    }
+  }
+
+}
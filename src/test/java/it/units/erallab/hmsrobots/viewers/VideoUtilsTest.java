@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2021 Eric Medvet <eric.medvet@gmail.com> (as Eric Medvet <eric.medvet@gmail.com>)
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.units.erallab.hmsrobots.viewers;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author Eric Medvet <eric.medvet@gmail.com>
+ */
+public class VideoUtilsTest {
+
+  private static final String SHELL = "/bin/sh";
+
+  private static void writeFrames(VideoUtils.VideoWriter videoWriter, int n, int w, int h) throws IOException {
+    for (int i = 0; i < n; i++) {
+      BufferedImage image = new BufferedImage(w, h, i % 2 == 0 ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_INT_RGB);
+      Graphics2D g = image.createGraphics();
+      g.setColor(Color.RED);
+      g.fillRect(0, 0, w / 2, h);
+      g.dispose();
+      videoWriter.write(image);
+    }
+  }
+
+  /**
+   * Test of piping frames to a process, with a stub process which just stores the frames, of class VideoUtils.
+   */
+  @Test
+  public void testPipedVideoWriter() throws IOException {
+    System.out.println("pipedVideoWriter");
+    assumeTrue(new File(SHELL).canExecute());
+    File file = File.createTempFile("video-utils-test", ".raw");
+    file.deleteOnExit();
+    VideoUtils.VideoWriter videoWriter = VideoUtils.videoWriter(
+        file, 10d,
+        (w, h, frameRate, f) -> List.of(SHELL, "-c", "cat > \"$0\"", f.getPath())
+    );
+    writeFrames(videoWriter, 5, 40, 30);
+    videoWriter.close();
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    assertEquals(5 * 40 * 30 * 3, bytes.length);
+    //first pixel is red, in BGR order, in all frames
+    for (int i = 0; i < 5; i++) {
+      assertEquals(0, bytes[i * 40 * 30 * 3]);
+      assertEquals(0, bytes[i * 40 * 30 * 3 + 1]);
+      assertEquals((byte) 255, bytes[i * 40 * 30 * 3 + 2]);
+    }
+  }
+
+  /**
+   * Test of piping frames to a process which fails, of class VideoUtils.
+   */
+  @Test
+  public void testPipedVideoWriterFailure() throws IOException {
+    System.out.println("pipedVideoWriterFailure");
+    assumeTrue(new File(SHELL).canExecute());
+    File file = File.createTempFile("video-utils-test", ".raw");
+    file.deleteOnExit();
+    VideoUtils.VideoWriter videoWriter = VideoUtils.videoWriter(
+        file, 10d,
+        (w, h, frameRate, f) -> List.of(SHELL, "-c", "cat > /dev/null; echo stub failure; exit 3")
+    );
+    writeFrames(videoWriter, 2, 40, 30);
+    IOException exception = assertThrows(IOException.class, videoWriter::close);
+    assertTrue(exception.getMessage().contains("stub failure"), exception.getMessage());
+  }
+
+}